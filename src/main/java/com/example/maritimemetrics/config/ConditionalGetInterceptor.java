@@ -0,0 +1,62 @@
+package com.example.maritimemetrics.config;
+
+import com.example.maritimemetrics.service.DatasetGenerations;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Answers conditional GET requests from the dataset generation, before the handler runs.
+ * <p>
+ * Responses get a strong ETag made of the generation of the vessel in the path, or of the whole
+ * dataset for fleet-wide endpoints, and of the {@code Accept} header the representation was
+ * negotiated from. A request whose {@code If-None-Match} still matches is answered 304 Not Modified
+ * without calling the handler, so no query runs.
+ * <p>
+ * No {@code Last-Modified} is sent: an import bumps the generation once per chunk, many times a
+ * second, and a date with second precision could answer {@code If-Modified-Since} with a stale 304.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private static final String VESSEL_CODE_VARIABLE = "vesselCode";
+
+    @Autowired
+    private DatasetGenerations datasetGenerations;
+
+    /**
+     * Sets the validators of the response and ends the request if the client's copy is current.
+     *
+     * @param request  the current request
+     * @param response the current response
+     * @param handler  the handler of the request
+     * @return false if the response is 304 Not Modified, true to call the handler
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async dispatches complete a request whose headers were already set
+        if (request.getDispatcherType() == DispatcherType.ASYNC ||
+                !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String vesselCode = variables != null ? variables.get(VESSEL_CODE_VARIABLE) : null;
+        long generation = vesselCode != null ? datasetGenerations.current(vesselCode) : datasetGenerations.current();
+
+        String etag = "\"" + generation + "-" +
+                Integer.toHexString(Objects.hashCode(request.getHeader(HttpHeaders.ACCEPT))) + "\"";
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
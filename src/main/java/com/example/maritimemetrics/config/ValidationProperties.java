@@ -0,0 +1,119 @@
+package com.example.maritimemetrics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validation rules applied to imported metrics, bound from the {@code maritime.validation} properties.
+ * Fields are named in camelCase ({@code fuelConsumption}) or kebab-case ({@code fuel-consumption}).
+ * The defaults are the rules the import has always applied.
+ * <p>
+ * Rules can be overridden per vessel under {@code maritime.validation.vessels.<vesselCode>}; an
+ * override replaces the rule of the same field and keeps every other rule.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "maritime.validation")
+public class ValidationProperties {
+
+    /**
+     * Allowed ranges per field. Values outside their range are outliers and are not stored.
+     */
+    private Map<String, Range> ranges = new LinkedHashMap<>();
+
+    /**
+     * Maximum relative deviations of a field from a reference field, e.g. of the proposed from the actual speed.
+     */
+    private Map<String, Deviation> deviations = new LinkedHashMap<>();
+
+    /**
+     * Fields whose values must not be below zero.
+     */
+    private List<String> nonNegative = new ArrayList<>(List.of("power", "fuelConsumption",
+            "actualSpeedOverground", "proposedSpeedOverground", "predictedFuelConsumption"));
+
+    /**
+     * Rule overrides per vessel code.
+     */
+    private Map<String, VesselRules> vessels = new LinkedHashMap<>();
+
+    /**
+     * Constructs the properties with the default rules.
+     */
+    public ValidationProperties() {
+        ranges.put("latitude", new Range(-90.0, 90.0));
+        ranges.put("longitude", new Range(-180.0, 180.0));
+        deviations.put("proposedSpeedOverground", new Deviation("actualSpeedOverground", 0.5));
+        deviations.put("predictedFuelConsumption", new Deviation("fuelConsumption", 0.5));
+    }
+
+    /**
+     * An inclusive range of allowed values. A missing bound is unbounded.
+     */
+    @Data
+    public static class Range {
+
+        private Double min;
+        private Double max;
+
+        /**
+         * Constructs an unbounded range.
+         */
+        public Range() {
+        }
+
+        /**
+         * Constructs a range with the specified bounds.
+         *
+         * @param min the lowest allowed value
+         * @param max the highest allowed value
+         */
+        public Range(Double min, Double max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * A maximum relative deviation, {@code |(reference - value) / reference|}, from a reference field.
+     */
+    @Data
+    public static class Deviation {
+
+        private String reference;
+        private double threshold;
+
+        /**
+         * Constructs a deviation rule without a reference, for overrides that only change the threshold.
+         */
+        public Deviation() {
+        }
+
+        /**
+         * Constructs a deviation rule.
+         *
+         * @param reference the field the value is compared with
+         * @param threshold the largest allowed relative deviation
+         */
+        public Deviation(String reference, double threshold) {
+            this.reference = reference;
+            this.threshold = threshold;
+        }
+    }
+
+    /**
+     * Rule overrides for one vessel.
+     */
+    @Data
+    public static class VesselRules {
+
+        private Map<String, Range> ranges = new LinkedHashMap<>();
+        private Map<String, Deviation> deviations = new LinkedHashMap<>();
+    }
+}
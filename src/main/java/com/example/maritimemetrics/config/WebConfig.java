@@ -0,0 +1,29 @@
+package com.example.maritimemetrics.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC configuration: conditional GET support for the read endpoints.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ConditionalGetInterceptor conditionalGetInterceptor;
+
+    /**
+     * Registers the {@link ConditionalGetInterceptor} for the metrics endpoints, except the result
+     * cache statistics, which change with every request rather than with imports.
+     *
+     * @param registry the interceptor registry
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor)
+                .addPathPatterns("/api/metrics/**")
+                .excludePathPatterns("/api/metrics/analytics/cache");
+    }
+}
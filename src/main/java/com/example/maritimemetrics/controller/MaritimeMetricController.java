@@ -1,13 +1,26 @@
 package com.example.maritimemetrics.controller;
 
+import com.example.maritimemetrics.dto.ColumnStoreStatsDTO;
+import com.example.maritimemetrics.dto.HeatmapCellDTO;
+import com.example.maritimemetrics.dto.MetricBucketDTO;
+import com.example.maritimemetrics.dto.MetricPageDTO;
 import com.example.maritimemetrics.dto.MetricSummaryDTO;
+import com.example.maritimemetrics.dto.ProblemEpisodePageDTO;
+import com.example.maritimemetrics.dto.ResultCacheStatsDTO;
 import com.example.maritimemetrics.dto.SpeedDifferenceDTO;
+import com.example.maritimemetrics.dto.SpeedDifferencePercentilesDTO;
+import com.example.maritimemetrics.dto.VesselComplianceDTO;
+import com.example.maritimemetrics.dto.VesselProblemCountsDTO;
 import com.example.maritimemetrics.model.MaritimeMetric;
 import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import com.example.maritimemetrics.service.MaritimeMetricQueryService;
 import com.example.maritimemetrics.service.MaritimeMetricStatisticsService;
+import com.example.maritimemetrics.util.ColumnarEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -33,15 +46,34 @@ public class MaritimeMetricController {
     @Autowired
     private MaritimeMetricStatisticsService maritimeMetricStatisticsService;
 
+    @Autowired
+    private MaritimeMetricQueryService maritimeMetricQueryService;
+
     /**
-     * Retrieves all maritime metrics data.
+     * Retrieves all maritime metrics data, one page at a time.
      *
-     * @return a list of all maritime metrics
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size   the number of metrics per page; the configured default if omitted
+     * @return a page of maritime metrics in id order with the cursor of the next page
      */
     @GetMapping("/all")
-    public List<MaritimeMetric> getAllData() {
+    public MetricPageDTO getAllData(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all metrics data");
-        return maritimeMetricRepository.findAll();
+        return maritimeMetricQueryService.getAllMetrics(cursor, size);
+    }
+
+    /**
+     * Streams all maritime metrics data in id order as newline-delimited JSON, one metric per line,
+     * when requested with {@code Accept: application/x-ndjson}.
+     *
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllData() {
+        LOGGER.log(Level.INFO, "Streaming all metrics data");
+        return ndjson(maritimeMetricQueryService::streamAllMetrics);
     }
 
     /**
@@ -56,63 +88,153 @@ public class MaritimeMetricController {
     }
 
     /**
-     * Retrieves valid data for a specific vessel.
+     * Retrieves valid data for a specific vessel, one page at a time.
      *
      * @param vesselCode the vessel code
-     * @return a list of valid maritime metrics for the specified vessel
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size the number of metrics per page; the configured default if omitted
+     * @return a page of valid maritime metrics for the specified vessel
      */
     @GetMapping("/{vesselCode}/valid")
-    public List<MaritimeMetric> getAllValidDataByVesselCode(@PathVariable String vesselCode) {
+    public MetricPageDTO getAllValidDataByVesselCode(
+            @PathVariable String vesselCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all valid data for vesselCode: " + vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsInvalidFalse(vesselCode);
+        return maritimeMetricQueryService.getVesselMetrics(vesselCode, "valid", cursor, size);
     }
 
     /**
-     * Retrieves invalid data for a specific vessel.
+     * Streams the valid data of a specific vessel in id order as newline-delimited JSON, one metric
+     * per line, when requested with {@code Accept: application/x-ndjson}.
      *
      * @param vesselCode the vessel code
-     * @return a list of invalid maritime metrics for the specified vessel
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/valid", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllValidDataByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming all valid data for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamVesselMetrics(vesselCode, "valid", out));
+    }
+
+    /**
+     * Retrieves invalid data for a specific vessel, one page at a time.
+     *
+     * @param vesselCode the vessel code
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size the number of metrics per page; the configured default if omitted
+     * @return a page of invalid maritime metrics for the specified vessel
      */
     @GetMapping("/{vesselCode}/invalid")
-    public List<MaritimeMetric> getAllInvalidDataByVesselCode(@PathVariable String vesselCode) {
+    public MetricPageDTO getAllInvalidDataByVesselCode(
+            @PathVariable String vesselCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all invalid data for vesselCode: " + vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsInvalidTrue(vesselCode);
+        return maritimeMetricQueryService.getVesselMetrics(vesselCode, "invalid", cursor, size);
     }
 
     /**
-     * Retrieves data with missing values for a specific vessel.
+     * Streams the invalid data of a specific vessel in id order as newline-delimited JSON, one metric
+     * per line, when requested with {@code Accept: application/x-ndjson}.
      *
      * @param vesselCode the vessel code
-     * @return a list of maritime metrics with missing values for the specified vessel
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/invalid", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllInvalidDataByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming all invalid data for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamVesselMetrics(vesselCode, "invalid", out));
+    }
+
+    /**
+     * Retrieves data with missing values for a specific vessel, one page at a time.
+     *
+     * @param vesselCode the vessel code
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size the number of metrics per page; the configured default if omitted
+     * @return a page of maritime metrics with missing values for the specified vessel
      */
     @GetMapping("/{vesselCode}/missing")
-    public List<MaritimeMetric> getAllMissingDataByVesselCode(@PathVariable String vesselCode) {
+    public MetricPageDTO getAllMissingDataByVesselCode(
+            @PathVariable String vesselCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all missing data for vesselCode: " + vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsMissingTrue(vesselCode);
+        return maritimeMetricQueryService.getVesselMetrics(vesselCode, "missing", cursor, size);
     }
 
     /**
-     * Retrieves below-zero data for a specific vessel.
+     * Streams the data with missing values of a specific vessel in id order as newline-delimited JSON, one metric
+     * per line, when requested with {@code Accept: application/x-ndjson}.
      *
      * @param vesselCode the vessel code
-     * @return a list of maritime metrics with below-zero values for the specified vessel
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/missing", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllMissingDataByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming all missing data for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamVesselMetrics(vesselCode, "missing", out));
+    }
+
+    /**
+     * Retrieves below-zero data for a specific vessel, one page at a time.
+     *
+     * @param vesselCode the vessel code
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size the number of metrics per page; the configured default if omitted
+     * @return a page of maritime metrics with below-zero values for the specified vessel
      */
     @GetMapping("/{vesselCode}/below-zero")
-    public List<MaritimeMetric> getAllBelowZeroDataByVesselCode(@PathVariable String vesselCode) {
+    public MetricPageDTO getAllBelowZeroDataByVesselCode(
+            @PathVariable String vesselCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all below-zero data for vesselCode: " + vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsBelowZeroTrue(vesselCode);
+        return maritimeMetricQueryService.getVesselMetrics(vesselCode, "belowzero", cursor, size);
+    }
+
+    /**
+     * Streams the below-zero data of a specific vessel in id order as newline-delimited JSON, one metric
+     * per line, when requested with {@code Accept: application/x-ndjson}.
+     *
+     * @param vesselCode the vessel code
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/below-zero", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBelowZeroDataByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming all below-zero data for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamVesselMetrics(vesselCode, "belowzero", out));
     }
 
     /**
-     * Retrieves outlier data for a specific vessel.
+     * Retrieves outlier data for a specific vessel, one page at a time.
      *
      * @param vesselCode the vessel code
-     * @return a list of maritime metrics with outlier values for the specified vessel
+     * @param cursor the cursor returned with the previous page; the first page if omitted
+     * @param size the number of metrics per page; the configured default if omitted
+     * @return a page of maritime metrics with outlier values for the specified vessel
      */
     @GetMapping("/{vesselCode}/outlier")
-    public List<MaritimeMetric> getAllOutlierDataByVesselCode(@PathVariable String vesselCode) {
+    public MetricPageDTO getAllOutlierDataByVesselCode(
+            @PathVariable String vesselCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         LOGGER.log(Level.INFO, "Fetching all outlier data for vesselCode: " + vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsOutlierTrue(vesselCode);
+        return maritimeMetricQueryService.getVesselMetrics(vesselCode, "outlier", cursor, size);
+    }
+
+    /**
+     * Streams the outlier data of a specific vessel in id order as newline-delimited JSON, one metric
+     * per line, when requested with {@code Accept: application/x-ndjson}.
+     *
+     * @param vesselCode the vessel code
+     * @return the response writing the metrics as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/outlier", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllOutlierDataByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming all outlier data for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamVesselMetrics(vesselCode, "outlier", out));
     }
 
     /**
@@ -127,6 +249,76 @@ public class MaritimeMetricController {
         return maritimeMetricRepository.findSpeedDifferencesByVesselCode(vesselCode);
     }
 
+    /**
+     * Streams the speed differences of a specific vessel as newline-delimited JSON, one per line,
+     * when requested with {@code Accept: application/x-ndjson}.
+     *
+     * @param vesselCode the vessel code
+     * @return the response writing the speed differences as they are read
+     */
+    @GetMapping(value = "/{vesselCode}/speed-difference", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSpeedDifferencesByVesselCode(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Streaming speed differences for vesselCode: " + vesselCode);
+        return ndjson(out -> maritimeMetricQueryService.streamSpeedDifferences(vesselCode, out));
+    }
+
+    /**
+     * Retrieves speed difference data for a specific vessel in the binary columnar encoding
+     * (latitude, longitude and speedDifference columns), when requested with
+     * {@code Accept: application/vnd.maritime.columnar}.
+     *
+     * @param vesselCode the vessel code
+     * @return the encoded speed differences for the specified vessel
+     */
+    @GetMapping(value = "/{vesselCode}/speed-difference", produces = ColumnarEncoder.MEDIA_TYPE_VALUE)
+    public byte[] getSpeedDifferencesByVesselCodeColumnar(@PathVariable String vesselCode) {
+        LOGGER.log(Level.INFO, "Fetching columnar speed differences for vesselCode: " + vesselCode);
+        return ColumnarEncoder.encode(maritimeMetricRepository.findSpeedDifferencesByVesselCode(vesselCode),
+                SpeedDifferenceDTO.COLUMNS);
+    }
+
+    /**
+     * Retrieves a heatmap of the speed differences of one vessel or the whole fleet: the count, mean
+     * and maximum speed difference per latitude/longitude grid cell, optionally within a time period.
+     *
+     * @param vesselCode the optional vessel code; the whole fleet if omitted
+     * @param precision  the number of decimal places of the grid, 1 (0.1 degree cells) by default
+     * @param startDate  the optional start date in "yyyy-MM-dd'T'HH:mm:ss" format, inclusive
+     * @param endDate    the optional end date in "yyyy-MM-dd'T'HH:mm:ss" format, exclusive
+     * @return the cells with speed differences
+     */
+    @GetMapping("/speed-difference/heatmap")
+    public List<HeatmapCellDTO> getSpeedDifferenceHeatmap(
+            @RequestParam(required = false) String vesselCode,
+            @RequestParam(defaultValue = "1") int precision,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        LOGGER.log(Level.INFO, "Fetching speed difference heatmap of precision " + precision + " for vesselCode: " +
+                (vesselCode != null ? vesselCode : "all"));
+        LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate, DATE_FORMATTER) : null;
+        LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate, DATE_FORMATTER) : null;
+        return maritimeMetricStatisticsService.getSpeedDifferenceHeatmap(vesselCode, precision, start, end);
+    }
+
+    /**
+     * Retrieves the p50, p90, p95 and p99 absolute speed differences of a vessel within a time period.
+     *
+     * @param vesselCode the vessel code
+     * @param startDate  the start date in "yyyy-MM-dd'T'HH:mm:ss" format, inclusive
+     * @param endDate    the end date in "yyyy-MM-dd'T'HH:mm:ss" format, exclusive
+     * @return the speed difference percentiles within the specified period
+     */
+    @GetMapping("/{vesselCode}/speed-difference/percentiles")
+    public SpeedDifferencePercentilesDTO getSpeedDifferencePercentiles(
+            @PathVariable String vesselCode,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        LOGGER.log(Level.INFO, "Fetching speed difference percentiles for vesselCode: " + vesselCode + " between " + startDate + " and " + endDate);
+        LocalDateTime start = LocalDateTime.parse(startDate, DATE_FORMATTER);
+        LocalDateTime end = LocalDateTime.parse(endDate, DATE_FORMATTER);
+        return maritimeMetricStatisticsService.getSpeedDifferencePercentiles(vesselCode, start, end);
+    }
+
     /**
      * Retrieves problem frequencies for a specific vessel, sorted by frequency.
      *
@@ -139,6 +331,26 @@ public class MaritimeMetricController {
         return maritimeMetricStatisticsService.getProblemFrequenciesAndValidityMetrics(vesselCode);
     }
 
+    /**
+     * Retrieves the problem frequencies of every vessel in the fleet, ranked by one of the counters.
+     *
+     * @param sortBy the counter to rank by ("missing", "belowzero", "outlier", "invalid" or "total")
+     * @param order  "desc" to rank the highest counts first, "asc" for the lowest
+     * @param limit  the maximum number of vessels to return; all vessels if omitted
+     * @return the ranked problem counts per vessel
+     */
+    @GetMapping("/fleet/problems/frequencies")
+    public List<VesselProblemCountsDTO> getFleetProblemFrequencies(
+            @RequestParam(defaultValue = "invalid") String sortBy,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) Integer limit) {
+        LOGGER.log(Level.INFO, "Fetching fleet problem frequencies sorted by " + sortBy + " " + order + ", limit: " + limit);
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("Order must be asc or desc");
+        }
+        return maritimeMetricStatisticsService.getFleetProblemFrequencies(sortBy, order.equalsIgnoreCase("asc"), limit);
+    }
+
     /**
      * Retrieves grouped problematic waypoints for a specified problem type in a vessel.
      *
@@ -155,22 +367,86 @@ public class MaritimeMetricController {
     }
 
     /**
-     * Retrieves metrics for a specific vessel within a specified time period.
+     * Retrieves summaries of the episodes of consecutive problematic waypoints of a vessel, one page at a time.
+     *
+     * @param vesselCode     the vessel code
+     * @param problemType    the type of problem (e.g., "missing", "below-zero", "outlier")
+     * @param maxGapSeconds  the largest gap in seconds between consecutive waypoints; the configured gap if omitted
+     * @param sortBy         "size" for the largest episodes first, or "start" for chronological order
+     * @param page           the zero-based page number
+     * @param size           the number of episodes per page
+     * @param includeMembers true to include the waypoints of each episode
+     * @return a page of episode summaries
+     */
+    @GetMapping("/{vesselCode}/problems/episodes")
+    public ProblemEpisodePageDTO getProblemEpisodes(
+            @PathVariable String vesselCode,
+            @RequestParam String problemType,
+            @RequestParam(required = false) Long maxGapSeconds,
+            @RequestParam(defaultValue = "size") String sortBy,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeMembers) {
+        LOGGER.log(Level.INFO, "Fetching problem episodes for vesselCode: " + vesselCode + " with problemType: " + problemType);
+        return maritimeMetricStatisticsService.getProblemEpisodes(vesselCode, problemType, maxGapSeconds, sortBy,
+                page, size, includeMembers);
+    }
+
+    /**
+     * Retrieves metrics for a specific vessel within a specified time period. With a bucket, the
+     * metrics are downsampled to the count, minimum, maximum and average of every field per time bucket.
      *
      * @param vesselCode the vessel code
      * @param startDate the start date in "yyyy-MM-dd'T'HH:mm:ss" format
      * @param endDate the end date in "yyyy-MM-dd'T'HH:mm:ss" format
-     * @return a list of metric summaries within the specified period
+     * @param bucket the optional bucket size: "minute", "hour", "day" or "custom"
+     * @param bucketSeconds the length of a custom bucket in seconds
+     * @return a list of metric summaries within the specified period, or of buckets if a bucket size is given
      */
     @GetMapping("/{vesselCode}/summary-metrics")
-    public List<MetricSummaryDTO> getMetricsForVesselInPeriod(
+    public List<?> getMetricsForVesselInPeriod(
             @PathVariable String vesselCode,
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String bucket,
+            @RequestParam(required = false) Long bucketSeconds) {
         LOGGER.log(Level.INFO, "Fetching summary metrics for vesselCode: " + vesselCode + " between " + startDate + " and " + endDate);
         LocalDateTime start = LocalDateTime.parse(startDate, DATE_FORMATTER);
         LocalDateTime end = LocalDateTime.parse(endDate, DATE_FORMATTER);
-        return maritimeMetricRepository.findMetricsByVesselCodeAndDatetimeBetween(vesselCode, start, end);
+        if (bucket != null) {
+            return maritimeMetricStatisticsService.getBucketedSummaryMetrics(vesselCode, start, end, bucket, bucketSeconds);
+        }
+        return maritimeMetricStatisticsService.getSummaryMetrics(vesselCode, start, end);
+    }
+
+    /**
+     * Retrieves metrics for a specific vessel within a specified time period in the binary columnar
+     * encoding, when requested with {@code Accept: application/vnd.maritime.columnar}. Summaries have
+     * a column per field; buckets have their start and end and the count, min, max and avg of every field.
+     *
+     * @param vesselCode the vessel code
+     * @param startDate the start date in "yyyy-MM-dd'T'HH:mm:ss" format
+     * @param endDate the end date in "yyyy-MM-dd'T'HH:mm:ss" format
+     * @param bucket the optional bucket size: "minute", "hour", "day" or "custom"
+     * @param bucketSeconds the length of a custom bucket in seconds
+     * @return the encoded metric summaries within the specified period, or buckets if a bucket size is given
+     */
+    @GetMapping(value = "/{vesselCode}/summary-metrics", produces = ColumnarEncoder.MEDIA_TYPE_VALUE)
+    public byte[] getMetricsForVesselInPeriodColumnar(
+            @PathVariable String vesselCode,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(required = false) String bucket,
+            @RequestParam(required = false) Long bucketSeconds) {
+        LOGGER.log(Level.INFO, "Fetching columnar summary metrics for vesselCode: " + vesselCode + " between " + startDate + " and " + endDate);
+        LocalDateTime start = LocalDateTime.parse(startDate, DATE_FORMATTER);
+        LocalDateTime end = LocalDateTime.parse(endDate, DATE_FORMATTER);
+        if (bucket != null) {
+            return ColumnarEncoder.encode(maritimeMetricStatisticsService.getBucketedSummaryMetrics(vesselCode, start, end,
+                    bucket, bucketSeconds), MetricBucketDTO.COLUMNS);
+        }
+        return ColumnarEncoder.encode(maritimeMetricStatisticsService.getSummaryMetrics(vesselCode, start, end),
+                MetricSummaryDTO.COLUMNS);
     }
 
     /**
@@ -188,6 +464,38 @@ public class MaritimeMetricController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Ranks vessels by median absolute speed difference, the most compliant first.
+     *
+     * @param vesselCodes the vessel codes to rank; the whole fleet if omitted
+     * @return the ranked vessels with their medians and sample counts
+     */
+    @GetMapping("/compliance-ranking")
+    public List<VesselComplianceDTO> getComplianceRanking(@RequestParam(required = false) List<String> vesselCodes) {
+        LOGGER.log(Level.INFO, "Ranking vessels by median speed difference: " + (vesselCodes != null ? vesselCodes : "all"));
+        return maritimeMetricStatisticsService.rankVesselsByMedianSpeedDifference(vesselCodes);
+    }
+
+    /**
+     * Reports the size and estimated heap use of the in-memory columnar analytics store.
+     *
+     * @return the number of vessels and rows held, their estimated heap use in total and per row, and the last load
+     */
+    @GetMapping("/analytics/store")
+    public ColumnStoreStatsDTO getColumnStoreStats() {
+        return maritimeMetricStatisticsService.getColumnStoreStats();
+    }
+
+    /**
+     * Reports the size of the statistics result cache and how often it answered requests.
+     *
+     * @return the entries and weight held, and the hit, miss, eviction and invalidation counts
+     */
+    @GetMapping("/analytics/cache")
+    public ResultCacheStatsDTO getResultCacheStats() {
+        return maritimeMetricStatisticsService.getResultCacheStats();
+    }
+
     /**
      * Retrieves speed outliers for a specific vessel based on a threshold.
      *
@@ -217,6 +525,44 @@ public class MaritimeMetricController {
         LOGGER.log(Level.INFO, "Fetching fuel outliers for vesselCode: " + vesselCode + " with fuelThreshold: " + fuelThreshold);
         return maritimeMetricStatisticsService.getFuelOutliers(vesselCode, fuelThreshold);
     }
-}
 
+    /**
+     * Retrieves the metrics with the largest relative speed deviation, of one vessel or the whole fleet.
+     *
+     * @param vesselCode the optional vessel code; the whole fleet if omitted
+     * @param k the number of metrics to return, 10 by default
+     * @return up to k speed outliers, the worst first
+     */
+    @GetMapping("/outliers/speed/top")
+    public List<MaritimeMetric> getTopSpeedOutliers(
+            @RequestParam(required = false) String vesselCode,
+            @RequestParam(defaultValue = "10") int k) {
+        LOGGER.log(Level.INFO, "Fetching top " + k + " speed outliers for vesselCode: " + (vesselCode != null ? vesselCode : "all"));
+        return maritimeMetricStatisticsService.getTopOutliers("speed", vesselCode, k);
+    }
 
+    /**
+     * Retrieves the metrics with the largest relative fuel deviation, of one vessel or the whole fleet.
+     *
+     * @param vesselCode the optional vessel code; the whole fleet if omitted
+     * @param k the number of metrics to return, 10 by default
+     * @return up to k fuel outliers, the worst first
+     */
+    @GetMapping("/outliers/fuel/top")
+    public List<MaritimeMetric> getTopFuelOutliers(
+            @RequestParam(required = false) String vesselCode,
+            @RequestParam(defaultValue = "10") int k) {
+        LOGGER.log(Level.INFO, "Fetching top " + k + " fuel outliers for vesselCode: " + (vesselCode != null ? vesselCode : "all"));
+        return maritimeMetricStatisticsService.getTopOutliers("fuel", vesselCode, k);
+    }
+
+    /**
+     * Wraps a streaming body into a newline-delimited JSON response.
+     *
+     * @param body the body writing the rows
+     * @return the response
+     */
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
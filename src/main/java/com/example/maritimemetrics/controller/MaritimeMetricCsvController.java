@@ -1,15 +1,29 @@
 package com.example.maritimemetrics.controller;
 
+import com.example.maritimemetrics.dto.ImportReport;
+import com.example.maritimemetrics.exception.ImportInProgressException;
+import com.example.maritimemetrics.model.ImportJob;
+import com.example.maritimemetrics.model.ImportMode;
+import com.example.maritimemetrics.model.ImportProgress;
+import com.example.maritimemetrics.service.ImportJobService;
 import com.example.maritimemetrics.service.MaritimeMetricCsvService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,25 +39,42 @@ public class MaritimeMetricCsvController {
     @Autowired
     private MaritimeMetricCsvService maritimeMetricCsvService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
     /**
      * Imports a CSV file containing maritime metrics data.
      *
      * @param file the CSV file to be imported
-     * @return a ResponseEntity containing the result of the import operation
+     * @param mode how the file is combined with the stored data: replace (default), append or upsert
+     * @return a ResponseEntity containing the import report, or an error message if the import failed or
+     * another import is running
      */
     @PostMapping("/import")
-    public ResponseEntity<String> importCsv(@RequestParam("file") MultipartFile file) {
-        LOGGER.log(Level.INFO, "CSV import request received");
+    public ResponseEntity<?> importCsv(@RequestParam("file") MultipartFile file,
+                                       @RequestParam(value = "mode", defaultValue = "replace") String mode) {
+        LOGGER.log(Level.INFO, "CSV import request received with mode: " + mode);
 
         if (file.isEmpty()) {
             LOGGER.log(Level.WARNING, "CSV import failed: No file provided");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No file provided. Please upload a valid CSV file.");
         }
 
+        ImportMode importMode;
+        try {
+            importMode = ImportMode.fromValue(mode);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "CSV import failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+
         try {
-            maritimeMetricCsvService.importDataFromCsv(file);
+            ImportReport report = maritimeMetricCsvService.importDataFromCsv(file, importMode);
             LOGGER.log(Level.INFO, "CSV file imported successfully");
-            return ResponseEntity.ok("CSV file imported successfully");
+            return ResponseEntity.ok(report);
+        } catch (ImportInProgressException e) {
+            LOGGER.log(Level.WARNING, "CSV import rejected: " + e.getMessage());
+            return importInProgress(e);
         } catch (IllegalArgumentException e) {
             LOGGER.log(Level.WARNING, "CSV import failed due to invalid data: " + e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid data in CSV file: " + e.getMessage());
@@ -52,4 +83,126 @@ public class MaritimeMetricCsvController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred during CSV import.");
         }
     }
+
+    /**
+     * Imports CSV data sent as the raw request body.
+     * The body is parsed while it is still being received, without the multipart buffering and
+     * size limit of {@link #importCsv}. Gzip-compressed bodies are decompressed on the fly.
+     *
+     * @param request the request whose body holds the CSV data
+     * @param mode    how the data is combined with the stored data: replace (default), append or upsert
+     * @return a ResponseEntity containing the import report, or an error message if the import failed or
+     * another import is running
+     */
+    @PostMapping("/import/stream")
+    public ResponseEntity<?> importCsvStream(HttpServletRequest request,
+                                             @RequestParam(value = "mode", defaultValue = "replace") String mode) {
+        LOGGER.log(Level.INFO, "CSV stream import request received with mode: " + mode);
+
+        ImportMode importMode;
+        try {
+            importMode = ImportMode.fromValue(mode);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "CSV stream import failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+
+        try {
+            ImportReport report = maritimeMetricCsvService.tryImportDataFromCsv(request.getInputStream(), importMode,
+                    new ImportProgress(request.getContentLengthLong()));
+            LOGGER.log(Level.INFO, "CSV stream imported successfully");
+            return ResponseEntity.ok(report);
+        } catch (ImportInProgressException e) {
+            LOGGER.log(Level.WARNING, "CSV stream import rejected: " + e.getMessage());
+            return importInProgress(e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "CSV stream import failed due to invalid data: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid data in CSV file: " + e.getMessage());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Unexpected error during CSV stream import: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred during CSV import.");
+        }
+    }
+
+    /**
+     * Submits a CSV file for import in the background.
+     * Returns at once with the queued job; its progress is available from {@code GET /api/csv/jobs/{jobId}}.
+     *
+     * @param file the CSV file to be imported
+     * @param mode how the file is combined with the stored data: replace (default), append or upsert
+     * @return a ResponseEntity containing the queued job, or an error message if the job cannot be queued
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitImportJob(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "mode", defaultValue = "replace") String mode) {
+        LOGGER.log(Level.INFO, "CSV import job request received with mode: " + mode);
+
+        if (file.isEmpty()) {
+            LOGGER.log(Level.WARNING, "CSV import job rejected: No file provided");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No file provided. Please upload a valid CSV file.");
+        }
+
+        ImportMode importMode;
+        try {
+            importMode = ImportMode.fromValue(mode);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "CSV import job rejected: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+
+        try {
+            ImportJob job = importJobService.submit(file, importMode);
+            return ResponseEntity.accepted().location(URI.create("/api/csv/jobs/" + job.getId())).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Too many CSV imports in progress. Please try again later.");
+        }
+    }
+
+    /**
+     * Retrieves all known import jobs, most recently submitted first.
+     *
+     * @return a ResponseEntity containing the import jobs
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ImportJob>> getImportJobs() {
+        return ResponseEntity.ok(importJobService.getJobs());
+    }
+
+    /**
+     * Retrieves the status and progress of an import job.
+     *
+     * @param jobId the id of the job
+     * @return a ResponseEntity containing the import job
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(importJobService.getJob(jobId));
+    }
+
+    /**
+     * Requests cancellation of an import job.
+     * Rows committed before the cancellation takes effect are kept.
+     *
+     * @param jobId the id of the job
+     * @return a ResponseEntity containing the import job
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<ImportJob> cancelImportJob(@PathVariable String jobId) {
+        LOGGER.log(Level.INFO, "Cancellation request received for CSV import job: " + jobId);
+        return ResponseEntity.ok(importJobService.cancel(jobId));
+    }
+
+    /**
+     * Builds the answer to an import refused because another import is running.
+     *
+     * @param e the exception refusing the import
+     * @return a CONFLICT response asking the client to retry later
+     */
+    private static ResponseEntity<String> importInProgress(ImportInProgressException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(e.getMessage());
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) for the size and heap use of the in-memory columnar analytics store.
+ */
+@Getter
+public class ColumnStoreStatsDTO {
+
+    /**
+     * -- GETTER --
+     *  Tells whether statistics are served from the store.
+     *
+     * @return true if the store is enabled
+     */
+    private final boolean enabled;
+    /**
+     * -- GETTER --
+     *  Gets the number of vessels held.
+     *
+     * @return the number of vessel series
+     */
+    private final int vessels;
+    /**
+     * -- GETTER --
+     *  Gets the number of metric rows held.
+     *
+     * @return the number of rows over all vessels
+     */
+    private final long rows;
+    /**
+     * -- GETTER --
+     *  Gets the estimated heap used by the store.
+     *
+     * @return the estimated size of all series in bytes
+     */
+    private final long heapBytes;
+    /**
+     * -- GETTER --
+     *  Gets the estimated heap used per row.
+     *
+     * @return the estimated bytes per row, 0 if the store is empty
+     */
+    private final double heapBytesPerRow;
+    /**
+     * -- GETTER --
+     *  Gets when the store was last loaded or refreshed.
+     *
+     * @return the time of the last load, or null if it has not been loaded
+     */
+    private final LocalDateTime lastLoadedAt;
+    /**
+     * -- GETTER --
+     *  Gets how long the last load or refresh took.
+     *
+     * @return the duration of the last load in milliseconds
+     */
+    private final long lastLoadMillis;
+
+    /**
+     * Constructs a ColumnStoreStatsDTO.
+     *
+     * @param enabled        true if the store is enabled
+     * @param vessels        the number of vessel series
+     * @param rows           the number of rows
+     * @param heapBytes      the estimated size in bytes
+     * @param lastLoadedAt   the time of the last load, or null
+     * @param lastLoadMillis the duration of the last load in milliseconds
+     */
+    public ColumnStoreStatsDTO(boolean enabled, int vessels, long rows, long heapBytes,
+                               LocalDateTime lastLoadedAt, long lastLoadMillis) {
+        this.enabled = enabled;
+        this.vessels = vessels;
+        this.rows = rows;
+        this.heapBytes = heapBytes;
+        this.heapBytesPerRow = rows > 0 ? (double) heapBytes / rows : 0;
+        this.lastLoadedAt = lastLoadedAt;
+        this.lastLoadMillis = lastLoadMillis;
+    }
+}
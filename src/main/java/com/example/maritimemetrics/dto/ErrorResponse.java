@@ -1,10 +1,13 @@
 package com.example.maritimemetrics.dto;
 
+import lombok.Getter;
+
 import java.time.LocalDateTime;
 
 /**
  * Data Transfer Object (DTO) for error responses.
  */
+@Getter
 public class ErrorResponse {
     private LocalDateTime timestamp;
     private String message;
@@ -22,6 +25,4 @@ public class ErrorResponse {
         this.message = message;
         this.details = details;
     }
-
-    // Getters and setters can be added here if needed
 }
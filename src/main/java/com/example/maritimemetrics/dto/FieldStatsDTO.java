@@ -0,0 +1,66 @@
+package com.example.maritimemetrics.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object (DTO) for the count, minimum, maximum and average of one field within a time bucket.
+ * Statistics of adjacent buckets are combined with {@link #merge(long, double, double, double)}.
+ */
+@Getter
+public class FieldStatsDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the number of values.
+     *
+     * @return the number of values
+     */
+    private long count;
+    /**
+     * -- GETTER --
+     *  Gets the smallest value.
+     *
+     * @return the smallest value
+     */
+    private double min = Double.POSITIVE_INFINITY;
+    /**
+     * -- GETTER --
+     *  Gets the largest value.
+     *
+     * @return the largest value
+     */
+    private double max = Double.NEGATIVE_INFINITY;
+    /**
+     * -- GETTER --
+     *  Gets the sum of the values.
+     *
+     * @return the sum of the values
+     */
+    @JsonIgnore
+    private double sum;
+
+    /**
+     * Adds the statistics of a set of values.
+     *
+     * @param count the number of values
+     * @param sum   the sum of the values
+     * @param min   the smallest value
+     * @param max   the largest value
+     */
+    public void merge(long count, double sum, double min, double max) {
+        this.count += count;
+        this.sum += sum;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    /**
+     * Gets the average value.
+     *
+     * @return the mean of the values
+     */
+    public double getAvg() {
+        return sum / count;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) for the speed differences within one cell of a latitude/longitude grid.
+ */
+@Getter
+public class HeatmapCellDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the southern edge of the cell.
+     *
+     * @return the smallest latitude of the cell, inclusive
+     */
+    private final double minLatitude;
+    /**
+     * -- GETTER --
+     *  Gets the western edge of the cell.
+     *
+     * @return the smallest longitude of the cell, inclusive
+     */
+    private final double minLongitude;
+    /**
+     * -- GETTER --
+     *  Gets the northern edge of the cell.
+     *
+     * @return the largest latitude of the cell, exclusive
+     */
+    private final double maxLatitude;
+    /**
+     * -- GETTER --
+     *  Gets the eastern edge of the cell.
+     *
+     * @return the largest longitude of the cell, exclusive
+     */
+    private final double maxLongitude;
+    /**
+     * -- GETTER --
+     *  Gets the number of speed differences.
+     *
+     * @return the number of speed differences in the cell
+     */
+    private final long count;
+    /**
+     * -- GETTER --
+     *  Gets the mean speed difference.
+     *
+     * @return the mean of the speed differences in the cell
+     */
+    private final double mean;
+    /**
+     * -- GETTER --
+     *  Gets the largest speed difference.
+     *
+     * @return the largest speed difference in the cell
+     */
+    private final double max;
+
+    /**
+     * Constructs a HeatmapCellDTO from the indices and statistics of a grid cell.
+     *
+     * @param precision the number of decimal places of the grid
+     * @param cellLat   the southern edge of the cell times 10^precision
+     * @param cellLon   the western edge of the cell times 10^precision
+     * @param count     the number of speed differences
+     * @param sum       the sum of the speed differences
+     * @param max       the largest speed difference
+     */
+    public HeatmapCellDTO(int precision, int cellLat, int cellLon, long count, double sum, double max) {
+        this.minLatitude = BigDecimal.valueOf(cellLat, precision).doubleValue();
+        this.minLongitude = BigDecimal.valueOf(cellLon, precision).doubleValue();
+        this.maxLatitude = BigDecimal.valueOf(cellLat + 1L, precision).doubleValue();
+        this.maxLongitude = BigDecimal.valueOf(cellLon + 1L, precision).doubleValue();
+        this.count = count;
+        this.mean = sum / count;
+        this.max = max;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.maritimemetrics.dto;
+
+import com.example.maritimemetrics.model.ImportMode;
+import com.example.maritimemetrics.model.ValidationIssueCount;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) summarising the outcome of a CSV import.
+ * Validation problems are counted per field and rule, with the line numbers of the first offending rows.
+ */
+@Getter
+public class ImportReport {
+
+    private ImportMode mode;
+    private long rowsProcessed;
+    private long rowsSkipped;
+    private long updatedRows;
+    private long duplicateRows;
+    private long invalidRows;
+    private long missingRows;
+    private long belowZeroRows;
+    private long outlierRows;
+    private long elapsedMillis;
+    private List<ValidationIssueCount> issues;
+
+    /**
+     * Constructs an ImportReport with the specified outcome.
+     *
+     * @param mode how the imported rows were combined with the stored data
+     * @param rowsProcessed the number of rows persisted
+     * @param rowsSkipped the number of rows skipped because they could not be parsed
+     * @param updatedRows the number of persisted rows that replaced a stored row
+     * @param duplicateRows the number of rows not written because their vessel code and datetime were already
+     *                      stored or repeated within their chunk
+     * @param invalidRows the number of persisted rows flagged as invalid
+     * @param missingRows the number of persisted rows with missing values
+     * @param belowZeroRows the number of persisted rows with values below zero
+     * @param outlierRows the number of persisted rows flagged as outliers
+     * @param elapsedMillis the duration of the import in milliseconds
+     * @param issues the validation issues per field and rule
+     */
+    public ImportReport(ImportMode mode, long rowsProcessed, long rowsSkipped, long updatedRows, long duplicateRows,
+                        long invalidRows, long missingRows, long belowZeroRows, long outlierRows, long elapsedMillis,
+                        List<ValidationIssueCount> issues) {
+        this.mode = mode;
+        this.rowsProcessed = rowsProcessed;
+        this.rowsSkipped = rowsSkipped;
+        this.updatedRows = updatedRows;
+        this.duplicateRows = duplicateRows;
+        this.invalidRows = invalidRows;
+        this.missingRows = missingRows;
+        this.belowZeroRows = belowZeroRows;
+        this.outlierRows = outlierRows;
+        this.elapsedMillis = elapsedMillis;
+        this.issues = issues;
+    }
+}
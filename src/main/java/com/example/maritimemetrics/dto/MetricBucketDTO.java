@@ -0,0 +1,108 @@
+package com.example.maritimemetrics.dto;
+
+import com.example.maritimemetrics.util.ColumnarEncoder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Data Transfer Object (DTO) for the statistics of the valid metrics of a vessel within one time bucket.
+ */
+@Getter
+public class MetricBucketDTO {
+
+    /**
+     * The columns of the binary columnar encoding of a list of buckets, in order: the bucket start
+     * and end in seconds since 1970-01-01T00:00, then the count, min, max and avg of each summarized
+     * field, e.g. "power.count". Fields without values in a bucket have a count of 0 and no min, max or avg.
+     */
+    public static final List<ColumnarEncoder.Column<MetricBucketDTO>> COLUMNS = columns();
+
+    /**
+     * -- GETTER --
+     *  Gets the start of the bucket.
+     *
+     * @return the start of the bucket, inclusive
+     */
+    private final LocalDateTime bucketStart;
+    /**
+     * -- GETTER --
+     *  Gets the end of the bucket.
+     *
+     * @return the end of the bucket, exclusive
+     */
+    private final LocalDateTime bucketEnd;
+    /**
+     * -- GETTER --
+     *  Gets the statistics per field, e.g. "power" or "speedDifference".
+     *
+     * @return the statistics of the fields with values in the bucket
+     */
+    private final Map<String, FieldStatsDTO> metrics = new LinkedHashMap<>();
+
+    /**
+     * Constructs an empty MetricBucketDTO.
+     *
+     * @param bucketStart the start of the bucket, inclusive
+     * @param bucketEnd   the end of the bucket, exclusive
+     */
+    public MetricBucketDTO(LocalDateTime bucketStart, LocalDateTime bucketEnd) {
+        this.bucketStart = bucketStart;
+        this.bucketEnd = bucketEnd;
+    }
+
+    /**
+     * Adds the statistics of a field.
+     *
+     * @param field the name of the field
+     * @param count the number of values
+     * @param sum   the sum of the values
+     * @param min   the smallest value
+     * @param max   the largest value
+     */
+    public void merge(String field, long count, double sum, double min, double max) {
+        metrics.computeIfAbsent(field, name -> new FieldStatsDTO()).merge(count, sum, min, max);
+    }
+
+    /**
+     * @return the columns of the binary columnar encoding
+     */
+    private static List<ColumnarEncoder.Column<MetricBucketDTO>> columns() {
+        List<ColumnarEncoder.Column<MetricBucketDTO>> columns = new ArrayList<>();
+        columns.add(new ColumnarEncoder.Column<>("bucketStart",
+                bucket -> (double) bucket.getBucketStart().toEpochSecond(ZoneOffset.UTC)));
+        columns.add(new ColumnarEncoder.Column<>("bucketEnd",
+                bucket -> (double) bucket.getBucketEnd().toEpochSecond(ZoneOffset.UTC)));
+        for (ColumnarEncoder.Column<MetricSummaryDTO> field : MetricSummaryDTO.COLUMNS) {
+            String name = field.name();
+            columns.add(new ColumnarEncoder.Column<>(name + ".count", bucket -> {
+                FieldStatsDTO stats = bucket.getMetrics().get(name);
+                return stats != null ? (double) stats.getCount() : 0.0;
+            }));
+            columns.add(statsColumn(name, "min", FieldStatsDTO::getMin));
+            columns.add(statsColumn(name, "max", FieldStatsDTO::getMax));
+            columns.add(statsColumn(name, "avg", FieldStatsDTO::getAvg));
+        }
+        return columns;
+    }
+
+    /**
+     * @param field     the name of a summarized field
+     * @param statistic the name of the statistic
+     * @param value     reads the statistic
+     * @return the column of the statistic of the field, without values for buckets where the field has none
+     */
+    private static ColumnarEncoder.Column<MetricBucketDTO> statsColumn(String field, String statistic,
+                                                                       Function<FieldStatsDTO, Double> value) {
+        return new ColumnarEncoder.Column<>(field + "." + statistic, bucket -> {
+            FieldStatsDTO stats = bucket.getMetrics().get(field);
+            return stats != null ? value.apply(stats) : null;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.maritimemetrics.dto;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of maritime metrics, in id order, with the cursor of the next page.
+ */
+@Getter
+public class MetricPageDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the maximum number of metrics per page.
+     *
+     * @return the page size used, after capping the requested size
+     */
+    private final int size;
+    /**
+     * -- GETTER --
+     *  Gets the cursor of the next page.
+     *
+     * @return the token to pass as {@code cursor} for the next page, or null if this is the last page
+     */
+    private final String nextCursor;
+    /**
+     * -- GETTER --
+     *  Gets the metrics of the page.
+     *
+     * @return the metrics, ordered by id
+     */
+    private final List<MaritimeMetric> metrics;
+
+    /**
+     * Constructs a MetricPageDTO.
+     *
+     * @param size       the page size used
+     * @param nextCursor the cursor of the next page, or null
+     * @param metrics    the metrics of the page
+     */
+    public MetricPageDTO(int size, String nextCursor, List<MaritimeMetric> metrics) {
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.metrics = metrics;
+    }
+}
@@ -1,13 +1,27 @@
 package com.example.maritimemetrics.dto;
 
+import com.example.maritimemetrics.util.ColumnarEncoder;
 import lombok.Getter;
 
+import java.util.List;
+
 /**
  * Data Transfer Object (DTO) for summarizing metrics related to maritime operations.
  */
 @Getter
 public class MetricSummaryDTO {
 
+    /**
+     * The columns of the binary columnar encoding of a list of summaries, in order.
+     */
+    public static final List<ColumnarEncoder.Column<MetricSummaryDTO>> COLUMNS = List.of(
+            new ColumnarEncoder.Column<>("power", MetricSummaryDTO::getPower),
+            new ColumnarEncoder.Column<>("fuelConsumption", MetricSummaryDTO::getFuelConsumption),
+            new ColumnarEncoder.Column<>("actualSpeedOverground", MetricSummaryDTO::getActualSpeedOverground),
+            new ColumnarEncoder.Column<>("proposedSpeedOverground", MetricSummaryDTO::getProposedSpeedOverground),
+            new ColumnarEncoder.Column<>("predictedFuelConsumption", MetricSummaryDTO::getPredictedFuelConsumption),
+            new ColumnarEncoder.Column<>("speedDifference", MetricSummaryDTO::getSpeedDifference));
+
     private Double power;
     private Double fuelConsumption;
     private Double actualSpeedOverground;
@@ -0,0 +1,82 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for the row counts per problem type of a vessel, computed in one aggregate query.
+ */
+@Getter
+public class ProblemCountsDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the number of rows.
+     *
+     * @return the total number of rows
+     */
+    private final long total;
+    /**
+     * -- GETTER --
+     *  Gets the number of invalid rows.
+     *
+     * @return the number of invalid rows
+     */
+    private final long invalid;
+    /**
+     * -- GETTER --
+     *  Gets the number of rows with missing values.
+     *
+     * @return the number of rows with missing values
+     */
+    private final long missing;
+    /**
+     * -- GETTER --
+     *  Gets the number of rows with values below zero.
+     *
+     * @return the number of rows with values below zero
+     */
+    private final long belowZero;
+    /**
+     * -- GETTER --
+     *  Gets the number of outlier rows.
+     *
+     * @return the number of outlier rows
+     */
+    private final long outlier;
+
+    /**
+     * Constructs a ProblemCountsDTO from the results of an aggregate query.
+     * Conditional sums over no rows are null and count as zero.
+     *
+     * @param total     the total number of rows
+     * @param invalid   the number of invalid rows
+     * @param missing   the number of rows with missing values
+     * @param belowZero the number of rows with values below zero
+     * @param outlier   the number of outlier rows
+     */
+    public ProblemCountsDTO(Long total, Long invalid, Long missing, Long belowZero, Long outlier) {
+        this.total = total != null ? total : 0;
+        this.invalid = invalid != null ? invalid : 0;
+        this.missing = missing != null ? missing : 0;
+        this.belowZero = belowZero != null ? belowZero : 0;
+        this.outlier = outlier != null ? outlier : 0;
+    }
+
+    /**
+     * Returns the counts keyed by problem type, as served by the problem frequencies endpoint.
+     *
+     * @return a map with the Missing, BelowZero, Outlier, Invalid and Total counts
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("Missing", missing);
+        metrics.put("BelowZero", belowZero);
+        metrics.put("Outlier", outlier);
+        metrics.put("Invalid", invalid);
+        metrics.put("Total", total);
+        return metrics;
+    }
+}
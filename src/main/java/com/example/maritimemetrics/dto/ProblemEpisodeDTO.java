@@ -0,0 +1,78 @@
+package com.example.maritimemetrics.dto;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) summarizing an episode of consecutive problematic waypoints of a vessel.
+ */
+@Getter
+public class ProblemEpisodeDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the datetime of the first waypoint.
+     *
+     * @return the start of the episode
+     */
+    private final LocalDateTime start;
+    /**
+     * -- GETTER --
+     *  Gets the datetime of the last waypoint.
+     *
+     * @return the end of the episode
+     */
+    private final LocalDateTime end;
+    /**
+     * -- GETTER --
+     *  Gets the number of waypoints.
+     *
+     * @return the number of waypoints in the episode
+     */
+    private final long count;
+    /**
+     * -- GETTER --
+     *  Gets the id of the first waypoint.
+     *
+     * @return the id of the first waypoint
+     */
+    private final Long firstId;
+    /**
+     * -- GETTER --
+     *  Gets the id of the last waypoint.
+     *
+     * @return the id of the last waypoint
+     */
+    private final Long lastId;
+    /**
+     * -- GETTER --
+     *  Gets the waypoints of the episode, only present when requested.
+     *
+     * @return the waypoints in datetime order, or null
+     */
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<MaritimeMetric> members;
+
+    /**
+     * Constructs a ProblemEpisodeDTO without members.
+     *
+     * @param start   the datetime of the first waypoint
+     * @param end     the datetime of the last waypoint
+     * @param count   the number of waypoints
+     * @param firstId the id of the first waypoint
+     * @param lastId  the id of the last waypoint
+     */
+    public ProblemEpisodeDTO(LocalDateTime start, LocalDateTime end, long count, Long firstId, Long lastId) {
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.firstId = firstId;
+        this.lastId = lastId;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of the problem episodes of a vessel.
+ */
+@Getter
+public class ProblemEpisodePageDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the total number of episodes.
+     *
+     * @return the number of episodes on all pages
+     */
+    private final int totalEpisodes;
+    /**
+     * -- GETTER --
+     *  Gets the page number.
+     *
+     * @return the zero-based page number
+     */
+    private final int page;
+    /**
+     * -- GETTER --
+     *  Gets the page size.
+     *
+     * @return the maximum number of episodes per page
+     */
+    private final int size;
+    /**
+     * -- GETTER --
+     *  Gets the largest gap between consecutive waypoints of an episode.
+     *
+     * @return the maximum gap in seconds
+     */
+    private final long maxGapSeconds;
+    /**
+     * -- GETTER --
+     *  Gets the episodes of the page.
+     *
+     * @return the episodes
+     */
+    private final List<ProblemEpisodeDTO> episodes;
+
+    /**
+     * Constructs a ProblemEpisodePageDTO.
+     *
+     * @param totalEpisodes the number of episodes on all pages
+     * @param page          the zero-based page number
+     * @param size          the maximum number of episodes per page
+     * @param maxGapSeconds the maximum gap in seconds
+     * @param episodes      the episodes of the page
+     */
+    public ProblemEpisodePageDTO(int totalEpisodes, int page, int size, long maxGapSeconds, List<ProblemEpisodeDTO> episodes) {
+        this.totalEpisodes = totalEpisodes;
+        this.page = page;
+        this.size = size;
+        this.maxGapSeconds = maxGapSeconds;
+        this.episodes = episodes;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+/**
+ * Data Transfer Object (DTO) for the size and effectiveness of the statistics result cache.
+ */
+@Getter
+public class ResultCacheStatsDTO {
+
+    /**
+     * -- GETTER --
+     *  Tells whether statistics results are cached.
+     *
+     * @return true if the cache is enabled
+     */
+    private final boolean enabled;
+    /**
+     * -- GETTER --
+     *  Gets the number of cached results.
+     *
+     * @return the number of entries
+     */
+    private final int entries;
+    /**
+     * -- GETTER --
+     *  Gets the total weight of the cached results, about the number of objects they hold.
+     *
+     * @return the total weight
+     */
+    private final long weight;
+    /**
+     * -- GETTER --
+     *  Gets the largest total weight kept before evicting.
+     *
+     * @return the maximum weight
+     */
+    private final long maxWeight;
+    /**
+     * -- GETTER --
+     *  Gets the number of requests answered from the cache.
+     *
+     * @return the number of hits
+     */
+    private final long hits;
+    /**
+     * -- GETTER --
+     *  Gets the number of requests that computed their result.
+     *
+     * @return the number of misses
+     */
+    private final long misses;
+    /**
+     * -- GETTER --
+     *  Gets the share of requests answered from the cache.
+     *
+     * @return the hits divided by all requests, 0 if there were none
+     */
+    private final double hitRate;
+    /**
+     * -- GETTER --
+     *  Gets the number of results removed to stay within the maximum weight.
+     *
+     * @return the number of evictions
+     */
+    private final long evictions;
+    /**
+     * -- GETTER --
+     *  Gets the number of results dropped because an import changed their data.
+     *
+     * @return the number of invalidations
+     */
+    private final long invalidations;
+
+    /**
+     * Constructs a ResultCacheStatsDTO.
+     *
+     * @param enabled       true if the cache is enabled
+     * @param entries       the number of cached results
+     * @param weight        the total weight of the cached results
+     * @param maxWeight     the maximum weight
+     * @param hits          the number of hits
+     * @param misses        the number of misses
+     * @param evictions     the number of evictions
+     * @param invalidations the number of invalidations
+     */
+    public ResultCacheStatsDTO(boolean enabled, int entries, long weight, long maxWeight, long hits, long misses,
+                               long evictions, long invalidations) {
+        this.enabled = enabled;
+        this.entries = entries;
+        this.weight = weight;
+        this.maxWeight = maxWeight;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRate = hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+}
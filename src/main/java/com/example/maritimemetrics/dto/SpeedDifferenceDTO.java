@@ -1,13 +1,24 @@
 package com.example.maritimemetrics.dto;
 
+import com.example.maritimemetrics.util.ColumnarEncoder;
 import lombok.Getter;
 
+import java.util.List;
+
 /**
  * Data Transfer Object (DTO) for representing speed differences along with their geographical coordinates.
  */
 @Getter
 public class SpeedDifferenceDTO {
 
+    /**
+     * The columns of the binary columnar encoding of a list of speed differences, in order.
+     */
+    public static final List<ColumnarEncoder.Column<SpeedDifferenceDTO>> COLUMNS = List.of(
+            new ColumnarEncoder.Column<>("latitude", SpeedDifferenceDTO::getLatitude),
+            new ColumnarEncoder.Column<>("longitude", SpeedDifferenceDTO::getLongitude),
+            new ColumnarEncoder.Column<>("speedDifference", SpeedDifferenceDTO::getSpeedDifference));
+
     /**
      * -- GETTER --
      *  Gets the latitude.
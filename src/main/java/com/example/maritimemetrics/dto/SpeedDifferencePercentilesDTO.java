@@ -0,0 +1,99 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) for the percentiles of the absolute speed difference of a vessel in a time range.
+ */
+@Getter
+public class SpeedDifferencePercentilesDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the vessel code.
+     *
+     * @return the code of the vessel
+     */
+    private final String vesselCode;
+    /**
+     * -- GETTER --
+     *  Gets the start of the time range.
+     *
+     * @return the start of the range, inclusive
+     */
+    private final LocalDateTime startDate;
+    /**
+     * -- GETTER --
+     *  Gets the end of the time range.
+     *
+     * @return the end of the range, exclusive
+     */
+    private final LocalDateTime endDate;
+    /**
+     * -- GETTER --
+     *  Gets the number of speed differences the percentiles were computed from.
+     *
+     * @return the number of values
+     */
+    private final long count;
+    /**
+     * -- GETTER --
+     *  Tells whether the percentiles are exact or estimated from the import sketches.
+     *
+     * @return true if the percentiles are exact
+     */
+    private final boolean exact;
+    /**
+     * -- GETTER --
+     *  Gets the 50th percentile (median).
+     *
+     * @return the 50th percentile, or null if there are no values
+     */
+    private final Double p50;
+    /**
+     * -- GETTER --
+     *  Gets the 90th percentile.
+     *
+     * @return the 90th percentile, or null if there are no values
+     */
+    private final Double p90;
+    /**
+     * -- GETTER --
+     *  Gets the 95th percentile.
+     *
+     * @return the 95th percentile, or null if there are no values
+     */
+    private final Double p95;
+    /**
+     * -- GETTER --
+     *  Gets the 99th percentile.
+     *
+     * @return the 99th percentile, or null if there are no values
+     */
+    private final Double p99;
+
+    /**
+     * Constructs a SpeedDifferencePercentilesDTO.
+     *
+     * @param vesselCode  the code of the vessel
+     * @param startDate   the start of the range, inclusive
+     * @param endDate     the end of the range, exclusive
+     * @param count       the number of values
+     * @param exact       true if the percentiles are exact
+     * @param percentiles the 50th, 90th, 95th and 99th percentiles, NaN if there are no values
+     */
+    public SpeedDifferencePercentilesDTO(String vesselCode, LocalDateTime startDate, LocalDateTime endDate,
+                                         long count, boolean exact, double[] percentiles) {
+        this.vesselCode = vesselCode;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.count = count;
+        this.exact = exact;
+        this.p50 = count > 0 ? percentiles[0] : null;
+        this.p90 = count > 0 ? percentiles[1] : null;
+        this.p95 = count > 0 ? percentiles[2] : null;
+        this.p99 = count > 0 ? percentiles[3] : null;
+    }
+}
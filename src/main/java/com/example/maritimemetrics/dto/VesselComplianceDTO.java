@@ -0,0 +1,45 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+/**
+ * Data Transfer Object (DTO) for the position of a vessel in the fleet compliance ranking.
+ */
+@Getter
+public class VesselComplianceDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the vessel code.
+     *
+     * @return the code of the vessel
+     */
+    private final String vesselCode;
+    /**
+     * -- GETTER --
+     *  Gets the median absolute speed difference.
+     *
+     * @return the median absolute difference between actual and proposed speed, or null without samples
+     */
+    private final Double medianSpeedDifference;
+    /**
+     * -- GETTER --
+     *  Gets the number of speed differences the median was computed from.
+     *
+     * @return the number of samples
+     */
+    private final int sampleCount;
+
+    /**
+     * Constructs a VesselComplianceDTO.
+     *
+     * @param vesselCode            the code of the vessel
+     * @param medianSpeedDifference the median absolute speed difference, or null without samples
+     * @param sampleCount           the number of samples
+     */
+    public VesselComplianceDTO(String vesselCode, Double medianSpeedDifference, int sampleCount) {
+        this.vesselCode = vesselCode;
+        this.medianSpeedDifference = medianSpeedDifference;
+        this.sampleCount = sampleCount;
+    }
+}
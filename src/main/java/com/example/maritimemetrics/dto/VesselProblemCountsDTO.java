@@ -0,0 +1,33 @@
+package com.example.maritimemetrics.dto;
+
+import lombok.Getter;
+
+/**
+ * Data Transfer Object (DTO) for the row counts per problem type of one vessel in the fleet.
+ */
+@Getter
+public class VesselProblemCountsDTO extends ProblemCountsDTO {
+
+    /**
+     * -- GETTER --
+     *  Gets the vessel code.
+     *
+     * @return the code of the vessel
+     */
+    private final String vesselCode;
+
+    /**
+     * Constructs a VesselProblemCountsDTO from the results of a grouped aggregate query.
+     *
+     * @param vesselCode the code of the vessel
+     * @param total      the total number of rows
+     * @param invalid    the number of invalid rows
+     * @param missing    the number of rows with missing values
+     * @param belowZero  the number of rows with values below zero
+     * @param outlier    the number of outlier rows
+     */
+    public VesselProblemCountsDTO(String vesselCode, Long total, Long invalid, Long missing, Long belowZero, Long outlier) {
+        super(total, invalid, missing, belowZero, outlier);
+        this.vesselCode = vesselCode;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.maritimemetrics.exception;
+
+/**
+ * Custom exception class to represent a CSV import that cannot start because another import is running.
+ * This exception is thrown by imports made on request threads, which do not wait for the running import.
+ */
+public class ImportInProgressException extends RuntimeException {
+
+    /**
+     * Constructs a new ImportInProgressException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public ImportInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.maritimemetrics.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Represents a CSV import running in the background.
+ * Exposes the status of the import together with its progress, throughput and validation counts.
+ */
+@Getter
+public class ImportJob {
+
+    /**
+     * The lifecycle states of an import job.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final ImportMode mode;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    @JsonIgnore
+    private final ImportProgress progress;
+
+    @Getter(AccessLevel.NONE)
+    private volatile long startNanos;
+
+    @Getter(AccessLevel.NONE)
+    private volatile long finishNanos;
+
+    /**
+     * Constructs a queued import job.
+     *
+     * @param id       the unique id of the job
+     * @param fileName the name of the imported file
+     * @param mode     how the file is combined with the stored data
+     * @param progress the progress tracker handed to the import
+     */
+    public ImportJob(String id, String fileName, ImportMode mode, ImportProgress progress) {
+        this.id = id;
+        this.fileName = fileName;
+        this.mode = mode;
+        this.progress = progress;
+    }
+
+    /**
+     * Marks the job as started.
+     */
+    public void markRunning() {
+        startNanos = System.nanoTime();
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Marks the job as completed successfully.
+     */
+    public void markCompleted() {
+        finish(Status.COMPLETED);
+    }
+
+    /**
+     * Marks the job as failed.
+     *
+     * @param error a description of the failure
+     */
+    public void markFailed(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    /**
+     * Marks the job as cancelled.
+     */
+    public void markCancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    /**
+     * @return true if the job has completed, failed or been cancelled
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    /**
+     * @return true if cancellation of the job has been requested
+     */
+    public boolean isCancelRequested() {
+        return progress.isCancelRequested();
+    }
+
+    /**
+     * @return the size of the imported file in bytes, or -1 if unknown
+     */
+    public long getTotalBytes() {
+        return progress.getTotalBytes();
+    }
+
+    /**
+     * @return the number of bytes read from the file so far
+     */
+    public long getBytesRead() {
+        return progress.getBytesRead();
+    }
+
+    /**
+     * @return the number of rows persisted so far
+     */
+    public long getRowsProcessed() {
+        return progress.getRowsProcessed();
+    }
+
+    /**
+     * @return the number of rows skipped because they could not be parsed
+     */
+    public long getRowsSkipped() {
+        return progress.getRowsSkipped();
+    }
+
+    /**
+     * @return the number of persisted rows that replaced a stored row
+     */
+    public long getUpdatedRows() {
+        return progress.getUpdatedRows();
+    }
+
+    /**
+     * @return the number of rows not written because their vessel code and datetime were already
+     * stored or repeated within their chunk
+     */
+    public long getDuplicateRows() {
+        return progress.getDuplicateRows();
+    }
+
+    /**
+     * @return the number of persisted rows flagged as invalid
+     */
+    public long getInvalidRows() {
+        return progress.getInvalidRows();
+    }
+
+    /**
+     * @return the number of persisted rows with missing values
+     */
+    public long getMissingRows() {
+        return progress.getMissingRows();
+    }
+
+    /**
+     * @return the number of persisted rows with values below zero
+     */
+    public long getBelowZeroRows() {
+        return progress.getBelowZeroRows();
+    }
+
+    /**
+     * @return the number of persisted rows flagged as outliers
+     */
+    public long getOutlierRows() {
+        return progress.getOutlierRows();
+    }
+
+    /**
+     * @return the validation issues recorded so far, per field and rule
+     */
+    public List<ValidationIssueCount> getIssues() {
+        return progress.getIssues();
+    }
+
+    /**
+     * Calculates the average number of rows persisted per second since the job started.
+     *
+     * @return the throughput in rows per second, or 0 if the job has not started
+     */
+    public double getRowsPerSecond() {
+        double seconds = elapsedSeconds();
+        return seconds > 0 ? progress.getRowsProcessed() / seconds : 0;
+    }
+
+    /**
+     * Estimates the remaining time of a running job from the share of the file read so far.
+     *
+     * @return the estimated remaining seconds, or null if the job is not running or the file size is unknown
+     */
+    public Long getEtaSeconds() {
+        long totalBytes = progress.getTotalBytes();
+        long bytesRead = progress.getBytesRead();
+        double seconds = elapsedSeconds();
+        if (status != Status.RUNNING || totalBytes <= 0 || bytesRead == 0 || seconds <= 0) {
+            return null;
+        }
+        double bytesPerSecond = bytesRead / seconds;
+        return Math.round(Math.max(0, totalBytes - bytesRead) / bytesPerSecond);
+    }
+
+    /**
+     * Moves the job to a final status.
+     *
+     * @param finalStatus the final status
+     */
+    private void finish(Status finalStatus) {
+        finishNanos = System.nanoTime();
+        finishedAt = LocalDateTime.now();
+        status = finalStatus;
+    }
+
+    /**
+     * @return the seconds the job has been running, up to when it finished
+     */
+    private double elapsedSeconds() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long end = finishedAt != null ? finishNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.maritimemetrics.model;
+
+import java.util.Locale;
+
+/**
+ * Defines how a CSV import is combined with the data already stored.
+ * Rows are identified by their vessel code and datetime.
+ */
+public enum ImportMode {
+
+    /**
+     * Removes all stored data before importing the file.
+     */
+    REPLACE,
+
+    /**
+     * Keeps stored data and adds only rows whose vessel code and datetime are not stored yet.
+     */
+    APPEND,
+
+    /**
+     * Keeps stored data, overwriting rows with the same vessel code and datetime and adding the rest.
+     */
+    UPSERT;
+
+    /**
+     * Resolves an import mode from its name, ignoring case.
+     *
+     * @param value the name of the mode
+     * @return the matching import mode
+     * @throws IllegalArgumentException if no mode has the given name
+     */
+    public static ImportMode fromValue(String value) {
+        for (ImportMode mode : values()) {
+            if (mode.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown import mode: " + value + ". Expected one of replace, append, upsert");
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.maritimemetrics.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of a running CSV import and carries cancellation requests to it.
+ * Counters are updated by the import threads and may be read at any time from other threads.
+ */
+public class ImportProgress {
+
+    private final long totalBytes;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicLong rowsSkipped = new AtomicLong();
+    private final AtomicLong updatedRows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final AtomicLong invalidRows = new AtomicLong();
+    private final AtomicLong missingRows = new AtomicLong();
+    private final AtomicLong belowZeroRows = new AtomicLong();
+    private final AtomicLong outlierRows = new AtomicLong();
+    private final ValidationTally validation = new ValidationTally();
+    private volatile boolean cancelRequested;
+
+    /**
+     * Creates the progress of an import.
+     *
+     * @param totalBytes the size of the input in bytes, or -1 if unknown
+     */
+    public ImportProgress(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Records bytes read from the input.
+     *
+     * @param count the number of bytes read
+     */
+    public void addBytesRead(long count) {
+        bytesRead.addAndGet(count);
+    }
+
+    /**
+     * Records rows that were skipped because they could not be parsed.
+     *
+     * @param count the number of skipped rows
+     */
+    public void recordSkippedRows(long count) {
+        rowsSkipped.addAndGet(count);
+    }
+
+    /**
+     * Records rows that were not written because their vessel code and datetime were already stored
+     * or repeated within their chunk.
+     *
+     * @param count the number of dropped rows
+     */
+    public void recordDuplicateRows(long count) {
+        duplicateRows.addAndGet(count);
+    }
+
+    /**
+     * Records the validation issues of a block of rows.
+     * Blocks must be recorded in input order.
+     *
+     * @param blockIssues the issues found in the block
+     */
+    public void recordValidation(ValidationTally blockIssues) {
+        validation.merge(blockIssues);
+    }
+
+    /**
+     * Records the rows a chunk persisted and their validation outcome.
+     *
+     * @param inserts the metrics inserted as new rows
+     * @param updates the metrics that replaced stored rows
+     */
+    public void recordWrittenRows(List<MaritimeMetric> inserts, List<MaritimeMetric> updates) {
+        long invalid = 0;
+        long missing = 0;
+        long belowZero = 0;
+        long outlier = 0;
+        for (List<MaritimeMetric> metrics : List.of(inserts, updates)) {
+            for (MaritimeMetric metric : metrics) {
+                invalid += Boolean.TRUE.equals(metric.getIsInvalid()) ? 1 : 0;
+                missing += Boolean.TRUE.equals(metric.getIsMissing()) ? 1 : 0;
+                belowZero += Boolean.TRUE.equals(metric.getIsBelowZero()) ? 1 : 0;
+                outlier += Boolean.TRUE.equals(metric.getIsOutlier()) ? 1 : 0;
+            }
+        }
+        invalidRows.addAndGet(invalid);
+        missingRows.addAndGet(missing);
+        belowZeroRows.addAndGet(belowZero);
+        outlierRows.addAndGet(outlier);
+        updatedRows.addAndGet(updates.size());
+        rowsProcessed.addAndGet(inserts.size() + updates.size());
+    }
+
+    /**
+     * Asks the import to stop after the chunk currently being written.
+     */
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * @return true if cancellation of the import has been requested
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * @return the size of the input in bytes, or -1 if unknown
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the number of bytes read from the input so far
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return the number of rows persisted so far
+     */
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    /**
+     * @return the number of rows skipped because they could not be parsed
+     */
+    public long getRowsSkipped() {
+        return rowsSkipped.get();
+    }
+
+    /**
+     * @return the number of persisted rows that replaced a stored row
+     */
+    public long getUpdatedRows() {
+        return updatedRows.get();
+    }
+
+    /**
+     * @return the number of rows not written because their vessel code and datetime were already
+     * stored or repeated within their chunk
+     */
+    public long getDuplicateRows() {
+        return duplicateRows.get();
+    }
+
+    /**
+     * @return the number of persisted rows flagged as invalid
+     */
+    public long getInvalidRows() {
+        return invalidRows.get();
+    }
+
+    /**
+     * @return the number of persisted rows with missing values
+     */
+    public long getMissingRows() {
+        return missingRows.get();
+    }
+
+    /**
+     * @return the number of persisted rows with values below zero
+     */
+    public long getBelowZeroRows() {
+        return belowZeroRows.get();
+    }
+
+    /**
+     * @return the number of persisted rows flagged as outliers
+     */
+    public long getOutlierRows() {
+        return outlierRows.get();
+    }
+
+    /**
+     * @return the validation issues recorded so far, per field and rule
+     */
+    public List<ValidationIssueCount> getIssues() {
+        return validation.getIssues();
+    }
+}
@@ -9,12 +9,30 @@ import java.time.LocalDateTime;
  * Represents a maritime metric entity for storing metrics data related to vessels.
  */
 @Entity
-@Table(name = "maritime_metrics")
+@Table(name = "maritime_metrics", indexes = {
+        @Index(name = "idx_maritime_metrics_vessel_datetime", columnList = "vessel_code, datetime"),
+        @Index(name = "idx_maritime_metrics_vessel_id", columnList = "vessel_code, id"),
+        @Index(name = "idx_maritime_metrics_vessel_speed_deviation", columnList = "vessel_code, speed_deviation"),
+        @Index(name = "idx_maritime_metrics_vessel_fuel_deviation", columnList = "vessel_code, fuel_deviation")
+})
 @Data
 public class MaritimeMetric {
 
+    /**
+     * The sequence the ids are drawn from, shared with the bulk insert path of the import.
+     */
+    public static final String ID_SEQUENCE = "maritime_metrics_seq";
+
+    /**
+     * The number of ids reserved by each call to the id sequence.
+     * Ids are allocated with the pooled-lo optimizer: a sequence value {@code v} reserves
+     * the ids {@code v} to {@code v + ID_ALLOCATION_SIZE - 1}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 1000;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "maritime_metrics_id")
+    @SequenceGenerator(name = "maritime_metrics_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -67,6 +85,18 @@ public class MaritimeMetric {
      */
     private Double speedDifference;
 
+    /**
+     * The relative deviation of the actual from the proposed speed, |actual - proposed| / proposed.
+     * Null if either speed is missing or the proposed speed is zero.
+     */
+    private Double speedDeviation;
+
+    /**
+     * The relative deviation of the fuel consumption from the predicted fuel consumption,
+     * |fuel - predicted| / predicted. Null if either value is missing or the prediction is zero.
+     */
+    private Double fuelDeviation;
+
     /**
      * Indicates if the metric is invalid.
      */
@@ -0,0 +1,62 @@
+package com.example.maritimemetrics.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the count, sum, minimum and maximum of one field of the valid metrics of a vessel
+ * within one time bucket. Rollups are maintained by the CSV import and written with plain SQL.
+ */
+@Entity
+@Table(name = "metric_rollups")
+@IdClass(MetricRollupId.class)
+@Data
+public class MetricRollup {
+
+    /**
+     * The code of the vessel.
+     */
+    @Id
+    private String vesselCode;
+
+    /**
+     * The size of the bucket.
+     */
+    @Id
+    @Enumerated(EnumType.STRING)
+    private RollupGranularity granularity;
+
+    /**
+     * The start of the bucket, inclusive.
+     */
+    @Id
+    private LocalDateTime bucketStart;
+
+    /**
+     * The name of the field, e.g. "power" or "speedDifference".
+     */
+    @Id
+    private String fieldName;
+
+    /**
+     * The number of values of the field in the bucket.
+     */
+    private long valueCount;
+
+    /**
+     * The sum of the values.
+     */
+    private double valueSum;
+
+    /**
+     * The smallest value.
+     */
+    private double valueMin;
+
+    /**
+     * The largest value.
+     */
+    private double valueMax;
+}
@@ -0,0 +1,18 @@
+package com.example.maritimemetrics.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The composite key of a {@link MetricRollup}.
+ */
+@Data
+public class MetricRollupId implements Serializable {
+
+    private String vesselCode;
+    private RollupGranularity granularity;
+    private LocalDateTime bucketStart;
+    private String fieldName;
+}
@@ -0,0 +1,30 @@
+package com.example.maritimemetrics.model;
+
+/**
+ * The bucket sizes of the metric rollups maintained at import.
+ */
+public enum RollupGranularity {
+
+    /**
+     * One rollup per vessel, field and hour.
+     */
+    HOUR(3600),
+
+    /**
+     * One rollup per vessel, field and day.
+     */
+    DAY(86400);
+
+    private final long seconds;
+
+    RollupGranularity(long seconds) {
+        this.seconds = seconds;
+    }
+
+    /**
+     * @return the length of a bucket in seconds
+     */
+    public long getSeconds() {
+        return seconds;
+    }
+}
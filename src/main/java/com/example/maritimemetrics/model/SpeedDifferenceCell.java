@@ -0,0 +1,66 @@
+package com.example.maritimemetrics.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the count, sum and maximum of the speed differences of the valid metrics of a vessel
+ * within one latitude/longitude grid cell on one day. Cells are maintained by the CSV import for
+ * the configured grid precisions and written with plain SQL.
+ * <p>
+ * A cell of precision {@code p} covers {@code 10^-p} degrees of latitude and longitude; its
+ * indices are the south-west corner multiplied by {@code 10^p}, rounded down.
+ */
+@Entity
+@Table(name = "speed_difference_cells")
+@IdClass(SpeedDifferenceCellId.class)
+@Data
+public class SpeedDifferenceCell {
+
+    /**
+     * The code of the vessel.
+     */
+    @Id
+    private String vesselCode;
+
+    /**
+     * The number of decimal places of the grid, so a cell spans 10^-gridPrecision degrees.
+     */
+    @Id
+    private int gridPrecision;
+
+    /**
+     * The day of the metrics.
+     */
+    @Id
+    private LocalDate cellDay;
+
+    /**
+     * The latitude index of the cell: its southern edge times 10^gridPrecision.
+     */
+    @Id
+    private int cellLat;
+
+    /**
+     * The longitude index of the cell: its western edge times 10^gridPrecision.
+     */
+    @Id
+    private int cellLon;
+
+    /**
+     * The number of speed differences in the cell.
+     */
+    private long valueCount;
+
+    /**
+     * The sum of the speed differences.
+     */
+    private double valueSum;
+
+    /**
+     * The largest speed difference.
+     */
+    private double valueMax;
+}
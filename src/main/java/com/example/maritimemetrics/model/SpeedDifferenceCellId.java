@@ -0,0 +1,19 @@
+package com.example.maritimemetrics.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * The composite key of a {@link SpeedDifferenceCell}.
+ */
+@Data
+public class SpeedDifferenceCellId implements Serializable {
+
+    private String vesselCode;
+    private int gridPrecision;
+    private LocalDate cellDay;
+    private int cellLat;
+    private int cellLon;
+}
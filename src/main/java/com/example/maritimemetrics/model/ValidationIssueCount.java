@@ -0,0 +1,14 @@
+package com.example.maritimemetrics.model;
+
+import java.util.List;
+
+/**
+ * Summarises how often one validation rule was violated for one field during an import.
+ *
+ * @param field       the CSV field the rule applies to
+ * @param rule        the violated rule
+ * @param count       the number of rows violating the rule
+ * @param sampleLines the line numbers of the first violating rows
+ */
+public record ValidationIssueCount(String field, String rule, long count, List<Long> sampleLines) {
+}
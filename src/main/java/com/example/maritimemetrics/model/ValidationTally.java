@@ -0,0 +1,101 @@
+package com.example.maritimemetrics.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts validation issues per field and rule, keeping the line numbers of the first offending rows.
+ * <p>
+ * Each parsed block gets its own tally, filled by a single worker thread without locking. The
+ * block tallies are then merged into the tally of the import in input order, so the sample lines
+ * are always the first offending lines of the file. Merging and reading are synchronized, which
+ * lets the running tally be read while the import is still in progress.
+ */
+public final class ValidationTally {
+
+    /**
+     * The number of offending line numbers kept per field and rule.
+     */
+    public static final int SAMPLE_LINES = 5;
+
+    private final Map<String, Map<String, Count>> counts = new LinkedHashMap<>();
+    private long lineNumber;
+
+    /**
+     * Sets the line number attributed to the issues recorded next.
+     *
+     * @param lineNumber the line number of the row being validated
+     */
+    public void startRow(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Records a violation of a rule by the current row.
+     *
+     * @param field the field violating the rule
+     * @param rule  the violated rule
+     */
+    public void record(String field, String rule) {
+        counts.computeIfAbsent(field, key -> new LinkedHashMap<>())
+                .computeIfAbsent(rule, key -> new Count())
+                .add(lineNumber);
+    }
+
+    /**
+     * Adds the issues of a tally covering later lines of the input to this one.
+     *
+     * @param other the tally to merge
+     */
+    public synchronized void merge(ValidationTally other) {
+        other.counts.forEach((field, rules) -> rules.forEach((rule, count) -> {
+            Count merged = counts.computeIfAbsent(field, key -> new LinkedHashMap<>())
+                    .computeIfAbsent(rule, key -> new Count());
+            merged.count += count.count - count.sampleCount;
+            for (int i = 0; i < count.sampleCount; i++) {
+                merged.add(count.sampleLines[i]);
+            }
+        }));
+    }
+
+    /**
+     * Returns the recorded issues, grouped by field in the order they were first seen.
+     *
+     * @return the issue counts
+     */
+    public synchronized List<ValidationIssueCount> getIssues() {
+        List<ValidationIssueCount> issues = new ArrayList<>();
+        counts.forEach((field, rules) -> rules.forEach((rule, count) -> {
+            List<Long> sampleLines = new ArrayList<>(count.sampleCount);
+            for (int i = 0; i < count.sampleCount; i++) {
+                sampleLines.add(count.sampleLines[i]);
+            }
+            issues.add(new ValidationIssueCount(field, rule, count.count, sampleLines));
+        }));
+        return issues;
+    }
+
+    /**
+     * The number of violations of one rule and the first offending lines.
+     */
+    private static final class Count {
+
+        private final long[] sampleLines = new long[SAMPLE_LINES];
+        private int sampleCount;
+        private long count;
+
+        /**
+         * Adds a violation, keeping its line as a sample while there is room.
+         *
+         * @param line the offending line
+         */
+        private void add(long line) {
+            count++;
+            if (sampleCount < SAMPLE_LINES) {
+                sampleLines[sampleCount++] = line;
+            }
+        }
+    }
+}
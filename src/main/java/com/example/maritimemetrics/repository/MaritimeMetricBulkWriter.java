@@ -0,0 +1,109 @@
+package com.example.maritimemetrics.repository;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts maritime metrics with batched JDBC statements, bypassing the JPA persistence context.
+ * <p>
+ * Ids are drawn from {@link MaritimeMetric#ID_SEQUENCE} in blocks of
+ * {@link MaritimeMetric#ID_ALLOCATION_SIZE} using the same pooled-lo scheme as Hibernate, so rows
+ * inserted here and rows saved through {@link MaritimeMetricRepository} never share an id. The
+ * inserted metrics are not managed entities; their ids are set so callers can refer to them.
+ * Runs in the caller's transaction.
+ */
+@Repository
+public class MaritimeMetricBulkWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO maritime_metrics (id, vessel_code, datetime, latitude, " +
+            "longitude, power, fuel_consumption, actual_speed_overground, proposed_speed_overground, " +
+            "predicted_fuel_consumption, speed_difference, speed_deviation, fuel_deviation, is_invalid, is_below_zero, " +
+            "is_missing, is_outlier) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_SQL = "SELECT NEXT VALUE FOR " + MaritimeMetric.ID_SEQUENCE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long nextId;
+    private long reservedIds;
+
+    /**
+     * Inserts metrics in a single JDBC batch.
+     *
+     * @param metrics the metrics to insert; their ids must be null and are assigned here
+     */
+    public void insert(List<MaritimeMetric> metrics) {
+        if (metrics.isEmpty()) {
+            return;
+        }
+        for (MaritimeMetric metric : metrics) {
+            metric.setId(allocateId());
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, metrics, metrics.size(), MaritimeMetricBulkWriter::bind);
+    }
+
+    /**
+     * Hands out the next id, reserving a new block from the sequence when the current one is used up.
+     *
+     * @return an unused id
+     */
+    private synchronized long allocateId() {
+        if (reservedIds == 0) {
+            nextId = jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+            reservedIds = MaritimeMetric.ID_ALLOCATION_SIZE;
+        }
+        reservedIds--;
+        return nextId++;
+    }
+
+    /**
+     * Binds the columns of a metric to the insert statement.
+     *
+     * @param statement the insert statement
+     * @param metric    the metric to insert
+     * @throws SQLException if a parameter cannot be set
+     */
+    private static void bind(PreparedStatement statement, MaritimeMetric metric) throws SQLException {
+        statement.setLong(1, metric.getId());
+        statement.setString(2, metric.getVesselCode());
+        statement.setTimestamp(3, metric.getDatetime() != null ? Timestamp.valueOf(metric.getDatetime()) : null);
+        setDouble(statement, 4, metric.getLatitude());
+        setDouble(statement, 5, metric.getLongitude());
+        setDouble(statement, 6, metric.getPower());
+        setDouble(statement, 7, metric.getFuelConsumption());
+        setDouble(statement, 8, metric.getActualSpeedOverground());
+        setDouble(statement, 9, metric.getProposedSpeedOverground());
+        setDouble(statement, 10, metric.getPredictedFuelConsumption());
+        setDouble(statement, 11, metric.getSpeedDifference());
+        setDouble(statement, 12, metric.getSpeedDeviation());
+        setDouble(statement, 13, metric.getFuelDeviation());
+        statement.setBoolean(14, Boolean.TRUE.equals(metric.getIsInvalid()));
+        statement.setBoolean(15, Boolean.TRUE.equals(metric.getIsBelowZero()));
+        statement.setBoolean(16, Boolean.TRUE.equals(metric.getIsMissing()));
+        statement.setBoolean(17, Boolean.TRUE.equals(metric.getIsOutlier()));
+    }
+
+    /**
+     * Binds a nullable double parameter.
+     *
+     * @param statement the statement
+     * @param index     the parameter index
+     * @param value     the value, or null
+     * @throws SQLException if the parameter cannot be set
+     */
+    private static void setDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value != null) {
+            statement.setDouble(index, value);
+        } else {
+            statement.setNull(index, Types.DOUBLE);
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.maritimemetrics.repository;
 
 import com.example.maritimemetrics.dto.MetricSummaryDTO;
+import com.example.maritimemetrics.dto.ProblemCountsDTO;
 import com.example.maritimemetrics.dto.SpeedDifferenceDTO;
+import com.example.maritimemetrics.dto.VesselProblemCountsDTO;
 import com.example.maritimemetrics.model.MaritimeMetric;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for accessing and manipulating maritime metric data.
@@ -25,44 +33,154 @@ public interface MaritimeMetricRepository extends JpaRepository<MaritimeMetric,
     List<MaritimeMetric> findAllByVesselCode(String vesselCode);
 
     /**
-     * Finds all valid maritime metrics for a specific vessel code.
+     * Finds the maritime metrics of a vessel recorded at any of the given datetimes.
      *
      * @param vesselCode the code of the vessel
-     * @return a list of valid maritime metrics for the specified vessel
+     * @param datetimes  the datetimes to look up
+     * @return the maritime metrics of the vessel at those datetimes
      */
-    List<MaritimeMetric> findAllByVesselCodeAndIsInvalidFalse(String vesselCode);
+    List<MaritimeMetric> findAllByVesselCodeAndDatetimeIn(String vesselCode, Collection<LocalDateTime> datetimes);
 
     /**
-     * Finds all invalid maritime metrics for a specific vessel code.
+     * Condition matching the metrics in the list named by the {@code filter} parameter:
+     * "valid", "invalid", "missing", "belowzero" or "outlier".
+     */
+    String LIST_CONDITION = "((:filter = 'valid' AND m.isInvalid = false) " +
+            "OR (:filter = 'invalid' AND m.isInvalid = true) " +
+            "OR (:filter = 'missing' AND m.isMissing = true) " +
+            "OR (:filter = 'belowzero' AND m.isBelowZero = true) " +
+            "OR (:filter = 'outlier' AND m.isOutlier = true))";
+
+    /**
+     * Finds the maritime metrics following an id, in id order. Only the first page of the pageable is read,
+     * without a count query, so the cost of a page does not depend on how many pages precede it.
+     *
+     * @param afterId  the id after which to start, 0 for the first page
+     * @param pageable the number of metrics to return
+     * @return the metrics with a larger id, ordered by id
+     */
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.id > :afterId ORDER BY m.id")
+    List<MaritimeMetric> findPageAfterId(long afterId, Pageable pageable);
+
+    /**
+     * Finds the maritime metrics of a vessel in a list following an id, in id order.
      *
      * @param vesselCode the code of the vessel
-     * @return a list of invalid maritime metrics for the specified vessel
+     * @param filter     the list: "valid", "invalid", "missing", "belowzero" or "outlier"
+     * @param afterId    the id after which to start, 0 for the first page
+     * @param pageable   the number of metrics to return
+     * @return the metrics of the vessel in the list with a larger id, ordered by id
+     */
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.id > :afterId AND " +
+            LIST_CONDITION + " ORDER BY m.id")
+    List<MaritimeMetric> findPageByVesselCodeAfterId(String vesselCode, String filter, long afterId, Pageable pageable);
+
+    /**
+     * The number of rows the JDBC driver fetches at a time for the streaming queries.
      */
-    List<MaritimeMetric> findAllByVesselCodeAndIsInvalidTrue(String vesselCode);
+    String STREAM_FETCH_SIZE = "1000";
 
     /**
-     * Finds all missing maritime metrics for a specific vessel code.
+     * Streams all maritime metrics in id order, fetching {@value #STREAM_FETCH_SIZE} rows at a time.
+     * Must be consumed within a transaction and closed; consumed metrics should be detached.
+     *
+     * @return the metrics, ordered by id
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT m FROM MaritimeMetric m ORDER BY m.id")
+    Stream<MaritimeMetric> streamAll();
+
+    /**
+     * Streams the maritime metrics of a vessel in a list in id order, fetching {@value #STREAM_FETCH_SIZE}
+     * rows at a time. Must be consumed within a transaction and closed; consumed metrics should be detached.
      *
      * @param vesselCode the code of the vessel
-     * @return a list of missing maritime metrics for the specified vessel
+     * @param filter     the list: "valid", "invalid", "missing", "belowzero" or "outlier"
+     * @return the metrics of the vessel in the list, ordered by id
      */
-    List<MaritimeMetric> findAllByVesselCodeAndIsMissingTrue(String vesselCode);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND " + LIST_CONDITION + " ORDER BY m.id")
+    Stream<MaritimeMetric> streamByVesselCode(String vesselCode, String filter);
 
     /**
-     * Finds all below-zero maritime metrics for a specific vessel code.
+     * Checks whether any maritime metrics exist for a specific vessel code.
      *
      * @param vesselCode the code of the vessel
-     * @return a list of below-zero maritime metrics for the specified vessel
+     * @return true if the vessel has at least one metric
      */
-    List<MaritimeMetric> findAllByVesselCodeAndIsBelowZeroTrue(String vesselCode);
+    boolean existsByVesselCode(String vesselCode);
 
     /**
-     * Finds all outlier maritime metrics for a specific vessel code.
+     * Counts the rows of a vessel per problem type in a single pass over its metrics.
      *
      * @param vesselCode the code of the vessel
-     * @return a list of outlier maritime metrics for the specified vessel
+     * @return the counts per problem type; all zero if the vessel has no metrics
+     */
+    @Query("SELECT new com.example.maritimemetrics.dto.ProblemCountsDTO(COUNT(m), " +
+            "SUM(CASE WHEN m.isInvalid = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isMissing = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isBelowZero = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isOutlier = true THEN 1 ELSE 0 END)) " +
+            "FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode")
+    ProblemCountsDTO countProblemsByVesselCode(String vesselCode);
+
+    /**
+     * Counts the rows of every vessel per problem type in a single grouped pass over all metrics.
+     *
+     * @return the counts per problem type of each vessel with metrics
      */
-    List<MaritimeMetric> findAllByVesselCodeAndIsOutlierTrue(String vesselCode);
+    @Query("SELECT new com.example.maritimemetrics.dto.VesselProblemCountsDTO(m.vesselCode, COUNT(m), " +
+            "SUM(CASE WHEN m.isInvalid = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isMissing = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isBelowZero = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN m.isOutlier = true THEN 1 ELSE 0 END)) " +
+            "FROM MaritimeMetric m GROUP BY m.vesselCode")
+    List<VesselProblemCountsDTO> countProblemsPerVessel();
+
+    /**
+     * Condition matching the metrics with the problem named by the {@code problem} parameter:
+     * "missing", "belowzero" or "outlier".
+     */
+    String PROBLEM_CONDITION = "((:problem = 'missing' AND m.isMissing = true) " +
+            "OR (:problem = 'belowzero' AND m.isBelowZero = true) " +
+            "OR (:problem = 'outlier' AND m.isOutlier = true))";
+
+    /**
+     * Streams the id and datetime of the metrics of a vessel with a problem, in datetime order.
+     * Metrics without a datetime are left out. Must be consumed within a transaction and closed.
+     *
+     * @param vesselCode the code of the vessel
+     * @param problem    the problem type: "missing", "belowzero" or "outlier"
+     * @return pairs of id and datetime, ordered by datetime and id
+     */
+    @Query("SELECT m.id, m.datetime FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.datetime IS NOT NULL AND " +
+            PROBLEM_CONDITION + " ORDER BY m.datetime, m.id")
+    Stream<Object[]> streamProblemTimelineByVesselCode(String vesselCode, String problem);
+
+    /**
+     * Finds the metrics of a vessel with a problem, in datetime order. Metrics without a datetime are left out.
+     *
+     * @param vesselCode the code of the vessel
+     * @param problem    the problem type: "missing", "belowzero" or "outlier"
+     * @return the metrics with the problem, ordered by datetime and id
+     */
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.datetime IS NOT NULL AND " +
+            PROBLEM_CONDITION + " ORDER BY m.datetime, m.id")
+    List<MaritimeMetric> findProblemWaypointsByVesselCode(String vesselCode, String problem);
+
+    /**
+     * Finds the metrics of a vessel with a problem within a time range, in datetime order.
+     *
+     * @param vesselCode the code of the vessel
+     * @param problem    the problem type: "missing", "belowzero" or "outlier"
+     * @param start      the start of the range, inclusive
+     * @param end        the end of the range, inclusive
+     * @return the metrics with the problem in the range, ordered by datetime and id
+     */
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.datetime BETWEEN :start AND :end AND " +
+            PROBLEM_CONDITION + " ORDER BY m.datetime, m.id")
+    List<MaritimeMetric> findProblemWaypointsByVesselCodeAndDatetimeBetween(String vesselCode, String problem,
+                                                                           LocalDateTime start, LocalDateTime end);
 
     /**
      * Retrieves all unique vessel codes from the maritime metrics data.
@@ -82,6 +200,62 @@ public interface MaritimeMetricRepository extends JpaRepository<MaritimeMetric,
             "FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.isInvalid = false AND m.speedDifference IS NOT NULL")
     List<SpeedDifferenceDTO> findSpeedDifferencesByVesselCode(String vesselCode);
 
+    /**
+     * Streams the speed differences of a vessel, like {@link #findSpeedDifferencesByVesselCode(String)},
+     * in id order, fetching {@value #STREAM_FETCH_SIZE} rows at a time. Must be consumed within a
+     * transaction and closed.
+     *
+     * @param vesselCode the code of the vessel
+     * @return the speed differences of the valid metrics of the vessel, ordered by id
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.example.maritimemetrics.dto.SpeedDifferenceDTO(m.latitude, m.longitude, m.speedDifference) " +
+            "FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.isInvalid = false AND m.speedDifference IS NOT NULL " +
+            "ORDER BY m.id")
+    Stream<SpeedDifferenceDTO> streamSpeedDifferencesByVesselCode(String vesselCode);
+
+    /**
+     * Finds the absolute differences between actual and proposed speed of a vessel, without loading its metrics.
+     *
+     * @param vesselCode the code of the vessel
+     * @return the absolute speed differences of the metrics with both speeds
+     */
+    @Query("SELECT ABS(m.actualSpeedOverground - m.proposedSpeedOverground) FROM MaritimeMetric m " +
+            "WHERE m.vesselCode = :vesselCode AND m.actualSpeedOverground IS NOT NULL AND m.proposedSpeedOverground IS NOT NULL")
+    List<Double> findAbsoluteSpeedDifferencesByVesselCode(String vesselCode);
+
+    /**
+     * Finds the absolute differences between actual and proposed speed of every vessel in a single scan.
+     *
+     * @return pairs of vessel code and absolute speed difference, for the metrics with both speeds
+     */
+    @Query("SELECT m.vesselCode, ABS(m.actualSpeedOverground - m.proposedSpeedOverground) FROM MaritimeMetric m " +
+            "WHERE m.actualSpeedOverground IS NOT NULL AND m.proposedSpeedOverground IS NOT NULL")
+    List<Object[]> findAbsoluteSpeedDifferences();
+
+    /**
+     * Finds the absolute differences between actual and proposed speed of the given vessels in a single scan.
+     *
+     * @param vesselCodes the codes of the vessels
+     * @return pairs of vessel code and absolute speed difference, for the metrics with both speeds
+     */
+    @Query("SELECT m.vesselCode, ABS(m.actualSpeedOverground - m.proposedSpeedOverground) FROM MaritimeMetric m " +
+            "WHERE m.vesselCode IN :vesselCodes AND m.actualSpeedOverground IS NOT NULL AND m.proposedSpeedOverground IS NOT NULL")
+    List<Object[]> findAbsoluteSpeedDifferencesByVesselCodeIn(Collection<String> vesselCodes);
+
+    /**
+     * Finds the absolute differences between actual and proposed speed of a vessel within a time range.
+     *
+     * @param vesselCode the code of the vessel
+     * @param start      the start of the range, inclusive
+     * @param end        the end of the range, exclusive
+     * @return the absolute speed differences of the metrics with both speeds in the range
+     */
+    @Query("SELECT ABS(m.actualSpeedOverground - m.proposedSpeedOverground) FROM MaritimeMetric m " +
+            "WHERE m.vesselCode = :vesselCode AND m.actualSpeedOverground IS NOT NULL AND m.proposedSpeedOverground IS NOT NULL " +
+            "AND m.datetime >= :start AND m.datetime < :end")
+    List<Double> findAbsoluteSpeedDifferencesByVesselCodeAndDatetimeRange(String vesselCode, LocalDateTime start, LocalDateTime end);
+
     /**
      * Finds metrics for a specific vessel code within a specified date range.
      *
@@ -101,8 +275,8 @@ public interface MaritimeMetricRepository extends JpaRepository<MaritimeMetric,
      * @param speedThreshold the threshold for identifying speed outliers
      * @return a list of maritime metrics that are considered speed outliers
      */
-    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.isInvalid = true AND " +
-            "ABS(m.actualSpeedOverground - m.proposedSpeedOverground) / m.proposedSpeedOverground > :speedThreshold")
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.speedDeviation > :speedThreshold " +
+            "AND m.isInvalid = true")
     List<MaritimeMetric> findSpeedOutliersByVesselCode(String vesselCode, double speedThreshold);
 
     /**
@@ -112,7 +286,45 @@ public interface MaritimeMetricRepository extends JpaRepository<MaritimeMetric,
      * @param fuelThreshold the threshold for identifying fuel consumption outliers
      * @return a list of maritime metrics that are considered fuel consumption outliers
      */
-    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.isInvalid = true AND " +
-            "ABS(m.fuelConsumption - m.predictedFuelConsumption) / m.predictedFuelConsumption > :fuelThreshold")
+    @Query("SELECT m FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.fuelDeviation > :fuelThreshold " +
+            "AND m.isInvalid = true")
     List<MaritimeMetric> findFuelOutliersByVesselCode(String vesselCode, double fuelThreshold);
+
+    /**
+     * Streams the id and relative speed deviation of the metrics of a vessel with a speed deviation.
+     * Must be consumed within a transaction and closed.
+     *
+     * @param vesselCode the code of the vessel
+     * @return pairs of id and speed deviation
+     */
+    @Query("SELECT m.id, m.speedDeviation FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.speedDeviation IS NOT NULL")
+    Stream<Object[]> streamSpeedDeviationsByVesselCode(String vesselCode);
+
+    /**
+     * Streams the id and relative fuel deviation of the metrics of a vessel with a fuel deviation.
+     * Must be consumed within a transaction and closed.
+     *
+     * @param vesselCode the code of the vessel
+     * @return pairs of id and fuel deviation
+     */
+    @Query("SELECT m.id, m.fuelDeviation FROM MaritimeMetric m WHERE m.vesselCode = :vesselCode AND m.fuelDeviation IS NOT NULL")
+    Stream<Object[]> streamFuelDeviationsByVesselCode(String vesselCode);
+
+    /**
+     * Streams the id and relative speed deviation of all metrics with a speed deviation.
+     * Must be consumed within a transaction and closed.
+     *
+     * @return pairs of id and speed deviation
+     */
+    @Query("SELECT m.id, m.speedDeviation FROM MaritimeMetric m WHERE m.speedDeviation IS NOT NULL")
+    Stream<Object[]> streamSpeedDeviations();
+
+    /**
+     * Streams the id and relative fuel deviation of all metrics with a fuel deviation.
+     * Must be consumed within a transaction and closed.
+     *
+     * @return pairs of id and fuel deviation
+     */
+    @Query("SELECT m.id, m.fuelDeviation FROM MaritimeMetric m WHERE m.fuelDeviation IS NOT NULL")
+    Stream<Object[]> streamFuelDeviations();
 }
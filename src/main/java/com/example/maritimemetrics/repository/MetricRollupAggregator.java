@@ -0,0 +1,260 @@
+package com.example.maritimemetrics.repository;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.MetricRollup;
+import com.example.maritimemetrics.model.MetricRollupId;
+import com.example.maritimemetrics.model.RollupGranularity;
+import com.example.maritimemetrics.util.VesselDays;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Computes metric rollups from the stored metrics with grouped SQL queries and keeps the
+ * {@code metric_rollups} table up to date.
+ * <p>
+ * Buckets are aligned to multiples of their length since 1970-01-01T00:00, so hour and day
+ * buckets start on the hour and at midnight. Only valid metrics are rolled up, like the
+ * summary metrics they replace. Runs in the caller's transaction.
+ */
+@Repository
+public class MetricRollupAggregator {
+
+    /**
+     * The rolled up fields and their columns.
+     */
+    private static final String[][] FIELDS = {
+            {"power", "power"},
+            {"fuelConsumption", "fuel_consumption"},
+            {"actualSpeedOverground", "actual_speed_overground"},
+            {"proposedSpeedOverground", "proposed_speed_overground"},
+            {"predictedFuelConsumption", "predicted_fuel_consumption"},
+            {"speedDifference", "speed_difference"}
+    };
+    /**
+     * The getters of the rolled up fields, in the order of {@link #FIELDS}.
+     */
+    private static final List<Function<MaritimeMetric, Double>> GETTERS = List.of(
+            MaritimeMetric::getPower,
+            MaritimeMetric::getFuelConsumption,
+            MaritimeMetric::getActualSpeedOverground,
+            MaritimeMetric::getProposedSpeedOverground,
+            MaritimeMetric::getPredictedFuelConsumption,
+            MaritimeMetric::getSpeedDifference);
+    private static final String EPOCH = "TIMESTAMP '1970-01-01 00:00:00'";
+    private static final String INSERT_SQL = "INSERT INTO metric_rollups (vessel_code, granularity, bucket_start, " +
+            "field_name, value_count, value_sum, value_min, value_max) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Computes the rollups of the valid metrics of a vessel within a time range.
+     *
+     * @param vesselCode    the code of the vessel
+     * @param from          the start of the range, inclusive
+     * @param to            the end of the range, exclusive
+     * @param bucketSeconds the length of a bucket in seconds
+     * @return the rollups per bucket and field with values, ordered by bucket; their granularity is not set
+     */
+    public List<MetricRollup> aggregate(String vesselCode, LocalDateTime from, LocalDateTime to, long bucketSeconds) {
+        if (bucketSeconds <= 0) {
+            throw new IllegalArgumentException("Bucket length must be positive: " + bucketSeconds);
+        }
+        StringBuilder columns = new StringBuilder();
+        StringBuilder aggregates = new StringBuilder();
+        for (String[] field : FIELDS) {
+            columns.append(", ").append(field[1]);
+            aggregates.append(", COUNT(").append(field[1]).append("), SUM(").append(field[1]).append("), MIN(")
+                    .append(field[1]).append("), MAX(").append(field[1]).append(')');
+        }
+        // bucketSeconds is a number, so it is safe to inline
+        String sql = "SELECT bucket_start" + aggregates + " FROM (SELECT DATEADD(SECOND, DATEDIFF(SECOND, " + EPOCH +
+                ", datetime) / " + bucketSeconds + " * " + bucketSeconds + ", " + EPOCH + ") AS bucket_start" + columns +
+                " FROM maritime_metrics WHERE vessel_code = ? AND is_invalid = FALSE AND datetime >= ? AND datetime < ?) b" +
+                " GROUP BY bucket_start ORDER BY bucket_start";
+
+        List<MetricRollup> rollups = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            LocalDateTime bucketStart = rs.getTimestamp(1).toLocalDateTime();
+            for (int i = 0; i < FIELDS.length; i++) {
+                int column = 2 + i * 4;
+                long count = rs.getLong(column);
+                if (count > 0) {
+                    MetricRollup rollup = new MetricRollup();
+                    rollup.setVesselCode(vesselCode);
+                    rollup.setBucketStart(bucketStart);
+                    rollup.setFieldName(FIELDS[i][0]);
+                    rollup.setValueCount(count);
+                    rollup.setValueSum(rs.getDouble(column + 1));
+                    rollup.setValueMin(rs.getDouble(column + 2));
+                    rollup.setValueMax(rs.getDouble(column + 3));
+                    rollups.add(rollup);
+                }
+            }
+        }, vesselCode, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return rollups;
+    }
+
+    /**
+     * Brings the hour and day rollups up to date after metrics were written. The days on which
+     * stored rows were updated or deleted are recomputed from the stored metrics, with a single
+     * query per run of consecutive days of a vessel. Inserted metrics on other days are merged into
+     * the existing hour and day rollups: their counts and sums are added and their minimums and
+     * maximums combined, without reading the stored metrics.
+     *
+     * @param inserts     metrics that were inserted
+     * @param changedDays the days of every vessel on which stored rows were updated or deleted
+     */
+    public void refresh(List<MaritimeMetric> inserts, VesselDays changedDays) {
+        changedDays.forEachRun((vesselCode, from, to) -> refreshRange(vesselCode, from.atStartOfDay(), to.atStartOfDay()));
+
+        Map<MetricRollupId, MetricRollup> merged = new LinkedHashMap<>();
+        for (MaritimeMetric metric : inserts) {
+            if (metric.getVesselCode() == null || metric.getDatetime() == null
+                    || !Boolean.FALSE.equals(metric.getIsInvalid())
+                    || changedDays.contains(metric.getVesselCode(), metric.getDatetime().toLocalDate())) {
+                continue;
+            }
+            for (int i = 0; i < FIELDS.length; i++) {
+                Double value = GETTERS.get(i).apply(metric);
+                if (value != null) {
+                    add(merged, metric.getVesselCode(), RollupGranularity.HOUR,
+                            metric.getDatetime().truncatedTo(ChronoUnit.HOURS), FIELDS[i][0], value);
+                    add(merged, metric.getVesselCode(), RollupGranularity.DAY,
+                            metric.getDatetime().truncatedTo(ChronoUnit.DAYS), FIELDS[i][0], value);
+                }
+            }
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+        List<MetricRollup> rollups = new ArrayList<>(merged.values());
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE metric_rollups SET value_count = value_count + ?, " +
+                        "value_sum = value_sum + ?, value_min = LEAST(value_min, ?), value_max = GREATEST(value_max, ?) " +
+                        "WHERE vessel_code = ? AND granularity = ? AND bucket_start = ? AND field_name = ?",
+                rollups, rollups.size(), (statement, rollup) -> {
+                    statement.setLong(1, rollup.getValueCount());
+                    statement.setDouble(2, rollup.getValueSum());
+                    statement.setDouble(3, rollup.getValueMin());
+                    statement.setDouble(4, rollup.getValueMax());
+                    statement.setString(5, rollup.getVesselCode());
+                    statement.setString(6, rollup.getGranularity().name());
+                    statement.setTimestamp(7, Timestamp.valueOf(rollup.getBucketStart()));
+                    statement.setString(8, rollup.getFieldName());
+                });
+        List<MetricRollup> missing = new ArrayList<>();
+        for (int i = 0; i < rollups.size(); i++) {
+            if (counts[0][i] == 0) {
+                missing.add(rollups.get(i));
+            }
+        }
+        insert(missing);
+    }
+
+    /**
+     * Deletes all rollups, when the stored metrics are replaced.
+     */
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM metric_rollups");
+    }
+
+    /**
+     * Recomputes the rollups of a vessel for whole days: the hours with one grouped query, the days from the hours.
+     *
+     * @param vesselCode the code of the vessel
+     * @param from       the first day, at midnight
+     * @param to         the day after the last day, at midnight
+     */
+    private void refreshRange(String vesselCode, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("DELETE FROM metric_rollups WHERE vessel_code = ? AND bucket_start >= ? AND bucket_start < ?",
+                vesselCode, Timestamp.valueOf(from), Timestamp.valueOf(to));
+
+        List<MetricRollup> rollups = aggregate(vesselCode, from, to, RollupGranularity.HOUR.getSeconds());
+        Map<String, MetricRollup> days = new LinkedHashMap<>();
+        for (MetricRollup hour : rollups) {
+            hour.setGranularity(RollupGranularity.HOUR);
+            LocalDateTime day = hour.getBucketStart().truncatedTo(ChronoUnit.DAYS);
+            MetricRollup rollup = days.get(day + hour.getFieldName());
+            if (rollup == null) {
+                rollup = new MetricRollup();
+                rollup.setVesselCode(vesselCode);
+                rollup.setGranularity(RollupGranularity.DAY);
+                rollup.setBucketStart(day);
+                rollup.setFieldName(hour.getFieldName());
+                rollup.setValueMin(Double.POSITIVE_INFINITY);
+                rollup.setValueMax(Double.NEGATIVE_INFINITY);
+                days.put(day + hour.getFieldName(), rollup);
+            }
+            rollup.setValueCount(rollup.getValueCount() + hour.getValueCount());
+            rollup.setValueSum(rollup.getValueSum() + hour.getValueSum());
+            rollup.setValueMin(Math.min(rollup.getValueMin(), hour.getValueMin()));
+            rollup.setValueMax(Math.max(rollup.getValueMax(), hour.getValueMax()));
+        }
+        rollups.addAll(days.values());
+        insert(rollups);
+    }
+
+    /**
+     * Adds a value to the rollup of a bucket and field, creating the rollup on its first value.
+     *
+     * @param rollups     the rollups by bucket and field
+     * @param vesselCode  the code of the vessel
+     * @param granularity the size of the bucket
+     * @param bucketStart the start of the bucket
+     * @param fieldName   the name of the field
+     * @param value       the value
+     */
+    private static void add(Map<MetricRollupId, MetricRollup> rollups, String vesselCode, RollupGranularity granularity,
+                            LocalDateTime bucketStart, String fieldName, double value) {
+        MetricRollupId id = new MetricRollupId();
+        id.setVesselCode(vesselCode);
+        id.setGranularity(granularity);
+        id.setBucketStart(bucketStart);
+        id.setFieldName(fieldName);
+        MetricRollup rollup = rollups.computeIfAbsent(id, key -> {
+            MetricRollup created = new MetricRollup();
+            created.setVesselCode(vesselCode);
+            created.setGranularity(granularity);
+            created.setBucketStart(bucketStart);
+            created.setFieldName(fieldName);
+            created.setValueMin(Double.POSITIVE_INFINITY);
+            created.setValueMax(Double.NEGATIVE_INFINITY);
+            return created;
+        });
+        rollup.setValueCount(rollup.getValueCount() + 1);
+        rollup.setValueSum(rollup.getValueSum() + value);
+        rollup.setValueMin(Math.min(rollup.getValueMin(), value));
+        rollup.setValueMax(Math.max(rollup.getValueMax(), value));
+    }
+
+    /**
+     * Inserts rollups with one JDBC batch.
+     *
+     * @param rollups the rollups, with their granularity set
+     */
+    private void insert(List<MetricRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rollups, rollups.size(), (statement, rollup) -> {
+            statement.setString(1, rollup.getVesselCode());
+            statement.setString(2, rollup.getGranularity().name());
+            statement.setTimestamp(3, Timestamp.valueOf(rollup.getBucketStart()));
+            statement.setString(4, rollup.getFieldName());
+            statement.setLong(5, rollup.getValueCount());
+            statement.setDouble(6, rollup.getValueSum());
+            statement.setDouble(7, rollup.getValueMin());
+            statement.setDouble(8, rollup.getValueMax());
+        });
+    }
+}
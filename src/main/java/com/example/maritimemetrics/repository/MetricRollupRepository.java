@@ -0,0 +1,31 @@
+package com.example.maritimemetrics.repository;
+
+import com.example.maritimemetrics.model.MetricRollup;
+import com.example.maritimemetrics.model.MetricRollupId;
+import com.example.maritimemetrics.model.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for reading the metric rollups maintained at import.
+ */
+@Repository
+public interface MetricRollupRepository extends JpaRepository<MetricRollup, MetricRollupId> {
+
+    /**
+     * Finds the rollups of a vessel with the given granularity whose buckets start within a time range.
+     *
+     * @param vesselCode  the code of the vessel
+     * @param granularity the size of the buckets
+     * @param from        the earliest bucket start, inclusive
+     * @param to          the latest bucket start, exclusive
+     * @return the rollups ordered by bucket start
+     */
+    @Query("SELECT r FROM MetricRollup r WHERE r.vesselCode = :vesselCode AND r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<MetricRollup> findRollups(String vesselCode, RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,259 @@
+package com.example.maritimemetrics.repository;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.SpeedDifferenceCell;
+import com.example.maritimemetrics.model.SpeedDifferenceCellId;
+import com.example.maritimemetrics.util.VesselDays;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the speed differences of the stored metrics into latitude/longitude grid cells with
+ * grouped SQL queries and keeps the {@code speed_difference_cells} table up to date.
+ * <p>
+ * A grid of precision {@code p} has cells of {@code 10^-p} degrees, indexed by their south-west
+ * corner times {@code 10^p}. Only valid metrics with a position and a speed difference are
+ * aggregated, like the speed differences endpoint. Runs in the caller's transaction.
+ */
+@Repository
+public class SpeedDifferenceGridAggregator {
+
+    private static final String VALID_SQL = "is_invalid = FALSE AND speed_difference IS NOT NULL " +
+            "AND latitude IS NOT NULL AND longitude IS NOT NULL";
+    private static final RowMapper<SpeedDifferenceCell> CELL_MAPPER = (rs, rowNum) -> {
+        SpeedDifferenceCell cell = new SpeedDifferenceCell();
+        cell.setCellLat(rs.getInt(1));
+        cell.setCellLon(rs.getInt(2));
+        cell.setValueCount(rs.getLong(3));
+        cell.setValueSum(rs.getDouble(4));
+        cell.setValueMax(rs.getDouble(5));
+        return cell;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Aggregates the stored metrics of a vessel or the fleet within a time range into grid cells.
+     *
+     * @param vesselCode the code of the vessel, or null for the whole fleet
+     * @param precision  the number of decimal places of the grid
+     * @param from       the start of the range, inclusive, or null for no lower bound
+     * @param to         the end of the range, exclusive, or null for no upper bound
+     * @return the cells with speed differences, ordered by latitude and longitude; their vessel and day are not set
+     */
+    public List<SpeedDifferenceCell> aggregate(String vesselCode, int precision, LocalDateTime from, LocalDateTime to) {
+        StringBuilder where = new StringBuilder(VALID_SQL);
+        List<Object> args = new ArrayList<>();
+        if (vesselCode != null) {
+            where.append(" AND vessel_code = ?");
+            args.add(vesselCode);
+        }
+        if (from != null) {
+            where.append(" AND datetime >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            where.append(" AND datetime < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        String sql = "SELECT cell_lat, cell_lon, COUNT(*), SUM(speed_difference), MAX(speed_difference) FROM (SELECT " +
+                cellColumns(precision) + ", speed_difference FROM maritime_metrics WHERE " + where + ") c " +
+                "GROUP BY cell_lat, cell_lon ORDER BY cell_lat, cell_lon";
+        return withPrecision(jdbcTemplate.query(sql, CELL_MAPPER, args.toArray()), precision);
+    }
+
+    /**
+     * Adds up the maintained cells of a vessel or the fleet over whole days.
+     *
+     * @param vesselCode the code of the vessel, or null for the whole fleet
+     * @param precision  the number of decimal places of the grid, one of the maintained precisions
+     * @param from       the first day, or null for no lower bound
+     * @param to         the day after the last day, or null for no upper bound
+     * @return the cells with speed differences, ordered by latitude and longitude; their vessel and day are not set
+     */
+    public List<SpeedDifferenceCell> findCells(String vesselCode, int precision, LocalDate from, LocalDate to) {
+        StringBuilder where = new StringBuilder("grid_precision = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(precision);
+        if (vesselCode != null) {
+            where.append(" AND vessel_code = ?");
+            args.add(vesselCode);
+        }
+        if (from != null) {
+            where.append(" AND cell_day >= ?");
+            args.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            where.append(" AND cell_day < ?");
+            args.add(Date.valueOf(to));
+        }
+        String sql = "SELECT cell_lat, cell_lon, SUM(value_count), SUM(value_sum), MAX(value_max) " +
+                "FROM speed_difference_cells WHERE " + where + " GROUP BY cell_lat, cell_lon ORDER BY cell_lat, cell_lon";
+        return withPrecision(jdbcTemplate.query(sql, CELL_MAPPER, args.toArray()), precision);
+    }
+
+    /**
+     * Brings the cells of the given precisions up to date after metrics were written. The days on
+     * which stored rows were updated or deleted are recomputed from the stored metrics, with a single
+     * query per precision and run of consecutive days of a vessel. Inserted metrics on other days are
+     * merged into the existing cells: their counts and sums are added and their maximums combined,
+     * without reading the stored metrics.
+     *
+     * @param inserts     metrics that were inserted
+     * @param changedDays the days of every vessel on which stored rows were updated or deleted
+     * @param precisions  the precisions of the maintained grids
+     */
+    public void refresh(List<MaritimeMetric> inserts, VesselDays changedDays, Collection<Integer> precisions) {
+        if (precisions.isEmpty()) {
+            return;
+        }
+        changedDays.forEachRun((vesselCode, from, to) -> refreshRange(vesselCode, from, to, precisions));
+
+        Map<SpeedDifferenceCellId, SpeedDifferenceCell> merged = new LinkedHashMap<>();
+        for (MaritimeMetric metric : inserts) {
+            if (metric.getVesselCode() == null || metric.getDatetime() == null
+                    || !Boolean.FALSE.equals(metric.getIsInvalid()) || metric.getSpeedDifference() == null
+                    || metric.getLatitude() == null || metric.getLongitude() == null
+                    || changedDays.contains(metric.getVesselCode(), metric.getDatetime().toLocalDate())) {
+                continue;
+            }
+            for (int precision : precisions) {
+                add(merged, metric, precision);
+            }
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+        List<SpeedDifferenceCell> cells = new ArrayList<>(merged.values());
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE speed_difference_cells SET value_count = value_count + ?, " +
+                        "value_sum = value_sum + ?, value_max = GREATEST(value_max, ?) WHERE vessel_code = ? " +
+                        "AND grid_precision = ? AND cell_day = ? AND cell_lat = ? AND cell_lon = ?",
+                cells, cells.size(), (statement, cell) -> {
+                    statement.setLong(1, cell.getValueCount());
+                    statement.setDouble(2, cell.getValueSum());
+                    statement.setDouble(3, cell.getValueMax());
+                    statement.setString(4, cell.getVesselCode());
+                    statement.setInt(5, cell.getGridPrecision());
+                    statement.setDate(6, Date.valueOf(cell.getCellDay()));
+                    statement.setInt(7, cell.getCellLat());
+                    statement.setInt(8, cell.getCellLon());
+                });
+        List<SpeedDifferenceCell> missing = new ArrayList<>();
+        for (int i = 0; i < cells.size(); i++) {
+            if (counts[0][i] == 0) {
+                missing.add(cells.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO speed_difference_cells (vessel_code, grid_precision, cell_day, cell_lat, " +
+                        "cell_lon, value_count, value_sum, value_max) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                missing, missing.size(), (statement, cell) -> {
+                    statement.setString(1, cell.getVesselCode());
+                    statement.setInt(2, cell.getGridPrecision());
+                    statement.setDate(3, Date.valueOf(cell.getCellDay()));
+                    statement.setInt(4, cell.getCellLat());
+                    statement.setInt(5, cell.getCellLon());
+                    statement.setLong(6, cell.getValueCount());
+                    statement.setDouble(7, cell.getValueSum());
+                    statement.setDouble(8, cell.getValueMax());
+                });
+    }
+
+    /**
+     * Deletes all cells, when the stored metrics are replaced.
+     */
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM speed_difference_cells");
+    }
+
+    /**
+     * Recomputes the cells of a vessel for whole days, with one grouped insert per precision.
+     *
+     * @param vesselCode the code of the vessel
+     * @param from       the first day
+     * @param to         the day after the last day
+     * @param precisions the precisions of the maintained grids
+     */
+    private void refreshRange(String vesselCode, LocalDate from, LocalDate to, Collection<Integer> precisions) {
+        jdbcTemplate.update("DELETE FROM speed_difference_cells WHERE vessel_code = ? AND cell_day >= ? AND cell_day < ?",
+                vesselCode, Date.valueOf(from), Date.valueOf(to));
+        for (int precision : precisions) {
+            // The precision is a number, so it is safe to inline
+            jdbcTemplate.update("INSERT INTO speed_difference_cells (vessel_code, grid_precision, cell_day, cell_lat, " +
+                            "cell_lon, value_count, value_sum, value_max) SELECT vessel_code, " + precision + ", cell_day, " +
+                            "cell_lat, cell_lon, COUNT(*), SUM(speed_difference), MAX(speed_difference) FROM (SELECT " +
+                            "vessel_code, CAST(datetime AS DATE) AS cell_day, " + cellColumns(precision) + ", speed_difference " +
+                            "FROM maritime_metrics WHERE vessel_code = ? AND datetime >= ? AND datetime < ? AND " + VALID_SQL +
+                            ") c GROUP BY vessel_code, cell_day, cell_lat, cell_lon",
+                    vesselCode, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        }
+    }
+
+    /**
+     * Adds the speed difference of a metric to its cell of a grid, creating the cell on its first value.
+     * The cell indices are computed like {@link #cellColumns(int)} does in SQL.
+     *
+     * @param cells     the cells by vessel, precision, day and indices
+     * @param metric    a valid metric with a position and a speed difference
+     * @param precision the number of decimal places of the grid
+     */
+    private static void add(Map<SpeedDifferenceCellId, SpeedDifferenceCell> cells, MaritimeMetric metric, int precision) {
+        long scale = Math.round(Math.pow(10, precision));
+        SpeedDifferenceCellId id = new SpeedDifferenceCellId();
+        id.setVesselCode(metric.getVesselCode());
+        id.setGridPrecision(precision);
+        id.setCellDay(metric.getDatetime().toLocalDate());
+        id.setCellLat((int) Math.floor(metric.getLatitude() * scale));
+        id.setCellLon((int) Math.floor(metric.getLongitude() * scale));
+        SpeedDifferenceCell cell = cells.computeIfAbsent(id, key -> {
+            SpeedDifferenceCell created = new SpeedDifferenceCell();
+            created.setVesselCode(key.getVesselCode());
+            created.setGridPrecision(precision);
+            created.setCellDay(key.getCellDay());
+            created.setCellLat(key.getCellLat());
+            created.setCellLon(key.getCellLon());
+            created.setValueMax(Double.NEGATIVE_INFINITY);
+            return created;
+        });
+        cell.setValueCount(cell.getValueCount() + 1);
+        cell.setValueSum(cell.getValueSum() + metric.getSpeedDifference());
+        cell.setValueMax(Math.max(cell.getValueMax(), metric.getSpeedDifference()));
+    }
+
+    /**
+     * @param precision the number of decimal places of the grid
+     * @return the select list of the cell indices of a metric, named cell_lat and cell_lon
+     */
+    private static String cellColumns(int precision) {
+        long scale = Math.round(Math.pow(10, precision));
+        return "CAST(FLOOR(latitude * " + scale + ") AS INT) AS cell_lat, " +
+                "CAST(FLOOR(longitude * " + scale + ") AS INT) AS cell_lon";
+    }
+
+    /**
+     * @param cells     cells read from a query
+     * @param precision the precision of their grid
+     * @return the cells, with the precision set
+     */
+    private static List<SpeedDifferenceCell> withPrecision(List<SpeedDifferenceCell> cells, int precision) {
+        for (SpeedDifferenceCell cell : cells) {
+            cell.setGridPrecision(precision);
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.maritimemetrics.repository;
+
+import com.example.maritimemetrics.util.VesselSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads stored metrics straight from JDBC result sets into {@link VesselSeries}, without
+ * creating entities or boxing values.
+ * <p>
+ * Rows are read in series order, one vessel after the other, and each vessel's series is handed
+ * to the consumer as soon as its last row has been read. Rows without a vessel code are skipped.
+ */
+@Repository
+public class VesselSeriesLoader {
+
+    /**
+     * The columns read for every {@link VesselSeries.Column}, in the same order.
+     */
+    private static final String[] VALUE_COLUMNS = {"latitude", "longitude", "power", "fuel_consumption",
+            "actual_speed_overground", "proposed_speed_overground", "predicted_fuel_consumption", "speed_difference",
+            "speed_deviation", "fuel_deviation"};
+    private static final String SELECT_SQL = "SELECT vessel_code, id, datetime, " + String.join(", ", VALUE_COLUMNS) +
+            ", is_invalid, is_below_zero, is_missing, is_outlier FROM maritime_metrics WHERE vessel_code IS NOT NULL";
+    private static final String ORDER_SQL = " ORDER BY vessel_code, datetime NULLS LAST, id";
+    private static final int FETCH_SIZE = 10_000;
+    private static final int VESSELS_PER_QUERY = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Loads the series of every vessel.
+     *
+     * @param consumer receives the series of each vessel with metrics
+     */
+    public void loadAll(Consumer<VesselSeries> consumer) {
+        query(SELECT_SQL + ORDER_SQL, consumer);
+    }
+
+    /**
+     * Loads the series of some vessels, querying up to 500 vessels at a time.
+     *
+     * @param vesselCodes the codes of the vessels
+     * @param consumer    receives the series of each of the vessels that has metrics
+     */
+    public void load(Collection<String> vesselCodes, Consumer<VesselSeries> consumer) {
+        List<String> codes = new ArrayList<>(vesselCodes);
+        for (int from = 0; from < codes.size(); from += VESSELS_PER_QUERY) {
+            List<String> batch = codes.subList(from, Math.min(from + VESSELS_PER_QUERY, codes.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            query(SELECT_SQL + " AND vessel_code IN (" + placeholders + ")" + ORDER_SQL, consumer, batch.toArray());
+        }
+    }
+
+    /**
+     * Runs a series query and splits its rows into one series per vessel.
+     *
+     * @param sql      the query
+     * @param consumer receives the series of each vessel
+     * @param args     the query parameters
+     */
+    private void query(String sql, Consumer<VesselSeries> consumer, Object... args) {
+        VesselSeries.Builder[] current = new VesselSeries.Builder[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        }, rs -> {
+            String vesselCode = rs.getString(1);
+            if (current[0] == null || !current[0].vesselCode().equals(vesselCode)) {
+                if (current[0] != null) {
+                    consumer.accept(current[0].build());
+                }
+                current[0] = new VesselSeries.Builder(vesselCode);
+            }
+            addRow(current[0], rs);
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0].build());
+        }
+    }
+
+    /**
+     * Adds the current row of a result set to a series.
+     *
+     * @param builder the series of the row's vessel
+     * @param rs      the result set, positioned on the row
+     * @throws SQLException if a column cannot be read
+     */
+    private static void addRow(VesselSeries.Builder builder, ResultSet rs) throws SQLException {
+        int column = 4 + VALUE_COLUMNS.length;
+        int flags = (rs.getBoolean(column) ? VesselSeries.INVALID : 0)
+                | (rs.getBoolean(column + 1) ? VesselSeries.BELOW_ZERO : 0)
+                | (rs.getBoolean(column + 2) ? VesselSeries.MISSING : 0)
+                | (rs.getBoolean(column + 3) ? VesselSeries.OUTLIER : 0);
+        Timestamp datetime = rs.getTimestamp(3);
+        builder.add(rs.getLong(2), datetime != null ? datetime.toLocalDateTime() : null, flags);
+        VesselSeries.Column[] columns = VesselSeries.Column.columns();
+        for (int i = 0; i < columns.length; i++) {
+            double value = rs.getDouble(4 + i);
+            if (!rs.wasNull()) {
+                builder.set(columns[i], value);
+            }
+        }
+    }
+}
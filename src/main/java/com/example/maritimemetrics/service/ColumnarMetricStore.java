@@ -0,0 +1,142 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.dto.ColumnStoreStatsDTO;
+import com.example.maritimemetrics.repository.VesselSeriesLoader;
+import com.example.maritimemetrics.util.VesselSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service class holding the metrics of every vessel in memory as a {@link VesselSeries} of
+ * primitive columns, so statistics can be computed without loading entities.
+ * <p>
+ * The store is loaded when the application starts and the series of the vessels an import
+ * touched are reloaded when the import ends, so queries see the data of the last finished
+ * import. An import replacing all data keeps the old series in place while it runs and then
+ * swaps in a newly loaded map of every vessel at once. Each series is replaced as a whole and
+ * never modified, so readers need no locking.
+ */
+@Service
+public class ColumnarMetricStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ColumnarMetricStore.class.getName());
+
+    @Autowired
+    private VesselSeriesLoader vesselSeriesLoader;
+
+    @Value("${maritime.analytics.columnar.enabled:true}")
+    private boolean enabled;
+
+    private volatile Map<String, VesselSeries> seriesByVessel = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastLoadedAt;
+    private volatile long lastLoadMillis;
+
+    /**
+     * @return true if the store is maintained and statistics are served from it
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the store once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Reloads the series of every vessel into a new map, which then replaces the current one at
+     * once. Queries keep seeing the previous series until the load is complete.
+     */
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, VesselSeries> loaded = new ConcurrentHashMap<>();
+        vesselSeriesLoader.loadAll(series -> loaded.put(series.vesselCode(), series));
+        seriesByVessel = loaded;
+        recordLoad(startTime, "Loaded " + loaded.size() + " vessels");
+    }
+
+    /**
+     * Reloads the series of some vessels, dropping those that no longer have metrics.
+     *
+     * @param vesselCodes the codes of the vessels whose metrics changed
+     */
+    public synchronized void refresh(Collection<String> vesselCodes) {
+        if (!enabled || vesselCodes.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Set<String> missing = new HashSet<>(vesselCodes);
+        vesselSeriesLoader.load(vesselCodes, series -> {
+            seriesByVessel.put(series.vesselCode(), series);
+            missing.remove(series.vesselCode());
+        });
+        missing.forEach(seriesByVessel::remove);
+        recordLoad(startTime, "Refreshed " + vesselCodes.size() + " vessels");
+    }
+
+    /**
+     * @param vesselCode the code of a vessel
+     * @return the series of the vessel, or null if it has no metrics
+     */
+    public VesselSeries get(String vesselCode) {
+        return seriesByVessel.get(vesselCode);
+    }
+
+    /**
+     * @return a snapshot of the series of all vessels
+     */
+    public List<VesselSeries> all() {
+        return List.copyOf(seriesByVessel.values());
+    }
+
+    /**
+     * @return the number of vessels and rows held and their estimated heap use
+     */
+    public ColumnStoreStatsDTO stats() {
+        int vessels = 0;
+        long rows = 0;
+        long bytes = 0;
+        for (VesselSeries series : seriesByVessel.values()) {
+            vessels++;
+            rows += series.size();
+            bytes += series.estimatedBytes();
+        }
+        return new ColumnStoreStatsDTO(enabled, vessels, rows, bytes, lastLoadedAt, lastLoadMillis);
+    }
+
+    /**
+     * Records the time of a load and logs it with the resulting size of the store.
+     *
+     * @param startTime the start of the load in milliseconds
+     * @param message   what was loaded
+     */
+    private void recordLoad(long startTime, String message) {
+        lastLoadMillis = System.currentTimeMillis() - startTime;
+        lastLoadedAt = LocalDateTime.now();
+        ColumnStoreStatsDTO stats = stats();
+        LOGGER.log(Level.INFO, message + " into the columnar store in " + lastLoadMillis + " ms; it holds " +
+                stats.getRows() + " rows in about " + stats.getHeapBytes() + " bytes (" +
+                Math.round(stats.getHeapBytesPerRow()) + " bytes per row)");
+    }
+}
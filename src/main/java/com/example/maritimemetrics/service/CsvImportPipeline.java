@@ -0,0 +1,233 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.ValidationTally;
+import com.example.maritimemetrics.util.CsvBlock;
+import com.example.maritimemetrics.util.CsvBlockReader;
+import com.example.maritimemetrics.util.CsvTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Three-stage pipeline used by the CSV import.
+ * The calling thread reads the input and splits it into blocks of records, a pool of workers
+ * tokenizes, parses and validates the blocks concurrently, and a single writer thread persists the parsed
+ * blocks in the order they were read. At most {@code queueDepth} blocks wait for the writer,
+ * so a slow writer holds back the reader instead of letting parsed rows pile up in memory.
+ */
+final class CsvImportPipeline {
+
+    private static final Future<ParsedBlock> END_OF_INPUT = CompletableFuture.completedFuture(
+            new ParsedBlock(List.of(), 0, new ValidationTally()));
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final ExecutorService workers;
+    private final int queueDepth;
+
+    /**
+     * Parses one tokenized CSV record.
+     */
+    @FunctionalInterface
+    interface RowParser {
+
+        /**
+         * Parses a record.
+         *
+         * @param fields     the tokenized record
+         * @param lineNumber the 1-based position of the record in the input, header included
+         * @param issues     collects the parse issues of the block the record belongs to
+         * @return the parsed metric, or null if the row is skipped
+         */
+        MaritimeMetric parse(CsvTokenizer fields, long lineNumber, ValidationTally issues);
+    }
+
+    /**
+     * Validates the parsed metrics of one block in a single pass.
+     */
+    @FunctionalInterface
+    interface BlockValidator {
+
+        /**
+         * Validates a block.
+         *
+         * @param metrics     the parsed metrics of the block
+         * @param lineNumbers the line number of each metric
+         * @param issues      collects the validation issues of the block
+         */
+        void validate(List<MaritimeMetric> metrics, long[] lineNumbers, ValidationTally issues);
+    }
+
+    /**
+     * The outcome of parsing one block of records.
+     *
+     * @param metrics     the parsed metrics, in input order
+     * @param recordCount the number of records in the block, skipped ones included
+     * @param issues      the validation issues found in the block
+     */
+    record ParsedBlock(List<MaritimeMetric> metrics, int recordCount, ValidationTally issues) {
+    }
+
+    /**
+     * Creates a pipeline that parses on the given worker pool.
+     *
+     * @param workers    the executor running the parse and validation stage
+     * @param queueDepth the maximum number of parsed blocks waiting for the writer
+     */
+    CsvImportPipeline(ExecutorService workers, int queueDepth) {
+        this.workers = workers;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Runs the pipeline until the reader is exhausted or a stage fails.
+     * The writer receives the parsed blocks in input order.
+     *
+     * @param reader the source of CSV records, positioned after the header
+     * @param parser    parses one record
+     * @param validator validates the parsed metrics of a block
+     * @param writer    persists one parsed block
+     * @return the number of metrics handed to the writer
+     * @throws Exception the first failure raised by any stage
+     */
+    long run(CsvBlockReader reader, RowParser parser, BlockValidator validator, Consumer<ParsedBlock> writer)
+            throws Exception {
+        BlockingQueue<Future<ParsedBlock>> queue = new ArrayBlockingQueue<>(queueDepth);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong written = new AtomicLong();
+
+        Thread writerThread = new Thread(() -> drain(queue, writer, written, failure), "csv-import-writer");
+        writerThread.start();
+        try {
+            CsvBlock block;
+            while (failure.get() == null && (block = reader.nextBlock()) != null) {
+                enqueue(queue, submit(block, parser, validator), failure);
+            }
+            enqueue(queue, END_OF_INPUT, failure);
+        } catch (Exception | Error e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            awaitWriter(writerThread);
+            queue.forEach(block -> block.cancel(true));
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof Exception exception) {
+            throw exception;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return written.get();
+    }
+
+    /**
+     * Submits a block of records to the worker pool.
+     *
+     * @param block     the records to parse
+     * @param parser    the record parser
+     * @param validator the block validator
+     * @return a future holding the parsed block
+     */
+    private Future<ParsedBlock> submit(CsvBlock block, RowParser parser, BlockValidator validator) {
+        return workers.submit(() -> {
+            CsvTokenizer fields = new CsvTokenizer();
+            ValidationTally issues = new ValidationTally();
+            List<MaritimeMetric> metrics = new ArrayList<>(block.recordCount());
+            long[] lineNumbers = new long[block.recordCount()];
+            for (int i = 0; i < block.recordCount(); i++) {
+                fields.tokenize(block.chars(), block.starts()[i], block.ends()[i]);
+                long lineNumber = block.firstRecordNumber() + i;
+                MaritimeMetric metric = parser.parse(fields, lineNumber, issues);
+                if (metric != null) {
+                    lineNumbers[metrics.size()] = lineNumber;
+                    metrics.add(metric);
+                }
+            }
+            validator.validate(metrics, lineNumbers, issues);
+            return new ParsedBlock(metrics, block.recordCount(), issues);
+        });
+    }
+
+    /**
+     * Hands a block to the writer, waiting while the queue is full.
+     * Gives up and cancels the block once another stage has failed.
+     *
+     * @param queue   the writer queue
+     * @param block   the block to enqueue
+     * @param failure the first failure of any stage
+     * @throws InterruptedException if the reading thread is interrupted while waiting
+     */
+    private static void enqueue(BlockingQueue<Future<ParsedBlock>> queue, Future<ParsedBlock> block,
+                                AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!queue.offer(block, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                block.cancel(true);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writer stage: takes parsed blocks in input order and passes them to the writer until
+     * the end of input is reached or a stage fails. The writer thread is never interrupted,
+     * so a write in progress always runs to completion.
+     *
+     * @param queue   the writer queue
+     * @param writer  persists one parsed block
+     * @param written the running count of written metrics
+     * @param failure the first failure of any stage
+     */
+    private static void drain(BlockingQueue<Future<ParsedBlock>> queue, Consumer<ParsedBlock> writer,
+                              AtomicLong written, AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null) {
+                Future<ParsedBlock> block = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (block == END_OF_INPUT) {
+                    return;
+                }
+                if (block != null) {
+                    ParsedBlock parsed = block.get();
+                    writer.accept(parsed);
+                    written.addAndGet(parsed.metrics().size());
+                }
+            }
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Waits for the writer thread to finish, preserving the interrupt status of the caller.
+     *
+     * @param writerThread the writer thread
+     */
+    private static void awaitWriter(Thread writerThread) {
+        boolean interrupted = Thread.interrupted();
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.maritimemetrics.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class numbering the versions of the stored metrics, for conditional GET requests.
+ * <p>
+ * The dataset generation is a counter bumped by imports each time their changes become visible:
+ * when a REPLACE import has cleared the data, after each committed chunk, and once the in-memory
+ * stores have been refreshed at the end of the import. Every vessel also has the generation of its
+ * last change, so imports of other vessels do not invalidate its answers. The counter starts at the
+ * startup time in milliseconds, so generations keep increasing across restarts and validators from
+ * an earlier run never match.
+ */
+@Service
+public class DatasetGenerations {
+
+    private final Map<String, Long> vesselGenerations = new ConcurrentHashMap<>();
+    private long counter = System.currentTimeMillis();
+    private volatile long current = counter;
+    private volatile long cleared = current;
+
+    /**
+     * @return the generation of the whole dataset, bumped by every change
+     */
+    public long current() {
+        return current;
+    }
+
+    /**
+     * @param vesselCode the code of a vessel
+     * @return the generation of the last change to the metrics of the vessel
+     */
+    public long current(String vesselCode) {
+        long floor = cleared;
+        Long generation = vesselGenerations.get(vesselCode);
+        return generation != null ? Math.max(generation, floor) : floor;
+    }
+
+    /**
+     * Begins a new generation for changes to the metrics of some vessels, once they are visible to queries.
+     *
+     * @param vesselCodes the codes of the changed vessels; nothing changes if empty
+     */
+    public synchronized void bump(Collection<String> vesselCodes) {
+        if (vesselCodes.isEmpty()) {
+            return;
+        }
+        long generation = ++counter;
+        for (String vesselCode : vesselCodes) {
+            vesselGenerations.put(vesselCode, generation);
+        }
+        current = generation;
+    }
+
+    /**
+     * Begins a new generation for all vessels, once the stored metrics have been cleared.
+     */
+    public synchronized void bumpAll() {
+        long generation = ++counter;
+        cleared = generation;
+        vesselGenerations.clear();
+        current = generation;
+    }
+}
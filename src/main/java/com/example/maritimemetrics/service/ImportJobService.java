@@ -0,0 +1,226 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.exception.ResourceNotFoundException;
+import com.example.maritimemetrics.model.ImportJob;
+import com.example.maritimemetrics.model.ImportMode;
+import com.example.maritimemetrics.model.ImportProgress;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service class for running CSV imports as background jobs.
+ * Uploaded files are copied to a temporary file so the request can return immediately, and
+ * imports run on a single job thread, since imports run one at a time anyway: one job runs and at
+ * most {@code maritime.import.jobs.queue-capacity} wait for it. Further submissions are rejected
+ * rather than queued without limit.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportJobService.class.getName());
+
+    @Autowired
+    private MaritimeMetricCsvService maritimeMetricCsvService;
+
+    @Value("${maritime.import.jobs.queue-capacity:4}")
+    private int queueCapacity;
+
+    @Value("${maritime.import.jobs.retained:100}")
+    private int retainedJobs;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor jobExecutor;
+
+    /**
+     * Starts the job executor.
+     */
+    @PostConstruct
+    void startJobExecutor() {
+        if (queueCapacity <= 0) {
+            throw new IllegalStateException("maritime.import.jobs.queue-capacity must be positive but was " + queueCapacity);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "csv-import-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Stops the job executor.
+     */
+    @PreDestroy
+    void stopJobExecutor() {
+        jobs.values().forEach(job -> job.getProgress().requestCancel());
+        jobExecutor.shutdown();
+    }
+
+    /**
+     * Submits a CSV file for import in the background.
+     *
+     * @param file the CSV file to import
+     * @param mode how the file is combined with the stored data
+     * @return the queued job
+     * @throws RejectedExecutionException if the maximum number of jobs is already running and queued
+     */
+    public ImportJob submit(MultipartFile file, ImportMode mode) {
+        Path upload = storeUpload(file);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), mode,
+                new ImportProgress(file.getSize()));
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> runJob(job, upload));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            deleteUpload(upload);
+            LOGGER.log(Level.WARNING, "CSV import job rejected: too many jobs running or queued");
+            throw e;
+        }
+        LOGGER.log(Level.INFO, "CSV import job " + job.getId() + " queued in " + mode + " mode");
+        pruneFinishedJobs();
+        return job;
+    }
+
+    /**
+     * Retrieves an import job.
+     *
+     * @param jobId the id of the job
+     * @return the job
+     * @throws ResourceNotFoundException if no job has the given id
+     */
+    public ImportJob getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("No import job found with id: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Retrieves all known import jobs, most recently submitted first.
+     *
+     * @return the jobs
+     */
+    public List<ImportJob> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Requests cancellation of an import job.
+     * A queued job is cancelled before it starts; a running job stops before writing its next
+     * chunk and keeps the chunks already committed. Finished jobs are left unchanged.
+     *
+     * @param jobId the id of the job
+     * @return the job
+     * @throws ResourceNotFoundException if no job has the given id
+     */
+    public ImportJob cancel(String jobId) {
+        ImportJob job = getJob(jobId);
+        if (!job.isFinished()) {
+            job.getProgress().requestCancel();
+            LOGGER.log(Level.INFO, "Cancellation requested for CSV import job " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Runs an import job on the job executor and removes its uploaded file afterwards.
+     *
+     * @param job    the job to run
+     * @param upload the stored upload
+     */
+    private void runJob(ImportJob job, Path upload) {
+        try {
+            if (job.getProgress().isCancelRequested()) {
+                job.markCancelled();
+                return;
+            }
+            job.markRunning();
+            try (InputStream inputStream = Files.newInputStream(upload)) {
+                maritimeMetricCsvService.importDataFromCsv(inputStream, job.getMode(), job.getProgress());
+            }
+            job.markCompleted();
+            LOGGER.log(Level.INFO, "CSV import job " + job.getId() + " completed with " + job.getRowsProcessed() + " rows");
+        } catch (CancellationException e) {
+            job.markCancelled();
+            LOGGER.log(Level.INFO, "CSV import job " + job.getId() + " cancelled");
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            LOGGER.log(Level.SEVERE, "CSV import job " + job.getId() + " failed: " + e.getMessage(), e);
+        } finally {
+            deleteUpload(upload);
+        }
+    }
+
+    /**
+     * Copies an uploaded file to a temporary file that outlives the request.
+     *
+     * @param file the uploaded file
+     * @return the path of the temporary file
+     */
+    private Path storeUpload(MultipartFile file) {
+        try {
+            Path upload = Files.createTempFile("csv-import-", ".csv");
+            file.transferTo(upload);
+            return upload;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to store uploaded CSV file: " + e.getMessage(), e);
+            throw new UncheckedIOException("Failed to store uploaded CSV file.", e);
+        }
+    }
+
+    /**
+     * Deletes a stored upload, logging rather than failing if it cannot be removed.
+     *
+     * @param upload the path of the stored upload
+     */
+    private void deleteUpload(Path upload) {
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete temporary file " + upload + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the oldest finished jobs once more than {@code maritime.import.jobs.retained} are known.
+     */
+    private void pruneFinishedJobs() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+}
@@ -1,26 +1,67 @@
 package com.example.maritimemetrics.service;
 
+import com.example.maritimemetrics.dto.ImportReport;
+import com.example.maritimemetrics.exception.ImportInProgressException;
+import com.example.maritimemetrics.model.ImportMode;
+import com.example.maritimemetrics.model.ImportProgress;
 import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.ValidationTally;
+import com.example.maritimemetrics.repository.MaritimeMetricBulkWriter;
 import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import com.example.maritimemetrics.repository.MetricRollupAggregator;
+import com.example.maritimemetrics.repository.SpeedDifferenceGridAggregator;
+import com.example.maritimemetrics.util.CsvBlockReader;
+import com.example.maritimemetrics.util.CsvTokenizer;
+import com.example.maritimemetrics.util.FastNumberParser;
+import com.example.maritimemetrics.util.VesselDays;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Service class for handling CSV import and processing of maritime metrics.
  * Parses and validates data from a CSV file and saves valid entries to the database.
+ * Rows are streamed from the file and persisted in fixed-size chunks, so memory use
+ * does not grow with the size of the imported file. Parsing and validation run on a
+ * pool of worker threads while a single writer persists the chunks in file order.
+ * Imports run one at a time, whether they come from a request or a background job, so a
+ * REPLACE import never clears the data while another import is writing it. Background jobs wait
+ * for the running import; imports made on request threads are refused instead, so they never
+ * hold a request thread for the length of another import.
  */
 @Service
 public class MaritimeMetricCsvService {
@@ -30,340 +71,615 @@ public class MaritimeMetricCsvService {
     @Autowired
     private MaritimeMetricRepository maritimeMetricRepository;
 
-    private static final double SPEED_PERCENTAGE_THRESHOLD = 0.5;  // 50% for speed
-    private static final double FUEL_PERCENTAGE_THRESHOLD = 0.5;   // 50% for fuel
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Autowired
+    private MaritimeMetricBulkWriter maritimeMetricBulkWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ValidationRuleEngine validationRuleEngine;
+
+    @Autowired
+    private SpeedDifferenceSketchService speedDifferenceSketchService;
+
+    @Autowired
+    private MetricRollupAggregator metricRollupAggregator;
+
+    @Autowired
+    private SpeedDifferenceGridAggregator speedDifferenceGridAggregator;
+
+    @Autowired
+    private ColumnarMetricStore columnarMetricStore;
+
+    @Autowired
+    private TimeSeriesStore timeSeriesStore;
+
+    @Autowired
+    private DatasetGenerations datasetGenerations;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${maritime.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${maritime.import.workers:0}")
+    private int workerCount;
+
+    @Value("${maritime.import.queue-depth:0}")
+    private int queueDepth;
+
+    @Value("${maritime.import.log-rows:false}")
+    private boolean logRows;
+
+    @Value("${maritime.import.bulk-insert:true}")
+    private boolean bulkInsert;
+
+    @Value("${maritime.rollups.enabled:true}")
+    private boolean rollupsEnabled;
+
+    @Value("${maritime.heatmap.enabled:true}")
+    private boolean heatmapEnabled;
+
+    @Value("${maritime.heatmap.precisions:0,1,2}")
+    private Set<Integer> heatmapPrecisions;
+
+    private ExecutorService importWorkers;
+    private CsvImportPipeline importPipeline;
+    private final ReentrantLock importLock = new ReentrantLock(true);
+
+    private static final int VESSEL_CODE = 0;
+    private static final int DATETIME = 1;
+    private static final int FIELD_COUNT = 9;
+
+    // Parse problems reported in the import report; rule violations are named by ValidationRuleEngine
+    private static final String RULE_TOO_FEW_FIELDS = "too-few-fields";
+    private static final String RULE_MISSING = "missing";
+    private static final String RULE_MALFORMED = "malformed";
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
 
     /**
-     * Imports data from a CSV file and stores it in the database after validation.
-     *
-     * @param file the CSV file to import
+     * Starts the import worker pool.
+     * A worker count of zero uses one worker per available processor, and a queue depth
+     * of zero allows two parsed chunks per worker to wait for the writer.
      */
-    public void importDataFromCsv(MultipartFile file) {
-        maritimeMetricRepository.deleteAll();
-        List<MaritimeMetric> metrics = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            boolean isHeader = true;
+    @PostConstruct
+    void startImportWorkers() {
+        if (chunkSize <= 0) {
+            throw new IllegalStateException("maritime.import.chunk-size must be positive but was " + chunkSize);
+        }
+        int workers = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        int depth = queueDepth > 0 ? queueDepth : 2 * workers;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        importWorkers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        importPipeline = new CsvImportPipeline(importWorkers, depth);
+        LOGGER.log(Level.INFO, "CSV import pipeline started with " + workers + " workers and queue depth " + depth);
+    }
 
-            while ((line = reader.readLine()) != null) {
-                if (isHeader) {
-                    isHeader = false;
-                    continue;
-                }
+    /**
+     * Stops the import worker pool.
+     */
+    @PreDestroy
+    void stopImportWorkers() {
+        importWorkers.shutdownNow();
+    }
 
-                String[] fields = line.split(",");
-                MaritimeMetric metric = parseAndValidate(fields);
+    /**
+     * Imports data from a CSV file, replacing all stored data.
+     *
+     * @param file the CSV file to import
+     * @return the report of the import
+     */
+    public ImportReport importDataFromCsv(MultipartFile file) {
+        return importDataFromCsv(file, ImportMode.REPLACE);
+    }
 
-                if (metric != null) {
-                    metrics.add(metric);
-                }
-            }
-            maritimeMetricRepository.saveAll(metrics);
-            LOGGER.log(Level.INFO, "Successfully imported data from CSV with " + metrics.size() + " records.");
-        } catch (Exception e) {
+    /**
+     * Imports data from a CSV file and stores it in the database after validation, unless another
+     * import is running.
+     *
+     * @param file the CSV file to import
+     * @param mode how the imported rows are combined with the stored data
+     * @return the report of the import
+     * @throws ImportInProgressException if another import is running
+     */
+    public ImportReport importDataFromCsv(MultipartFile file, ImportMode mode) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return tryImportDataFromCsv(inputStream, mode, new ImportProgress(file.getSize()));
+        } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error reading CSV file: " + e.getMessage(), e);
             throw new IllegalArgumentException("Failed to process CSV file.");
         }
     }
 
     /**
-     * Parses and validates a row of CSV data.
+     * Imports CSV data from a stream and stores it in the database after validation.
+     * In {@link ImportMode#REPLACE} mode existing data is removed first; the other modes only
+     * touch stored rows sharing a vessel code and datetime with an imported row.
+     * Rows are parsed and validated in parallel in blocks of {@code maritime.import.chunk-size}
+     * rows, and each block is written in its own transaction in the order it appears in the file.
+     * <p>
+     * Gzip-compressed data is recognised by its header and decompressed on the fly, so parsing
+     * starts as soon as the first bytes arrive and overlaps with the transfer of the rest.
+     * <p>
+     * Progress is reported through {@code progress} as the stream is read and chunks are written;
+     * bytes are counted before decompression.
+     * A cancellation requested through it stops the import before the next chunk is written;
+     * chunks committed until then are kept.
+     * <p>
+     * The import waits for the running import to end, and waiting imports run in the order they
+     * arrived. An import cancelled while waiting ends without touching the stored data. Imports made
+     * on request threads use {@link #tryImportDataFromCsv} instead, which does not wait.
+     * <p>
+     * Validation problems are counted per field and rule in the returned report rather than
+     * logged; per-row log messages are only written when {@code maritime.import.log-rows} is set.
+     * <p>
+     * When the import ends, also after a failure or cancellation, the columnar store reloads the
+     * vessels of the committed chunks and the time-series files of vessels that could not be
+     * appended to are rewritten. A REPLACE import leaves the columnar store serving the previous
+     * data while it runs and then reloads every vessel into a new store swapped in at once. The
+     * dataset generations of the changed vessels are bumped after every committed chunk, for the
+     * answers read from the database, and once more when the import ends, after the columnar store
+     * is up to date; for a REPLACE import that last bump covers every vessel.
      *
-     * @param fields array of strings representing the columns in a CSV row
-     * @return a MaritimeMetric object if validation passes; null otherwise
+     * @param inputStream the CSV data, closed when the import ends
+     * @param mode        how the imported rows are combined with the stored data
+     * @param progress    receives the progress of the import and carries cancellation requests
+     * @return the report of the import
+     * @throws CancellationException if the import was cancelled
      */
-    private MaritimeMetric parseAndValidate(String[] fields) {
-        MaritimeMetric metric = new MaritimeMetric();
-
-        if (!validateVesselCode(removeQuotes(fields[0]), metric)) {
-            LOGGER.log(Level.WARNING, "Skipping row with invalid vessel code");
-            return null;
+    public ImportReport importDataFromCsv(InputStream inputStream, ImportMode mode, ImportProgress progress) {
+        importLock.lock();
+        try {
+            return runImport(inputStream, mode, progress);
+        } finally {
+            importLock.unlock();
         }
-
-        validateDatetime(removeQuotes(fields[1]), metric);
-        validateLatitude(removeQuotes(fields[2]), metric);
-        validateLongitude(removeQuotes(fields[3]), metric);
-        validatePower(removeQuotes(fields[4]), metric);
-        validateFuelConsumption(removeQuotes(fields[5]), metric);
-        validateActualSpeed(removeQuotes(fields[6]), metric);
-        validateProposedSpeed(removeQuotes(fields[7]), metric);
-        validatePredictedFuelConsumption(removeQuotes(fields[8]), metric);
-
-        // Check for below-zero conditions after validating all fields
-        checkBelowZeroCondition(metric);
-        calculateDerivedFields(metric);
-        return metric;
     }
 
     /**
-     * Checks and sets the below-zero condition flag for specified metric fields.
+     * Imports CSV data from a stream like {@link #importDataFromCsv(InputStream, ImportMode, ImportProgress)},
+     * but fails at once instead of waiting if another import is running or waiting to run.
      *
-     * @param metric the MaritimeMetric object to update
+     * @param inputStream the CSV data, closed when the import ends
+     * @param mode        how the imported rows are combined with the stored data
+     * @param progress    receives the progress of the import and carries cancellation requests
+     * @return the report of the import
+     * @throws ImportInProgressException if another import is running or waiting to run
+     * @throws CancellationException     if the import was cancelled
      */
-    private void checkBelowZeroCondition(MaritimeMetric metric) {
-        boolean belowZero = metric.getPower() != null && metric.getPower() < 0;
-
-        if (metric.getFuelConsumption() != null && metric.getFuelConsumption() < 0) {
-            belowZero = true;
+    public ImportReport tryImportDataFromCsv(InputStream inputStream, ImportMode mode, ImportProgress progress) {
+        boolean locked;
+        try {
+            // Unlike tryLock(), a zero timeout honours the fairness of the lock, so waiting jobs go first
+            locked = importLock.tryLock(0, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
         }
-        if (metric.getActualSpeedOverground() != null && metric.getActualSpeedOverground() < 0) {
-            belowZero = true;
+        if (!locked) {
+            throw new ImportInProgressException("Another CSV import is in progress. Please try again later.");
         }
-        if (metric.getProposedSpeedOverground() != null && metric.getProposedSpeedOverground() < 0) {
-            belowZero = true;
+        try {
+            return runImport(inputStream, mode, progress);
+        } finally {
+            importLock.unlock();
         }
-        if (metric.getPredictedFuelConsumption() != null && metric.getPredictedFuelConsumption() < 0) {
-            belowZero = true;
+    }
+
+    /**
+     * @return true if an import is running
+     */
+    public boolean isImportRunning() {
+        return importLock.isLocked();
+    }
+
+    /**
+     * Runs an import while holding the import lock.
+     *
+     * @param inputStream the CSV data, closed when the import ends
+     * @param mode        how the imported rows are combined with the stored data
+     * @param progress    receives the progress of the import and carries cancellation requests
+     * @return the report of the import
+     * @throws CancellationException if the import was cancelled
+     */
+    private ImportReport runImport(InputStream inputStream, ImportMode mode, ImportProgress progress) {
+        if (progress.isCancelRequested()) {
+            throw new CancellationException("CSV import cancelled");
+        }
+        long startTime = System.currentTimeMillis();
+        Set<String> touchedVessels = ConcurrentHashMap.newKeySet();
+        if (mode == ImportMode.REPLACE) {
+            maritimeMetricRepository.deleteAllInBatch();
+            speedDifferenceSketchService.clear();
+            metricRollupAggregator.clear();
+            speedDifferenceGridAggregator.clear();
+            timeSeriesStore.clear();
+            datasetGenerations.bumpAll();
         }
 
-        metric.setIsBelowZero(belowZero);
-        if (belowZero) {
-            LOGGER.log(Level.INFO, "Set IsBelowZero flag to true for vessel " + metric.getVesselCode());
+        try (Reader input = openCsvReader(inputStream, progress)) {
+            CsvBlockReader reader = new CsvBlockReader(input, chunkSize);
+            reader.skipRecord(); // Skip the header
+            importPipeline.run(reader, this::parseRow, this::validateBlock,
+                    block -> saveBlock(block, mode, progress, touchedVessels));
+            ImportReport report = new ImportReport(mode, progress.getRowsProcessed(), progress.getRowsSkipped(),
+                    progress.getUpdatedRows(), progress.getDuplicateRows(), progress.getInvalidRows(), progress.getMissingRows(), progress.getBelowZeroRows(),
+                    progress.getOutlierRows(), System.currentTimeMillis() - startTime, progress.getIssues());
+            LOGGER.log(Level.INFO, "Successfully imported data from CSV in " + mode + " mode with " +
+                    report.getRowsProcessed() + " records (" + report.getUpdatedRows() + " updated, " +
+                    report.getDuplicateRows() + " duplicates, " + report.getRowsSkipped() + " skipped, " +
+                    report.getInvalidRows() + " invalid) in " + report.getElapsedMillis() + " ms.");
+            return report;
+        } catch (CancellationException e) {
+            LOGGER.log(Level.WARNING, "CSV import cancelled after " + progress.getRowsProcessed() + " records");
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error reading CSV file: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Failed to process CSV file.");
+        } finally {
+            if (mode == ImportMode.REPLACE) {
+                // The columnar store served the previous data until now; every vessel may have changed
+                columnarMetricStore.reload();
+                timeSeriesStore.rebuildStale();
+                datasetGenerations.bumpAll();
+            } else {
+                columnarMetricStore.refresh(touchedVessels);
+                timeSeriesStore.rebuildStale();
+                datasetGenerations.bump(touchedVessels);
+            }
         }
     }
 
     /**
-     * Removes surrounding quotes from a string, if present.
+     * Opens a reader over CSV data, decompressing it first if it is gzip-compressed.
      *
-     * @param value the string to process
-     * @return the unquoted string
+     * @param inputStream the raw CSV data
+     * @param progress    receives the number of raw bytes read
+     * @return a UTF-8 reader over the CSV text
+     * @throws IOException if the data cannot be read or has a corrupt gzip header
      */
-    private String removeQuotes(String value) {
-        return value.replaceAll("^\"|\"$", "").trim();
+    private static Reader openCsvReader(InputStream inputStream, ImportProgress progress) throws IOException {
+        InputStream raw = new BufferedInputStream(new ProgressInputStream(inputStream, progress), INPUT_BUFFER_SIZE);
+        raw.mark(2);
+        boolean gzip = raw.read() == (GZIPInputStream.GZIP_MAGIC & 0xff) && raw.read() == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        raw.reset();
+        InputStream content = gzip ? new GZIPInputStream(raw, INPUT_BUFFER_SIZE) : raw;
+        return new InputStreamReader(content, StandardCharsets.UTF_8);
     }
 
     /**
-     * Validates and sets the vessel code.
+     * Persists a parsed block and adds its counts and validation issues to the progress.
+     * Only the rows actually written are counted as processed; rows dropped or merged as
+     * duplicates are counted separately.
      *
-     * @param vesselCode the vessel code to validate
-     * @param metric     the MaritimeMetric object to update
-     * @return true if valid; false otherwise
+     * @param block    the parsed block
+     * @param mode     how the metrics are combined with the stored data
+     * @param progress the progress of the import
+     * @param touchedVessels receives the vessel codes of the written metrics, whose generations are bumped
+     * @throws CancellationException if cancellation of the import has been requested
      */
-    private boolean validateVesselCode(String vesselCode, MaritimeMetric metric) {
-        if (vesselCode == null || vesselCode.isEmpty()) {
-            LOGGER.log(Level.WARNING, "Invalid vessel code: " + vesselCode);
-            return false;
+    private void saveBlock(CsvImportPipeline.ParsedBlock block, ImportMode mode, ImportProgress progress,
+                           Set<String> touchedVessels) {
+        if (progress.isCancelRequested()) {
+            throw new CancellationException("CSV import cancelled");
         }
-        metric.setVesselCode(vesselCode);
-        return true;
+        WrittenRows written = saveChunk(block.metrics(), mode);
+        Set<String> vesselCodes = new HashSet<>();
+        for (MaritimeMetric metric : written.inserts()) {
+            vesselCodes.add(metric.getVesselCode());
+        }
+        for (MaritimeMetric metric : written.updates()) {
+            vesselCodes.add(metric.getVesselCode());
+        }
+        touchedVessels.addAll(vesselCodes);
+        datasetGenerations.bump(vesselCodes);
+        progress.recordWrittenRows(written.inserts(), written.updates());
+        progress.recordDuplicateRows(block.metrics().size() - written.inserts().size() - written.updates().size());
+        progress.recordSkippedRows(block.recordCount() - block.metrics().size());
+        progress.recordValidation(block.issues());
     }
 
     /**
-     * Validates and sets the datetime.
+     * Persists a chunk of metrics in its own transaction.
+     * With bulk insert enabled, new rows are written by the {@link MaritimeMetricBulkWriter} in one
+     * JDBC batch and never enter the persistence context; only rows replacing a stored row in
+     * {@link ImportMode#UPSERT} mode go through the repository. The persistence context is flushed
+     * and cleared so that saved entities are not retained in memory once their chunk has been committed.
+     * The hour and day rollups and the speed difference grid cells are brought up to date in the
+     * same transaction: inserted rows are merged into them, and the days on which stored rows were
+     * updated or deleted are recomputed.
+     * Once committed, the rows are added to the speed difference sketches and the time-series files.
      *
-     * @param datetimeStr the datetime string to validate
-     * @param metric      the MaritimeMetric object to update
+     * @param chunk the metrics to persist
+     * @param mode  how the metrics are combined with the stored data
+     * @return the rows that were inserted and updated
      */
-    private void validateDatetime(String datetimeStr, MaritimeMetric metric) {
-        try {
-            metric.setDatetime(LocalDateTime.parse(datetimeStr, DATE_TIME_FORMATTER));
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Invalid datetime format for value: " + datetimeStr, e);
-            metric.setIsMissing(true);
+    private WrittenRows saveChunk(List<MaritimeMetric> chunk, ImportMode mode) {
+        if (chunk.isEmpty()) {
+            return new WrittenRows(List.of(), List.of());
         }
+        List<MaritimeMetric> inserts = new ArrayList<>(chunk.size());
+        List<MaritimeMetric> updates = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (MaritimeMetric metric : mode == ImportMode.REPLACE ? chunk : mergeWithStored(chunk, mode)) {
+                (metric.getId() == null ? inserts : updates).add(metric);
+            }
+            if (bulkInsert) {
+                maritimeMetricBulkWriter.insert(inserts);
+            } else {
+                maritimeMetricRepository.saveAll(inserts);
+            }
+            maritimeMetricRepository.saveAll(updates);
+            maritimeMetricRepository.flush();
+            // Stored duplicates are only deleted alongside an update with their vessel and datetime
+            VesselDays changedDays = VesselDays.of(updates);
+            if (rollupsEnabled) {
+                metricRollupAggregator.refresh(inserts, changedDays);
+            }
+            if (heatmapEnabled) {
+                speedDifferenceGridAggregator.refresh(inserts, changedDays, heatmapPrecisions);
+            }
+            entityManager.clear();
+        });
+        speedDifferenceSketchService.add(inserts);
+        speedDifferenceSketchService.rebuild(updates);
+        timeSeriesStore.append(inserts);
+        timeSeriesStore.invalidate(updates);
+        return new WrittenRows(inserts, updates);
     }
 
     /**
-     * Validates and sets the latitude.
+     * Matches a chunk of metrics against the stored rows with the same vessel code and datetime.
+     * Stored rows are looked up per vessel, for the datetimes in the chunk only. In
+     * {@link ImportMode#APPEND} mode matching metrics are dropped, along with repeats within the
+     * chunk. In {@link ImportMode#UPSERT} mode matching metrics take over the id of the stored row
+     * so that saving them overwrites it, and the last of several repeats within the chunk wins.
+     * Metrics without a datetime cannot be matched and are always added.
      *
-     * @param latitudeStr the latitude string to validate
-     * @param metric      the MaritimeMetric object to update
+     * @param chunk the metrics to persist
+     * @param mode  {@link ImportMode#APPEND} or {@link ImportMode#UPSERT}
+     * @return the metrics to save
      */
-    private void validateLatitude(String latitudeStr, MaritimeMetric metric) {
-        try {
-            if (latitudeStr == null || latitudeStr.equalsIgnoreCase("NULL") || latitudeStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Latitude value is missing: " + latitudeStr);
-                metric.setIsMissing(true);
-                return;
+    private List<MaritimeMetric> mergeWithStored(List<MaritimeMetric> chunk, ImportMode mode) {
+        List<MaritimeMetric> toSave = new ArrayList<>(chunk.size());
+        Map<MetricKey, MaritimeMetric> incoming = new LinkedHashMap<>();
+        Map<String, List<LocalDateTime>> datetimesByVessel = new HashMap<>();
+
+        for (MaritimeMetric metric : chunk) {
+            if (metric.getDatetime() == null) {
+                toSave.add(metric);
+                continue;
             }
-
-            Double latitude = Double.parseDouble(latitudeStr);
-            if (latitude >= -90 && latitude <= 90) {
-                metric.setLatitude(latitude);
+            MetricKey key = new MetricKey(metric.getVesselCode(), metric.getDatetime());
+            if (mode == ImportMode.UPSERT) {
+                incoming.put(key, metric);
             } else {
-                LOGGER.log(Level.WARNING, "Latitude out of range for value: " + latitudeStr);
-                metric.setIsOutlier(true);
+                incoming.putIfAbsent(key, metric);
+            }
+        }
+        incoming.keySet().forEach(key ->
+                datetimesByVessel.computeIfAbsent(key.vesselCode(), vessel -> new ArrayList<>()).add(key.datetime()));
+
+        for (Map.Entry<String, List<LocalDateTime>> entry : datetimesByVessel.entrySet()) {
+            for (MaritimeMetric stored : maritimeMetricRepository.findAllByVesselCodeAndDatetimeIn(entry.getKey(), entry.getValue())) {
+                MetricKey key = new MetricKey(stored.getVesselCode(), stored.getDatetime());
+                if (mode == ImportMode.APPEND) {
+                    incoming.remove(key);
+                    continue;
+                }
+                MaritimeMetric replacement = incoming.get(key);
+                if (replacement.getId() == null) {
+                    replacement.setId(stored.getId());
+                } else {
+                    // The key was stored more than once; keep a single row for it
+                    maritimeMetricRepository.delete(stored);
+                }
             }
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid latitude format for value: " + latitudeStr, e);
-            metric.setIsMissing(true);
         }
+
+        toSave.addAll(incoming.values());
+        return toSave;
     }
 
     /**
-     * Validates and sets the longitude.
-     *
-     * @param longitudeStr the longitude string to validate
-     * @param metric       the MaritimeMetric object to update
+     * Counts the bytes read from a stream into the progress of an import.
      */
-    private void validateLongitude(String longitudeStr, MaritimeMetric metric) {
-        try {
-            if (longitudeStr == null || longitudeStr.equalsIgnoreCase("NULL") || longitudeStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Longitude value is missing: " + longitudeStr);
-                metric.setIsMissing(true);
-                return;
+    private static final class ProgressInputStream extends FilterInputStream {
+
+        private final ImportProgress progress;
+
+        /**
+         * Wraps a stream.
+         *
+         * @param in       the stream to read from
+         * @param progress the progress receiving the byte count
+         */
+        ProgressInputStream(InputStream in, ImportProgress progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                progress.addBytesRead(1);
             }
+            return value;
+        }
 
-            Double longitude = Double.parseDouble(longitudeStr);
-            if (longitude >= -180 && longitude <= 180) {
-                metric.setLongitude(longitude);
-            } else {
-                LOGGER.log(Level.WARNING, "Longitude out of range for value: " + longitudeStr);
-                metric.setIsOutlier(true);
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                progress.addBytesRead(count);
             }
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid longitude format for value: " + longitudeStr, e);
-            metric.setIsMissing(true);
+            return count;
         }
     }
 
     /**
-     * Validates and sets the power value from the provided string.
-     * If the value is null, empty, or "NULL", it marks the metric as missing.
+     * The rows a chunk wrote to the database.
      *
-     * @param powerStr the power string to validate
-     * @param metric   the MaritimeMetric object to update
+     * @param inserts the metrics inserted as new rows
+     * @param updates the metrics that replaced stored rows
      */
-    private void validatePower(String powerStr, MaritimeMetric metric) {
-        try {
-            // Check if the value is "NULL" or empty, and set as missing if true
-            if (powerStr == null || powerStr.equalsIgnoreCase("NULL") || powerStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Power value is missing: " + powerStr);
-                metric.setIsMissing(true);
-                return;
-            }
+    private record WrittenRows(List<MaritimeMetric> inserts, List<MaritimeMetric> updates) {
+    }
 
-            // Proceed with parsing if value is not "NULL"
-            Double power = Double.parseDouble(powerStr);
-            metric.setPower(power);
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid power format for value: " + powerStr, e);
-            metric.setIsMissing(true);
-        }
+    /**
+     * Identifies a metric by vessel and time for append and upsert imports.
+     *
+     * @param vesselCode the vessel code
+     * @param datetime   the datetime of the metric
+     */
+    private record MetricKey(String vesselCode, LocalDateTime datetime) {
     }
 
     /**
-     * Validates and sets the fuel consumption value from the provided string.
-     * If the value is null, empty, or "NULL", it marks the metric as missing.
+     * Parses a row of CSV data into a metric.
+     * Missing and malformed values are recorded in {@code issues} and mark the metric as missing;
+     * the configured validation rules are applied afterwards to the whole block by {@link #validateBlock}.
      *
-     * @param fuelConsumptionStr the fuel consumption string to validate
-     * @param metric             the MaritimeMetric object to update
+     * @param fields     the tokenized CSV row
+     * @param lineNumber the position of the row in the file
+     * @param issues     collects the parse issues of the row
+     * @return a MaritimeMetric object if the row can be parsed; null otherwise
      */
-    private void validateFuelConsumption(String fuelConsumptionStr, MaritimeMetric metric) {
-        try {
-            // Check if the value is "NULL" or empty, and set as missing if true
-            if (fuelConsumptionStr == null || fuelConsumptionStr.equalsIgnoreCase("NULL") || fuelConsumptionStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Fuel consumption value is missing: " + fuelConsumptionStr);
-                metric.setIsMissing(true);
-                return;
+    private MaritimeMetric parseRow(CsvTokenizer fields, long lineNumber, ValidationTally issues) {
+        issues.startRow(lineNumber);
+        if (fields.fieldCount() < FIELD_COUNT) {
+            issues.record("row", RULE_TOO_FEW_FIELDS);
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Skipping line " + lineNumber + " with " + fields.fieldCount() +
+                        " fields, expected " + FIELD_COUNT);
             }
+            return null;
+        }
 
-            // Proceed with parsing if value is not "NULL"
-            metric.setFuelConsumption(Double.parseDouble(fuelConsumptionStr));
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid fuel consumption format for value: " + fuelConsumptionStr, e);
-            metric.setIsMissing(true);
+        MaritimeMetric metric = new MaritimeMetric();
+
+        if (!validateVesselCode(fields, VESSEL_CODE, metric, issues)) {
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Skipping row with invalid vessel code at line " + lineNumber);
+            }
+            return null;
         }
+
+        validateDatetime(fields, DATETIME, metric, issues);
+        for (MetricField field : MetricField.fields()) {
+            if (parseNumericField(fields, field.column(), field.fieldName(), metric, issues)) {
+                field.set(metric, fields.doubleValue());
+            }
+        }
+        return metric;
     }
 
     /**
-     * Validates and sets the actual speed value from the provided string.
-     * If the value is null, empty, or "NULL", it marks the metric as missing.
+     * Applies the validation rules to the parsed metrics of a block and calculates their derived
+     * fields, in a single pass over the block.
      *
-     * @param actualSpeedStr the actual speed string to validate
-     * @param metric         the MaritimeMetric object to update
+     * @param metrics     the parsed metrics
+     * @param lineNumbers the line number of each metric
+     * @param issues      collects the validation issues of the block
      */
-    private void validateActualSpeed(String actualSpeedStr, MaritimeMetric metric) {
-        try {
-            // Check if the value is "NULL" or empty, and set as missing if true
-            if (actualSpeedStr == null || actualSpeedStr.equalsIgnoreCase("NULL") || actualSpeedStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Actual speed value is missing: " + actualSpeedStr);
-                metric.setIsMissing(true);
-                return;
-            }
-
-            // Proceed with parsing if value is not "NULL"
-            metric.setActualSpeedOverground(Double.parseDouble(actualSpeedStr));
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid actual speed format for value: " + actualSpeedStr, e);
-            metric.setIsMissing(true);
+    private void validateBlock(List<MaritimeMetric> metrics, long[] lineNumbers, ValidationTally issues) {
+        for (int i = 0; i < metrics.size(); i++) {
+            MaritimeMetric metric = metrics.get(i);
+            issues.startRow(lineNumbers[i]);
+            validationRuleEngine.evaluate(metric, issues);
+            calculateDerivedFields(metric);
         }
     }
 
     /**
-     * Validates and sets the proposed speed value from the provided string.
-     * If the value is null, empty, or "NULL", it marks the metric as missing.
-     * It also checks for outliers based on the proposed and actual speeds.
+     * Validates and sets the vessel code.
      *
-     * @param proposedSpeedStr the proposed speed string to validate
-     * @param metric           the MaritimeMetric object to update
+     * @param fields the tokenized CSV row
+     * @param index  the index of the vessel code field
+     * @param metric the MaritimeMetric object to update
+     * @param issues collects the validation issues of the row
+     * @return true if valid; false otherwise
      */
-    private void validateProposedSpeed(String proposedSpeedStr, MaritimeMetric metric) {
-        try {
-            // Check if the value is "NULL" or empty, and set as missing if true
-            if (proposedSpeedStr == null || proposedSpeedStr.equalsIgnoreCase("NULL") || proposedSpeedStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Proposed speed value is missing: " + proposedSpeedStr);
-                metric.setIsMissing(true);
-                return;
+    private boolean validateVesselCode(CsvTokenizer fields, int index, MaritimeMetric metric, ValidationTally issues) {
+        if (fields.isEmpty(index)) {
+            issues.record("vesselCode", RULE_MISSING);
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Invalid vessel code: " + fields.getString(index));
             }
+            return false;
+        }
+        metric.setVesselCode(fields.getString(index));
+        return true;
+    }
 
-            // Proceed with parsing if value is not "NULL"
-            Double proposedSpeed = Double.parseDouble(proposedSpeedStr);
-            metric.setProposedSpeedOverground(proposedSpeed);
-
-            // Check for outlier based on proposed and actual speeds
-            if (metric.getActualSpeedOverground() != null &&
-                    Math.abs((metric.getActualSpeedOverground() - proposedSpeed) / metric.getActualSpeedOverground()) > SPEED_PERCENTAGE_THRESHOLD) {
-                LOGGER.log(Level.INFO, "Proposed speed outlier detected for actual: " + metric.getActualSpeedOverground() +
-                        " and proposed: " + proposedSpeed);
-                metric.setIsOutlier(true);
+    /**
+     * Validates and sets the datetime.
+     *
+     * @param fields the tokenized CSV row
+     * @param index  the index of the datetime field
+     * @param metric the MaritimeMetric object to update
+     * @param issues collects the validation issues of the row
+     */
+    private void validateDatetime(CsvTokenizer fields, int index, MaritimeMetric metric, ValidationTally issues) {
+        LocalDateTime datetime = fields.parseDateTime(index);
+        if (datetime == null) {
+            issues.record("datetime", fields.isNullOrEmpty(index) ? RULE_MISSING : RULE_MALFORMED);
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Invalid datetime format for value: " + fields.getString(index));
             }
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid proposed speed format for value: " + proposedSpeedStr, e);
             metric.setIsMissing(true);
+            return;
         }
+        metric.setDatetime(datetime);
     }
 
     /**
-     * Validates and sets the predicted fuel consumption value from the provided string.
-     * If the value is null, empty, or "NULL", it marks the metric as missing.
-     * It also checks for outliers based on the predicted and actual fuel consumption.
+     * Parses a numeric field, marking the metric as missing if the value is null, empty, "NULL"
+     * or not a number.
      *
-     * @param predictedFuelStr the predicted fuel consumption string to validate
-     * @param metric           the MaritimeMetric object to update
+     * @param fields the tokenized CSV row
+     * @param index  the index of the field
+     * @param field  the name of the field used in the report and log messages
+     * @param metric the MaritimeMetric object to update
+     * @param issues collects the validation issues of the row
+     * @return true if the field holds a number, available from {@link CsvTokenizer#doubleValue()}
      */
-    private void validatePredictedFuelConsumption(String predictedFuelStr, MaritimeMetric metric) {
-        try {
-            // Check if the value is "NULL" or empty, and set as missing if true
-            if (predictedFuelStr == null || predictedFuelStr.equalsIgnoreCase("NULL") || predictedFuelStr.trim().isEmpty()) {
-                LOGGER.log(Level.WARNING, "Predicted fuel consumption value is missing: " + predictedFuelStr);
-                metric.setIsMissing(true);
-                return;
+    private boolean parseNumericField(CsvTokenizer fields, int index, String field, MaritimeMetric metric,
+                                      ValidationTally issues) {
+        // Check if the value is "NULL" or empty, and set as missing if true
+        if (fields.isNullOrEmpty(index)) {
+            issues.record(field, RULE_MISSING);
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Value of " + field + " is missing: " + fields.getString(index));
             }
-
-            // Proceed with parsing if value is not "NULL"
-            Double predictedFuel = Double.parseDouble(predictedFuelStr);
-            metric.setPredictedFuelConsumption(predictedFuel);
-
-            // Check for outlier based on predicted and actual fuel consumption
-            if (metric.getFuelConsumption() != null &&
-                    Math.abs((metric.getFuelConsumption() - predictedFuel) / metric.getFuelConsumption()) > FUEL_PERCENTAGE_THRESHOLD) {
-                LOGGER.log(Level.INFO, "Fuel consumption outlier detected for actual: " + metric.getFuelConsumption() +
-                        " and predicted: " + predictedFuel);
-                metric.setIsOutlier(true);
+            metric.setIsMissing(true);
+            return false;
+        }
+        if (fields.parseDouble(index) != FastNumberParser.PARSED) {
+            issues.record(field, RULE_MALFORMED);
+            if (logRows) {
+                LOGGER.log(Level.WARNING, "Invalid " + field + " format for value: " + fields.getString(index));
             }
-        } catch (NumberFormatException e) {
-            LOGGER.log(Level.WARNING, "Invalid predicted fuel consumption format for value: " + predictedFuelStr, e);
             metric.setIsMissing(true);
+            return false;
         }
+        return true;
     }
 
     /**
      * Calculates and sets derived fields for the given MaritimeMetric object.
      * Specifically, it calculates the speed difference between actual and proposed speeds,
-     * rounds it to six decimal places, and sets the speedDifference property.
+     * rounds it to six decimal places, and sets the speedDifference property, and the relative
+     * speed and fuel deviations that outlier queries filter and rank on.
      * It also determines if the metric is invalid based on below-zero, missing, or outlier flags.
      *
      * @param metric the MaritimeMetric object for which to calculate derived fields
@@ -378,16 +694,37 @@ public class MaritimeMetricCsvService {
             // Ensure you're setting a double value back
             metric.setSpeedDifference(roundedSpeedDifference.doubleValue());
 
-            LOGGER.log(Level.INFO, "Calculated speed difference for vessel " + metric.getVesselCode() +
-                    ": " + metric.getSpeedDifference());
+            if (logRows) {
+                LOGGER.log(Level.INFO, "Calculated speed difference for vessel " + metric.getVesselCode() +
+                        ": " + metric.getSpeedDifference());
+            }
         }
 
+        metric.setSpeedDeviation(relativeDeviation(metric.getActualSpeedOverground(), metric.getProposedSpeedOverground()));
+        metric.setFuelDeviation(relativeDeviation(metric.getFuelConsumption(), metric.getPredictedFuelConsumption()));
+
         metric.setIsInvalid(
                 Boolean.TRUE.equals(metric.getIsBelowZero()) ||
                         Boolean.TRUE.equals(metric.getIsMissing()) ||
                         Boolean.TRUE.equals(metric.getIsOutlier())
         );
 
-        LOGGER.log(Level.INFO, "Set IsInvalid flag to " + metric.getIsInvalid() + " for vessel " + metric.getVesselCode());
+        if (logRows) {
+            LOGGER.log(Level.INFO, "Set IsInvalid flag to " + metric.getIsInvalid() + " for vessel " + metric.getVesselCode());
+        }
+    }
+
+    /**
+     * Calculates the relative deviation of a value from a reference, |value - reference| / reference.
+     *
+     * @param value     the value
+     * @param reference the reference value
+     * @return the relative deviation, or null if either value is missing or the reference is zero
+     */
+    private static Double relativeDeviation(Double value, Double reference) {
+        if (value == null || reference == null || reference == 0) {
+            return null;
+        }
+        return Math.abs(value - reference) / reference;
     }
 }
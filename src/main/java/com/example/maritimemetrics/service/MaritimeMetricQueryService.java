@@ -0,0 +1,189 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.dto.MetricPageDTO;
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import com.example.maritimemetrics.util.PageCursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Service class serving the lists of stored metrics one page at a time.
+ * <p>
+ * Pages use keyset pagination on the id: a page is the rows following the last id of the previous
+ * page, found through an index rather than by skipping rows, so every page costs the same however
+ * deep the client goes. Page sizes are capped by {@code maritime.api.page-size.max}.
+ * <p>
+ * Whole lists can instead be streamed as newline-delimited JSON: rows are written to the response
+ * as the database cursor reads them and are then detached from the persistence context, so a
+ * request holds about one fetch of rows in memory however long the list is.
+ */
+@Service
+public class MaritimeMetricQueryService {
+
+    private static final Logger LOGGER = Logger.getLogger(MaritimeMetricQueryService.class.getName());
+
+    @Autowired
+    private MaritimeMetricRepository maritimeMetricRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${maritime.api.page-size.default:500}")
+    private int defaultPageSize;
+
+    @Value("${maritime.api.page-size.max:5000}")
+    private int maxPageSize;
+
+    /**
+     * Retrieves a page of all metrics.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size   the number of metrics per page, or null for the default size
+     * @return the page
+     * @throws IllegalArgumentException if the cursor is malformed or the size is not positive
+     */
+    public MetricPageDTO getAllMetrics(String cursor, Integer size) {
+        return page(cursor, size, maritimeMetricRepository::findPageAfterId);
+    }
+
+    /**
+     * Retrieves a page of the metrics of a vessel in one of its lists.
+     *
+     * @param vesselCode the code of the vessel
+     * @param filter     the list: "valid", "invalid", "missing", "belowzero" or "outlier"
+     * @param cursor     the cursor returned with the previous page, or null for the first page
+     * @param size       the number of metrics per page, or null for the default size
+     * @return the page
+     * @throws IllegalArgumentException if the cursor is malformed or the size is not positive
+     */
+    public MetricPageDTO getVesselMetrics(String vesselCode, String filter, String cursor, Integer size) {
+        return page(cursor, size, (afterId, pageable) ->
+                maritimeMetricRepository.findPageByVesselCodeAfterId(vesselCode, filter, afterId, pageable));
+    }
+
+    /**
+     * Writes all metrics in id order as newline-delimited JSON.
+     *
+     * @param out the stream to write to; it is not closed
+     * @return the number of metrics written
+     */
+    public long streamAllMetrics(OutputStream out) {
+        return stream(maritimeMetricRepository::streamAll, out);
+    }
+
+    /**
+     * Writes the metrics of a vessel in one of its lists in id order as newline-delimited JSON.
+     *
+     * @param vesselCode the code of the vessel
+     * @param filter     the list: "valid", "invalid", "missing", "belowzero" or "outlier"
+     * @param out        the stream to write to; it is not closed
+     * @return the number of metrics written
+     */
+    public long streamVesselMetrics(String vesselCode, String filter, OutputStream out) {
+        return stream(() -> maritimeMetricRepository.streamByVesselCode(vesselCode, filter), out);
+    }
+
+    /**
+     * Writes the speed differences of a vessel in id order as newline-delimited JSON.
+     *
+     * @param vesselCode the code of the vessel
+     * @param out        the stream to write to; it is not closed
+     * @return the number of speed differences written
+     */
+    public long streamSpeedDifferences(String vesselCode, OutputStream out) {
+        return stream(() -> maritimeMetricRepository.streamSpeedDifferencesByVesselCode(vesselCode), out);
+    }
+
+    /**
+     * Writes the rows of a query as newline-delimited JSON while they are read, within a transaction
+     * that keeps the database cursor open. Entities are detached once written, so the persistence
+     * context does not grow with the result. The output is flushed by the generator when its buffer
+     * fills rather than after every row.
+     *
+     * @param query opens the stream of rows
+     * @param out   the stream to write to; it is not closed
+     * @return the number of rows written
+     * @throws UncheckedIOException if writing fails, e.g. because the client went away
+     */
+    private long stream(Supplier<? extends Stream<?>> query, OutputStream out) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        Long rows = transactionTemplate.execute(status -> {
+            long written = 0;
+            try (Stream<?> results = query.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // Rows are separated by the newline written after each of them, not by Jackson's default space
+                generator.setRootValueSeparator(null);
+                for (Iterator<?> iterator = results.iterator(); iterator.hasNext(); ) {
+                    Object row = iterator.next();
+                    writer.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                    if (row instanceof MaritimeMetric) {
+                        entityManager.detach(row);
+                    }
+                    written++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+        LOGGER.log(Level.INFO, "Streamed " + rows + " rows");
+        return rows;
+    }
+
+    /**
+     * Reads one row more than the page size, to tell whether another page follows without a count query.
+     *
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size   the requested page size, or null for the default size
+     * @param query  reads the rows after an id, in id order
+     * @return the page
+     */
+    private MetricPageDTO page(String cursor, Integer size, BiFunction<Long, Pageable, List<MaritimeMetric>> query) {
+        int pageSize = size != null ? size : defaultPageSize;
+        if (pageSize <= 0) {
+            String message = "Page size must be positive";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        pageSize = Math.min(pageSize, maxPageSize);
+        long afterId = cursor != null ? PageCursor.decode(cursor) : 0;
+
+        List<MaritimeMetric> metrics = query.apply(afterId, PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (metrics.size() > pageSize) {
+            metrics = metrics.subList(0, pageSize);
+            nextCursor = PageCursor.encode(metrics.get(pageSize - 1).getId());
+        }
+        return new MetricPageDTO(pageSize, nextCursor, metrics);
+    }
+}
@@ -1,102 +1,434 @@
 package com.example.maritimemetrics.service;
 
+import com.example.maritimemetrics.dto.ColumnStoreStatsDTO;
+import com.example.maritimemetrics.dto.HeatmapCellDTO;
+import com.example.maritimemetrics.dto.MetricBucketDTO;
+import com.example.maritimemetrics.dto.MetricSummaryDTO;
+import com.example.maritimemetrics.dto.ProblemCountsDTO;
+import com.example.maritimemetrics.dto.ProblemEpisodeDTO;
+import com.example.maritimemetrics.dto.ProblemEpisodePageDTO;
+import com.example.maritimemetrics.dto.ResultCacheStatsDTO;
+import com.example.maritimemetrics.dto.SpeedDifferencePercentilesDTO;
+import com.example.maritimemetrics.dto.VesselComplianceDTO;
+import com.example.maritimemetrics.dto.VesselProblemCountsDTO;
 import com.example.maritimemetrics.exception.ResourceNotFoundException;
 import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.MetricRollup;
+import com.example.maritimemetrics.model.RollupGranularity;
+import com.example.maritimemetrics.model.SpeedDifferenceCell;
 import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import com.example.maritimemetrics.repository.MetricRollupAggregator;
+import com.example.maritimemetrics.repository.MetricRollupRepository;
+import com.example.maritimemetrics.repository.SpeedDifferenceGridAggregator;
+import com.example.maritimemetrics.util.MetricSeries;
+import com.example.maritimemetrics.util.QuantileSketch;
+import com.example.maritimemetrics.util.Quantiles;
+import com.example.maritimemetrics.util.ResultCache;
+import com.example.maritimemetrics.util.TopK;
+import com.example.maritimemetrics.util.VesselSeries;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Service class for performing statistical calculations and retrieving metrics related to maritime data.
+ * <p>
+ * When the {@link ColumnarMetricStore} is enabled, frequencies, medians, outliers, episodes and
+ * summaries are computed from its primitive columns instead of database queries; metrics returned
+ * from it are detached copies built from the columns.
+ * <p>
+ * Frequencies, medians, compliance rankings, outlier lists and problem groups are kept in a
+ * {@link ResultCache} bounded by {@code maritime.cache.max-weight}. Cached results are tagged with
+ * the {@link DatasetGenerations dataset generation} of their vessel, or of the whole dataset for
+ * fleet-wide results, so an import invalidates exactly the results of the vessels it changed.
+ * Cached results are shared and unmodifiable.
  */
 @Service
 public class MaritimeMetricStatisticsService {
 
     private static final Logger LOGGER = Logger.getLogger(MaritimeMetricStatisticsService.class.getName());
-    private static final Duration TIME_THRESHOLD = Duration.ofMinutes(5);  // Example: 5 minutes
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.95, 0.99};
+    private static final int MAX_TOP_OUTLIERS = 1000;
+    private static final int MAX_HEATMAP_PRECISION = 4;
 
     @Autowired
     private MaritimeMetricRepository maritimeMetricRepository;
 
+    @Autowired
+    private SpeedDifferenceSketchService speedDifferenceSketchService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ColumnarMetricStore columnarMetricStore;
+
+    @Autowired
+    private TimeSeriesStore timeSeriesStore;
+
+    @Autowired
+    private MetricRollupRepository metricRollupRepository;
+
+    @Autowired
+    private MetricRollupAggregator metricRollupAggregator;
+
+    @Autowired
+    private SpeedDifferenceGridAggregator speedDifferenceGridAggregator;
+
+    @Value("${maritime.episodes.max-gap:PT5M}")
+    private Duration episodeMaxGap;
+
+    @Value("${maritime.rollups.enabled:true}")
+    private boolean rollupsEnabled;
+
+    @Value("${maritime.heatmap.enabled:true}")
+    private boolean heatmapEnabled;
+
+    @Value("${maritime.heatmap.precisions:0,1,2}")
+    private Set<Integer> heatmapPrecisions;
+
+    @Autowired
+    private DatasetGenerations datasetGenerations;
+
+    @Value("${maritime.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${maritime.cache.max-weight:100000}")
+    private long cacheMaxWeight;
+
+    private ResultCache resultCache;
+
+    /**
+     * Creates the result cache with the configured maximum weight.
+     */
+    @PostConstruct
+    void initResultCache() {
+        resultCache = new ResultCache(cacheMaxWeight);
+    }
+
     /**
-     * Calculates the frequency of missing data for a specific vessel.
+     * Retrieves problem frequencies and validity metrics for a specific vessel.
+     * All counts come from a single aggregate query; a vessel without rows is not found.
      *
      * @param vesselCode the code of the vessel
-     * @return the count of missing data entries
+     * @return a map of problem frequencies and validity metrics
+     * @throws ResourceNotFoundException if no data is found for the vessel
      */
-    public long calculateMissingFrequency(String vesselCode) {
-        validateVesselExists(vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsMissingTrue(vesselCode).size();
+    public Map<String, Long> getProblemFrequenciesAndValidityMetrics(String vesselCode) {
+        return cached(generation(vesselCode), Arrays.asList("problemFrequencies", vesselCode),
+                () -> Collections.unmodifiableMap(computeProblemFrequencies(vesselCode)));
     }
 
     /**
-     * Calculates the frequency of below-zero data for a specific vessel.
+     * Computes {@link #getProblemFrequenciesAndValidityMetrics(String)} without the result cache.
+     */
+    private Map<String, Long> computeProblemFrequencies(String vesselCode) {
+        ProblemCountsDTO counts;
+        if (columnarMetricStore.isEnabled()) {
+            VesselSeries series = columnarMetricStore.get(vesselCode);
+            counts = series != null ? problemCounts(series) : new ProblemCountsDTO(0L, 0L, 0L, 0L, 0L);
+        } else {
+            counts = maritimeMetricRepository.countProblemsByVesselCode(vesselCode);
+        }
+        if (counts.getTotal() == 0) {
+            throw vesselNotFound(vesselCode);
+        }
+        return counts.toMap();
+    }
+
+    /**
+     * Retrieves the problem counts of every vessel, computed in one grouped query, as a leaderboard.
+     * Vessels are ranked by the given counter, ties broken by vessel code.
      *
-     * @param vesselCode the code of the vessel
-     * @return the count of below-zero entries
+     * @param sortBy    the counter to rank by: "missing", "belowzero", "outlier", "invalid" or "total"
+     * @param ascending true to rank the lowest counts first, false for the highest first
+     * @param limit     the maximum number of vessels to return, or null for all vessels
+     * @return the ranked problem counts per vessel
+     * @throws IllegalArgumentException if the counter is unknown or the limit is not positive
      */
-    public long calculateBelowZeroFrequency(String vesselCode) {
-        validateVesselExists(vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsBelowZeroTrue(vesselCode).size();
+    public List<VesselProblemCountsDTO> getFleetProblemFrequencies(String sortBy, boolean ascending, Integer limit) {
+        return cached(datasetGenerations.current(), Arrays.asList("fleetProblemFrequencies", sortBy, ascending, limit),
+                () -> computeFleetProblemFrequencies(sortBy, ascending, limit));
     }
 
     /**
-     * Calculates the frequency of outlier data for a specific vessel.
+     * Computes {@link #getFleetProblemFrequencies(String, boolean, Integer)} without the result cache.
+     */
+    private List<VesselProblemCountsDTO> computeFleetProblemFrequencies(String sortBy, boolean ascending, Integer limit) {
+        if (limit != null && limit <= 0) {
+            String message = "Limit must be positive";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        Comparator<VesselProblemCountsDTO> byCounter = Comparator.comparingLong(problemCounter(sortBy));
+        Comparator<VesselProblemCountsDTO> order = (ascending ? byCounter : byCounter.reversed())
+                .thenComparing(VesselProblemCountsDTO::getVesselCode, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        List<VesselProblemCountsDTO> counts;
+        if (columnarMetricStore.isEnabled()) {
+            counts = new ArrayList<>();
+            for (VesselSeries series : columnarMetricStore.all()) {
+                ProblemCountsDTO vesselCounts = problemCounts(series);
+                counts.add(new VesselProblemCountsDTO(series.vesselCode(), vesselCounts.getTotal(), vesselCounts.getInvalid(),
+                        vesselCounts.getMissing(), vesselCounts.getBelowZero(), vesselCounts.getOutlier()));
+            }
+        } else {
+            counts = maritimeMetricRepository.countProblemsPerVessel();
+        }
+        return counts.stream()
+                .sorted(order)
+                .limit(limit != null ? limit : Long.MAX_VALUE)
+                .toList();
+    }
+
+    /**
+     * Reads the problem counts of a vessel from the flag counts of its series.
+     *
+     * @param series the series of the vessel
+     * @return the counts per problem type
+     */
+    private static ProblemCountsDTO problemCounts(VesselSeries series) {
+        return new ProblemCountsDTO((long) series.size(), series.count(VesselSeries.INVALID),
+                series.count(VesselSeries.MISSING), series.count(VesselSeries.BELOW_ZERO), series.count(VesselSeries.OUTLIER));
+    }
+
+    /**
+     * Retrieves the valid metrics of a vessel within a time period, both ends inclusive.
      *
      * @param vesselCode the code of the vessel
-     * @return the count of outlier entries
+     * @param start      the start of the period
+     * @param end        the end of the period
+     * @return the summaries of the valid metrics in the period
      */
-    public long calculateOutlierFrequency(String vesselCode) {
-        validateVesselExists(vesselCode);
-        return maritimeMetricRepository.findAllByVesselCodeAndIsOutlierTrue(vesselCode).size();
+    public List<MetricSummaryDTO> getSummaryMetrics(String vesselCode, LocalDateTime start, LocalDateTime end) {
+        MetricSeries series = rangeSeries(vesselCode);
+        if (series == null) {
+            return maritimeMetricRepository.findMetricsByVesselCodeAndDatetimeBetween(vesselCode, start, end);
+        }
+        List<MetricSummaryDTO> summaries = new ArrayList<>();
+        long endSecond = end.toEpochSecond(ZoneOffset.UTC);
+        for (int row = series.firstRowAtOrAfter(start.toEpochSecond(ZoneOffset.UTC));
+             row < series.datedRows() && series.epochSecond(row) <= endSecond; row++) {
+            if (!series.hasFlag(row, VesselSeries.INVALID)) {
+                summaries.add(new MetricSummaryDTO(valueOrNull(series, VesselSeries.Column.POWER, row),
+                        valueOrNull(series, VesselSeries.Column.FUEL_CONSUMPTION, row),
+                        valueOrNull(series, VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row),
+                        valueOrNull(series, VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row),
+                        valueOrNull(series, VesselSeries.Column.PREDICTED_FUEL_CONSUMPTION, row),
+                        valueOrNull(series, VesselSeries.Column.SPEED_DIFFERENCE, row)));
+            }
+        }
+        return summaries;
     }
 
     /**
-     * Calculates validity metrics, including the total and invalid counts for a specific vessel.
+     * Picks the rows of a vessel that range queries read: the memory-mapped time-series files if
+     * they are current, otherwise the columnar store. Without either, the database is queried.
      *
      * @param vesselCode the code of the vessel
-     * @return a map containing total and invalid counts
+     * @return the rows of the vessel, or null if neither store has them
      */
-    public Map<String, Long> calculateValidityMetrics(String vesselCode) {
-        validateVesselExists(vesselCode);
-        Map<String, Long> validityMetrics = new HashMap<>();
-        long total = maritimeMetricRepository.findAllByVesselCode(vesselCode).size();
-        long invalid = maritimeMetricRepository.findAllByVesselCodeAndIsInvalidTrue(vesselCode).size();
+    private MetricSeries rangeSeries(String vesselCode) {
+        MetricSeries series = timeSeriesStore.get(vesselCode);
+        if (series == null && columnarMetricStore.isEnabled()) {
+            series = columnarMetricStore.get(vesselCode);
+        }
+        return series;
+    }
 
-        validityMetrics.put("Invalid", invalid);
-        validityMetrics.put("Total", total);
+    /**
+     * @param series a series
+     * @param column a column
+     * @param row    a row
+     * @return the value of the row in the column, or null if it has none
+     */
+    private static Double valueOrNull(MetricSeries series, VesselSeries.Column column, int row) {
+        return series.isNull(column, row) ? null : series.value(column, row);
+    }
 
-        return validityMetrics;
+    /**
+     * @return the size of the result cache and its hit, miss, eviction and invalidation counts
+     */
+    public ResultCacheStatsDTO getResultCacheStats() {
+        ResultCache.Stats stats = resultCache.stats();
+        return new ResultCacheStatsDTO(cacheEnabled, stats.entries(), stats.weight(), stats.maxWeight(), stats.hits(),
+                stats.misses(), stats.evictions(), stats.invalidations());
     }
 
     /**
-     * Retrieves problem frequencies and validity metrics for a specific vessel.
+     * Returns a result from the result cache, computing it if it is missing or stale.
+     *
+     * @param generation the current generation of the data the result depends on
+     * @param key        the operation and its parameters
+     * @param loader     computes the result
+     * @param <T>        the type of the result
+     * @return the result
+     */
+    private <T> T cached(long generation, List<?> key, Supplier<T> loader) {
+        return cacheEnabled ? resultCache.get(key, generation, loader) : loader.get();
+    }
+
+    /**
+     * @param vesselCode the code of a vessel, or null for the whole fleet
+     * @return the generation of the metrics of the vessel, or of the whole dataset
+     */
+    private long generation(String vesselCode) {
+        return vesselCode != null ? datasetGenerations.current(vesselCode) : datasetGenerations.current();
+    }
+
+    /**
+     * @param vesselCodes the codes of some vessels, or null or empty for the whole fleet
+     * @return the latest generation of the metrics of the vessels, or the generation of the whole dataset
+     */
+    private long generation(Collection<String> vesselCodes) {
+        if (vesselCodes == null || vesselCodes.isEmpty()) {
+            return datasetGenerations.current();
+        }
+        long generation = 0;
+        for (String vesselCode : vesselCodes) {
+            generation = Math.max(generation, generation(vesselCode));
+        }
+        return generation;
+    }
+
+    /**
+     * @return the number of vessels and rows held by the columnar store and their estimated heap use
+     */
+    public ColumnStoreStatsDTO getColumnStoreStats() {
+        return columnarMetricStore.stats();
+    }
+
+    /**
+     * Resolves the counter of the problem counts a leaderboard is ranked by.
+     *
+     * @param sortBy the name of the counter, ignoring case and dashes
+     * @return the function reading the counter
+     * @throws IllegalArgumentException if the counter is unknown
+     */
+    private ToLongFunction<ProblemCountsDTO> problemCounter(String sortBy) {
+        switch (sortBy.replace("-", "").toLowerCase(Locale.ROOT)) {
+            case "missing":
+                return ProblemCountsDTO::getMissing;
+            case "belowzero":
+                return ProblemCountsDTO::getBelowZero;
+            case "outlier":
+                return ProblemCountsDTO::getOutlier;
+            case "invalid":
+                return ProblemCountsDTO::getInvalid;
+            case "total":
+                return ProblemCountsDTO::getTotal;
+            default:
+                String errorMsg = "Unknown problem counter: " + sortBy;
+                LOGGER.log(Level.SEVERE, errorMsg);
+                throw new IllegalArgumentException(errorMsg);
+        }
+    }
+
+    /**
+     * Summarizes the valid metrics of a vessel within a time period per time bucket, with the count,
+     * minimum, maximum and average of every field. The period is widened to whole buckets, which are
+     * aligned to multiples of their length since 1970-01-01T00:00. Buckets whose length is a multiple
+     * of an hour or a day are merged from the rollups maintained at import; other buckets are
+     * aggregated from the stored metrics with one grouped query.
      *
      * @param vesselCode the code of the vessel
-     * @return a map of problem frequencies and validity metrics
+     * @param start      the start of the period
+     * @param end        the end of the period
+     * @param bucket     the bucket size: "minute", "hour", "day", or "custom" with {@code bucketSeconds}
+     * @param bucketSeconds the length of a custom bucket in seconds
+     * @return the buckets with values, in chronological order
+     * @throws IllegalArgumentException if the bucket size is unknown or not positive, or the period ends before it starts
      */
-    public Map<String, Long> getProblemFrequenciesAndValidityMetrics(String vesselCode) {
-        validateVesselExists(vesselCode);
-        Map<String, Long> metrics = new HashMap<>();
+    public List<MetricBucketDTO> getBucketedSummaryMetrics(String vesselCode, LocalDateTime start, LocalDateTime end,
+                                                           String bucket, Long bucketSeconds) {
+        long seconds;
+        switch (bucket.toLowerCase(Locale.ROOT)) {
+            case "minute":
+                seconds = 60;
+                break;
+            case "hour":
+                seconds = RollupGranularity.HOUR.getSeconds();
+                break;
+            case "day":
+                seconds = RollupGranularity.DAY.getSeconds();
+                break;
+            case "custom":
+                if (bucketSeconds == null || bucketSeconds <= 0) {
+                    throw new IllegalArgumentException("A custom bucket needs a positive bucketSeconds");
+                }
+                seconds = bucketSeconds;
+                break;
+            default:
+                String errorMsg = "Unknown bucket: " + bucket + ". Expected one of minute, hour, day, custom";
+                LOGGER.log(Level.WARNING, errorMsg);
+                throw new IllegalArgumentException(errorMsg);
+        }
+        if (end.isBefore(start)) {
+            String message = "End date must not be before start date";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        LocalDateTime from = bucketStart(start, seconds);
+        LocalDateTime to = bucketStart(end, seconds).plusSeconds(seconds);
 
-        metrics.put("Missing", calculateMissingFrequency(vesselCode));
-        metrics.put("BelowZero", calculateBelowZeroFrequency(vesselCode));
-        metrics.put("Outlier", calculateOutlierFrequency(vesselCode));
+        List<MetricRollup> rollups;
+        if (rollupsEnabled && seconds % RollupGranularity.DAY.getSeconds() == 0) {
+            rollups = metricRollupRepository.findRollups(vesselCode, RollupGranularity.DAY, from, to);
+        } else if (rollupsEnabled && seconds % RollupGranularity.HOUR.getSeconds() == 0) {
+            rollups = metricRollupRepository.findRollups(vesselCode, RollupGranularity.HOUR, from, to);
+        } else {
+            rollups = metricRollupAggregator.aggregate(vesselCode, from, to, seconds);
+        }
 
-        Map<String, Long> validityMetrics = calculateValidityMetrics(vesselCode);
-        metrics.putAll(validityMetrics);
+        Map<LocalDateTime, MetricBucketDTO> buckets = new TreeMap<>();
+        for (MetricRollup rollup : rollups) {
+            LocalDateTime bucketStart = bucketStart(rollup.getBucketStart(), seconds);
+            buckets.computeIfAbsent(bucketStart, key -> new MetricBucketDTO(key, key.plusSeconds(seconds)))
+                    .merge(rollup.getFieldName(), rollup.getValueCount(), rollup.getValueSum(),
+                            rollup.getValueMin(), rollup.getValueMax());
+        }
+        LOGGER.log(Level.INFO, "Summarized " + rollups.size() + " rollups into " + buckets.size() + " buckets for vessel: " + vesselCode);
+        return new ArrayList<>(buckets.values());
+    }
 
-        return metrics.entrySet().stream()
-                .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()))
-                .collect(HashMap::new, (m, e) -> m.put(e.getKey(), e.getValue()), HashMap::putAll);
+    /**
+     * Returns the start of the bucket a datetime falls in, for buckets aligned to multiples of their length since 1970-01-01T00:00.
+     *
+     * @param datetime the datetime
+     * @param seconds  the length of a bucket in seconds
+     * @return the start of the bucket
+     */
+    private static LocalDateTime bucketStart(LocalDateTime datetime, long seconds) {
+        long epochSecond = datetime.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochSecond, seconds) * seconds, 0, ZoneOffset.UTC);
     }
 
     /**
@@ -106,26 +438,181 @@ public class MaritimeMetricStatisticsService {
      * @return the median speed difference
      */
     public double calculateMedianSpeedDifference(String vesselCode) {
-        List<MaritimeMetric> waypoints = maritimeMetricRepository.findAllByVesselCode(vesselCode);
-
-        List<Double> speedDifferences = waypoints.stream()
-                .filter(m -> m.getActualSpeedOverground() != null && m.getProposedSpeedOverground() != null)
-                .map(m -> Math.abs(m.getActualSpeedOverground() - m.getProposedSpeedOverground()))
-                .sorted() // Sort the differences
-                .toList();
+        return cached(generation(vesselCode), Arrays.asList("medianSpeedDifference", vesselCode),
+                () -> computeMedianSpeedDifference(vesselCode));
+    }
 
-        int size = speedDifferences.size();
-        if (size == 0) {
+    /**
+     * Computes {@link #calculateMedianSpeedDifference(String)} without the result cache.
+     */
+    private double computeMedianSpeedDifference(String vesselCode) {
+        double[] speedDifferences;
+        if (columnarMetricStore.isEnabled()) {
+            VesselSeries series = columnarMetricStore.get(vesselCode);
+            speedDifferences = series != null ? absoluteSpeedDifferences(series) : new double[0];
+        } else {
+            speedDifferences = toArray(maritimeMetricRepository.findAbsoluteSpeedDifferencesByVesselCode(vesselCode));
+        }
+        if (speedDifferences.length == 0) {
             return 0; // Handle the case with no valid speed differences
         }
+        // Selection finds the middle values in linear time, without sorting
+        return Quantiles.median(speedDifferences, speedDifferences.length);
+    }
+
+    /**
+     * Calculates the 50th, 90th, 95th and 99th percentiles of the absolute speed difference of a vessel
+     * within a time range. When the import sketches are enabled and the range starts and ends on hour
+     * boundaries, the percentiles are estimated from the hourly sketches within their relative accuracy;
+     * otherwise they are computed exactly from the stored rows of the range.
+     *
+     * @param vesselCode the code of the vessel
+     * @param start      the start of the range, inclusive
+     * @param end        the end of the range, exclusive
+     * @return the percentiles, which are null if the vessel has no speed differences in the range
+     * @throws IllegalArgumentException if the range ends before it starts
+     */
+    public SpeedDifferencePercentilesDTO getSpeedDifferencePercentiles(String vesselCode, LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            String message = "End date must not be before start date";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        double[] percentiles = new double[PERCENTILES.length];
+
+        // The sketches cover whole hours, so they cannot answer a range ending within an hour
+        if (speedDifferenceSketchService.isEnabled() && SpeedDifferenceSketchService.isStartOfHour(start)
+                && SpeedDifferenceSketchService.isStartOfHour(end)) {
+            QuantileSketch sketch = speedDifferenceSketchService.merge(vesselCode, start, end);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentiles[i] = sketch.quantile(PERCENTILES[i]);
+            }
+            return new SpeedDifferencePercentilesDTO(vesselCode, start, end, sketch.count(), false, percentiles);
+        }
+
+        MetricSeries series = rangeSeries(vesselCode);
+        double[] speedDifferences = series != null
+                ? absoluteSpeedDifferences(series, start.toEpochSecond(ZoneOffset.UTC), end.toEpochSecond(ZoneOffset.UTC))
+                : toArray(maritimeMetricRepository.findAbsoluteSpeedDifferencesByVesselCodeAndDatetimeRange(vesselCode, start, end));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles[i] = Quantiles.quantile(speedDifferences, speedDifferences.length, PERCENTILES[i]);
+        }
+        return new SpeedDifferencePercentilesDTO(vesselCode, start, end, speedDifferences.length, true, percentiles);
+    }
+
+    /**
+     * Copies values into a primitive array, dropping NaN.
+     *
+     * @param values the values
+     * @return the values that are numbers
+     */
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        int size = 0;
+        for (Double value : values) {
+            if (value != null && !Double.isNaN(value)) {
+                array[size++] = value;
+            }
+        }
+        return size == array.length ? array : Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Computes the absolute speed differences of the rows of a series with both speeds.
+     *
+     * @param series the series of a vessel
+     * @return the absolute speed differences
+     */
+    private static double[] absoluteSpeedDifferences(VesselSeries series) {
+        double[] differences = new double[series.size()];
+        int size = 0;
+        for (int row = 0; row < series.size(); row++) {
+            if (!series.isNull(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row)
+                    && !series.isNull(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row)) {
+                differences[size++] = Math.abs(series.value(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row)
+                        - series.value(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row));
+            }
+        }
+        return size == differences.length ? differences : Arrays.copyOf(differences, size);
+    }
+
+    /**
+     * Computes the absolute speed differences of the rows of a series with both speeds within a
+     * time range, reading only the rows of the range.
+     *
+     * @param series      the series of a vessel
+     * @param startSecond the start of the range in epoch seconds, inclusive
+     * @param endSecond   the end of the range in epoch seconds, exclusive
+     * @return the absolute speed differences
+     */
+    private static double[] absoluteSpeedDifferences(MetricSeries series, long startSecond, long endSecond) {
+        int from = series.firstRowAtOrAfter(startSecond);
+        int to = Math.max(from, series.firstRowAtOrAfter(endSecond));
+        double[] differences = new double[to - from];
+        int size = 0;
+        for (int row = from; row < to; row++) {
+            if (!series.isNull(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row)
+                    && !series.isNull(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row)) {
+                differences[size++] = Math.abs(series.value(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row)
+                        - series.value(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row));
+            }
+        }
+        return size == differences.length ? differences : Arrays.copyOf(differences, size);
+    }
+
+    /**
+     * Aggregates the speed differences of the valid metrics of a vessel or the whole fleet into a
+     * latitude/longitude grid, optionally within a time range. A range of whole days at one of the
+     * precisions maintained at import is answered from the stored cells; any other grid or range
+     * is aggregated from the stored metrics.
+     *
+     * @param vesselCode the code of the vessel, or null for the whole fleet
+     * @param precision  the number of decimal places of the grid, from 0 (1 degree cells) to 4
+     * @param start      the start of the range, inclusive, or null for no lower bound
+     * @param end        the end of the range, exclusive, or null for no upper bound
+     * @return the count, mean and maximum speed difference of every cell with data, ordered by latitude and longitude
+     * @throws IllegalArgumentException if the precision is out of range or the range ends before it starts
+     * @throws ResourceNotFoundException if a vessel is given and no data is found for it
+     */
+    public List<HeatmapCellDTO> getSpeedDifferenceHeatmap(String vesselCode, int precision, LocalDateTime start,
+                                                          LocalDateTime end) {
+        if (precision < 0 || precision > MAX_HEATMAP_PRECISION) {
+            String message = "Precision must be between 0 and " + MAX_HEATMAP_PRECISION;
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        if (start != null && end != null && end.isBefore(start)) {
+            String message = "End date must not be before start date";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        if (vesselCode != null) {
+            validateVesselExists(vesselCode);
+        }
 
-        if (size % 2 == 0) {
-            // Average of the two middle numbers for even count
-            return (speedDifferences.get(size / 2 - 1) + speedDifferences.get(size / 2)) / 2.0;
+        List<SpeedDifferenceCell> cells;
+        if (heatmapEnabled && heatmapPrecisions.contains(precision) && isStartOfDay(start) && isStartOfDay(end)) {
+            cells = speedDifferenceGridAggregator.findCells(vesselCode, precision,
+                    start != null ? start.toLocalDate() : null, end != null ? end.toLocalDate() : null);
         } else {
-            // Middle number for odd count
-            return speedDifferences.get(size / 2);
+            cells = speedDifferenceGridAggregator.aggregate(vesselCode, precision, start, end);
+        }
+        List<HeatmapCellDTO> heatmap = new ArrayList<>(cells.size());
+        for (SpeedDifferenceCell cell : cells) {
+            heatmap.add(new HeatmapCellDTO(precision, cell.getCellLat(), cell.getCellLon(), cell.getValueCount(),
+                    cell.getValueSum(), cell.getValueMax()));
         }
+        LOGGER.log(Level.INFO, "Aggregated speed differences into " + heatmap.size() + " cells of precision " + precision +
+                " for vesselCode: " + (vesselCode != null ? vesselCode : "all"));
+        return heatmap;
+    }
+
+    /**
+     * @param datetime a datetime, or null
+     * @return true if the datetime is null or at midnight
+     */
+    private static boolean isStartOfDay(LocalDateTime datetime) {
+        return datetime == null || datetime.toLocalTime().equals(LocalTime.MIDNIGHT);
     }
 
     /**
@@ -148,6 +635,63 @@ public class MaritimeMetricStatisticsService {
         }
     }
 
+    /**
+     * Ranks vessels by their median absolute speed difference, most compliant (lowest median) first.
+     * The speed differences of all requested vessels are read in one query and their medians are
+     * computed in parallel on the common fork-join pool. Vessels without speed differences are
+     * ranked last, with a null median.
+     *
+     * @param vesselCodes the codes of the vessels to rank, or null or empty for the whole fleet
+     * @return the ranking, with the median and sample count of every vessel
+     */
+    public List<VesselComplianceDTO> rankVesselsByMedianSpeedDifference(Collection<String> vesselCodes) {
+        return cached(generation(vesselCodes), Arrays.asList("complianceRanking", vesselCodes != null ? new ArrayList<>(vesselCodes) : null),
+                () -> computeVesselRanking(vesselCodes));
+    }
+
+    /**
+     * Computes {@link #rankVesselsByMedianSpeedDifference(Collection)} without the result cache.
+     */
+    private List<VesselComplianceDTO> computeVesselRanking(Collection<String> vesselCodes) {
+        boolean wholeFleet = vesselCodes == null || vesselCodes.isEmpty();
+        Map<String, SpeedDifferenceSamples> samplesByVessel = new LinkedHashMap<>();
+        if (!wholeFleet) {
+            vesselCodes.forEach(vesselCode -> samplesByVessel.put(vesselCode, new SpeedDifferenceSamples(vesselCode)));
+        }
+        long sampleCount = 0;
+        if (columnarMetricStore.isEnabled()) {
+            Collection<VesselSeries> allSeries = wholeFleet ? columnarMetricStore.all() : vesselCodes.stream()
+                    .map(columnarMetricStore::get).filter(series -> series != null).toList();
+            for (VesselSeries series : allSeries) {
+                SpeedDifferenceSamples vessel = new SpeedDifferenceSamples(series.vesselCode());
+                vessel.values = absoluteSpeedDifferences(series);
+                vessel.size = vessel.values.length;
+                samplesByVessel.put(series.vesselCode(), vessel);
+                sampleCount += vessel.size;
+            }
+        } else {
+            List<Object[]> rows = wholeFleet
+                    ? maritimeMetricRepository.findAbsoluteSpeedDifferences()
+                    : maritimeMetricRepository.findAbsoluteSpeedDifferencesByVesselCodeIn(vesselCodes);
+            for (Object[] row : rows) {
+                String vesselCode = (String) row[0];
+                samplesByVessel.computeIfAbsent(vesselCode, SpeedDifferenceSamples::new).add((Double) row[1]);
+            }
+            sampleCount = rows.size();
+        }
+
+        SpeedDifferenceSamples[] samples = samplesByVessel.values().toArray(new SpeedDifferenceSamples[0]);
+        ForkJoinPool.commonPool().invoke(new MedianTask(samples, 0, samples.length));
+        LOGGER.log(Level.INFO, "Ranked " + samples.length + " vessels from " + sampleCount + " speed differences");
+
+        return Arrays.stream(samples)
+                .sorted(Comparator.comparing((SpeedDifferenceSamples vessel) -> vessel.size == 0)
+                        .thenComparingDouble(vessel -> vessel.median)
+                        .thenComparing(vessel -> vessel.vesselCode, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(vessel -> new VesselComplianceDTO(vessel.vesselCode, vessel.size == 0 ? null : vessel.median, vessel.size))
+                .toList();
+    }
+
     /**
      * Retrieves speed outliers for a specific vessel based on a given threshold.
      *
@@ -156,10 +700,20 @@ public class MaritimeMetricStatisticsService {
      * @return a list of MaritimeMetric objects that are considered speed outliers
      */
     public List<MaritimeMetric> getSpeedOutliers(String vesselCode, double speedThreshold) {
+        return cached(generation(vesselCode), Arrays.asList("speedOutliers", vesselCode, speedThreshold),
+                () -> Collections.unmodifiableList(computeSpeedOutliers(vesselCode, speedThreshold)));
+    }
+
+    /**
+     * Computes {@link #getSpeedOutliers(String, double)} without the result cache.
+     */
+    private List<MaritimeMetric> computeSpeedOutliers(String vesselCode, double speedThreshold) {
         validateVesselExists(vesselCode);
         validateThreshold(speedThreshold);
 
-        List<MaritimeMetric> outliers = maritimeMetricRepository.findSpeedOutliersByVesselCode(vesselCode, speedThreshold);
+        List<MaritimeMetric> outliers = columnarMetricStore.isEnabled()
+                ? findOutliers(columnarMetricStore.get(vesselCode), VesselSeries.Column.SPEED_DEVIATION, speedThreshold)
+                : maritimeMetricRepository.findSpeedOutliersByVesselCode(vesselCode, speedThreshold);
         if (outliers.isEmpty()) {
             String message = "No speed outliers found for vessel " + vesselCode + " with threshold " + speedThreshold;
             LOGGER.log(Level.SEVERE, message);
@@ -176,10 +730,20 @@ public class MaritimeMetricStatisticsService {
      * @return a list of MaritimeMetric objects that are considered fuel outliers
      */
     public List<MaritimeMetric> getFuelOutliers(String vesselCode, double fuelThreshold) {
+        return cached(generation(vesselCode), Arrays.asList("fuelOutliers", vesselCode, fuelThreshold),
+                () -> Collections.unmodifiableList(computeFuelOutliers(vesselCode, fuelThreshold)));
+    }
+
+    /**
+     * Computes {@link #getFuelOutliers(String, double)} without the result cache.
+     */
+    private List<MaritimeMetric> computeFuelOutliers(String vesselCode, double fuelThreshold) {
         validateVesselExists(vesselCode);
         validateThreshold(fuelThreshold);
 
-        List<MaritimeMetric> outliers = maritimeMetricRepository.findFuelOutliersByVesselCode(vesselCode, fuelThreshold);
+        List<MaritimeMetric> outliers = columnarMetricStore.isEnabled()
+                ? findOutliers(columnarMetricStore.get(vesselCode), VesselSeries.Column.FUEL_DEVIATION, fuelThreshold)
+                : maritimeMetricRepository.findFuelOutliersByVesselCode(vesselCode, fuelThreshold);
         if (outliers.isEmpty()) {
             String message = "No fuel outliers found for vessel " + vesselCode + " with threshold " + fuelThreshold;
             LOGGER.log(Level.SEVERE, message);
@@ -188,6 +752,132 @@ public class MaritimeMetricStatisticsService {
         return outliers;
     }
 
+    /**
+     * Retrieves the metrics with the largest relative speed or fuel deviation, of one vessel or the
+     * whole fleet. The stored deviations are streamed through a heap bounded to {@code k} entries,
+     * so only the selected metrics are loaded.
+     *
+     * @param type       the deviation to rank by: "speed" or "fuel"
+     * @param vesselCode the code of the vessel, or null for the whole fleet
+     * @param k          the number of metrics to return, between 1 and 1000
+     * @return up to k metrics, the largest deviation first; equal deviations by ascending id
+     * @throws IllegalArgumentException  if the type or k is invalid
+     * @throws ResourceNotFoundException if the vessel has no data
+     */
+    public List<MaritimeMetric> getTopOutliers(String type, String vesselCode, int k) {
+        return cached(generation(vesselCode), Arrays.asList("topOutliers", type, vesselCode, k),
+                () -> Collections.unmodifiableList(computeTopOutliers(type, vesselCode, k)));
+    }
+
+    /**
+     * Computes {@link #getTopOutliers(String, String, int)} without the result cache.
+     */
+    private List<MaritimeMetric> computeTopOutliers(String type, String vesselCode, int k) {
+        boolean speed;
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "speed":
+                speed = true;
+                break;
+            case "fuel":
+                speed = false;
+                break;
+            default:
+                String errorMsg = "Unknown outlier type: " + type + ". Expected speed or fuel";
+                LOGGER.log(Level.WARNING, errorMsg);
+                throw new IllegalArgumentException(errorMsg);
+        }
+        if (k < 1 || k > MAX_TOP_OUTLIERS) {
+            String message = "k must be between 1 and " + MAX_TOP_OUTLIERS;
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        if (vesselCode != null) {
+            validateVesselExists(vesselCode);
+        }
+
+        if (columnarMetricStore.isEnabled()) {
+            VesselSeries series = vesselCode != null ? columnarMetricStore.get(vesselCode) : null;
+            List<VesselSeries> allSeries = vesselCode == null ? columnarMetricStore.all()
+                    : series != null ? List.of(series) : List.of();
+            return topOutliers(allSeries, speed ? VesselSeries.Column.SPEED_DEVIATION : VesselSeries.Column.FUEL_DEVIATION, k);
+        }
+        long[] ids = transactionTemplate.execute(status -> {
+            Stream<Object[]> deviations;
+            if (vesselCode == null) {
+                deviations = speed ? maritimeMetricRepository.streamSpeedDeviations()
+                        : maritimeMetricRepository.streamFuelDeviations();
+            } else {
+                deviations = speed ? maritimeMetricRepository.streamSpeedDeviationsByVesselCode(vesselCode)
+                        : maritimeMetricRepository.streamFuelDeviationsByVesselCode(vesselCode);
+            }
+            TopK topK = new TopK(k);
+            try (deviations) {
+                deviations.forEach(row -> topK.offer((Long) row[0], (Double) row[1]));
+            }
+            return topK.drainDescending();
+        });
+
+        List<Long> ranked = Arrays.stream(ids).boxed().toList();
+        Map<Long, MaritimeMetric> metricsById = new HashMap<>();
+        maritimeMetricRepository.findAllById(ranked).forEach(metric -> metricsById.put(metric.getId(), metric));
+        LOGGER.log(Level.INFO, "Selected top " + ids.length + " " + type + " outliers for " +
+                (vesselCode != null ? "vessel: " + vesselCode : "the fleet"));
+        return ranked.stream().map(metricsById::get).toList();
+    }
+
+    /**
+     * Selects the metrics of a series that are invalid and whose deviation exceeds a threshold.
+     *
+     * @param series    the series of the vessel
+     * @param deviation the deviation column
+     * @param threshold the threshold
+     * @return detached copies of the outlier metrics, in datetime order
+     */
+    private static List<MaritimeMetric> findOutliers(VesselSeries series, VesselSeries.Column deviation, double threshold) {
+        List<MaritimeMetric> outliers = new ArrayList<>();
+        for (int row = 0; row < series.size(); row++) {
+            if (series.hasFlag(row, VesselSeries.INVALID) && !series.isNull(deviation, row)
+                    && series.value(deviation, row) > threshold) {
+                outliers.add(series.toMetric(row));
+            }
+        }
+        return outliers;
+    }
+
+    /**
+     * Selects the k metrics with the largest deviation from some series with a bounded heap. A second
+     * pass over the series copies the selected rows, so only k metrics are created.
+     *
+     * @param allSeries the series to select from
+     * @param deviation the deviation column
+     * @param k         the number of metrics to select
+     * @return detached copies of the selected metrics, the largest deviation first; equal deviations by ascending id
+     */
+    private static List<MaritimeMetric> topOutliers(Collection<VesselSeries> allSeries, VesselSeries.Column deviation, int k) {
+        TopK topK = new TopK(k);
+        for (VesselSeries series : allSeries) {
+            for (int row = 0; row < series.size(); row++) {
+                if (!series.isNull(deviation, row)) {
+                    topK.offer(series.id(row), series.value(deviation, row));
+                }
+            }
+        }
+        long[] ids = topK.drainDescending();
+        Set<Long> selected = new HashSet<>();
+        for (long id : ids) {
+            selected.add(id);
+        }
+        Map<Long, MaritimeMetric> metricsById = new HashMap<>();
+        for (VesselSeries series : allSeries) {
+            for (int row = 0; row < series.size() && metricsById.size() < ids.length; row++) {
+                if (!series.isNull(deviation, row) && selected.contains(series.id(row))) {
+                    metricsById.put(series.id(row), series.toMetric(row));
+                }
+            }
+        }
+        return Arrays.stream(ids).mapToObj(metricsById::get).toList();
+    }
+
     /**
      * Validates whether data exists for a specific vessel code.
      *
@@ -195,13 +885,26 @@ public class MaritimeMetricStatisticsService {
      * @throws ResourceNotFoundException if no data is found for the vessel
      */
     private void validateVesselExists(String vesselCode) {
-        if (maritimeMetricRepository.findAllByVesselCode(vesselCode).isEmpty()) {
-            String message = "No data found for vessel " + vesselCode;
-            LOGGER.log(Level.SEVERE, message);
-            throw new ResourceNotFoundException(message);
+        boolean exists = columnarMetricStore.isEnabled()
+                ? columnarMetricStore.get(vesselCode) != null
+                : maritimeMetricRepository.existsByVesselCode(vesselCode);
+        if (!exists) {
+            throw vesselNotFound(vesselCode);
         }
     }
 
+    /**
+     * Logs and creates the exception for a vessel without data.
+     *
+     * @param vesselCode the code of the vessel
+     * @return the exception to throw
+     */
+    private ResourceNotFoundException vesselNotFound(String vesselCode) {
+        String message = "No data found for vessel " + vesselCode;
+        LOGGER.log(Level.SEVERE, message);
+        return new ResourceNotFoundException(message);
+    }
+
     /**
      * Validates the threshold value.
      *
@@ -218,62 +921,148 @@ public class MaritimeMetricStatisticsService {
 
     /**
      * Retrieves consecutive groups of problematic waypoints for a specific problem type.
+     * The waypoints are read in datetime order and split in a single pass wherever the gap
+     * between two waypoints exceeds the configured maximum gap; waypoints without a datetime
+     * are left out.
      *
      * @param vesselCode  the code of the vessel
      * @param problemType the type of problem to filter by (e.g., "missing", "belowzero", "outlier")
-     * @return a list of lists containing consecutive MaritimeMetric objects with the specified problem
+     * @return a list of lists containing consecutive MaritimeMetric objects with the specified problem, largest first
      */
     public List<List<MaritimeMetric>> getConsecutiveProblematicGroups(String vesselCode, String problemType) {
+        return cached(generation(vesselCode), Arrays.asList("problematicGroups", vesselCode, problemType),
+                () -> Collections.unmodifiableList(computeConsecutiveProblematicGroups(vesselCode, problemType)));
+    }
+
+    /**
+     * Computes {@link #getConsecutiveProblematicGroups(String, String)} without the result cache.
+     */
+    private List<List<MaritimeMetric>> computeConsecutiveProblematicGroups(String vesselCode, String problemType) {
         LOGGER.log(Level.INFO, "Retrieving consecutive groups for vessel: " + vesselCode + " with problem type: " + problemType);
 
-        List<MaritimeMetric> waypoints = getWaypointsByProblemType(vesselCode, problemType);
+        String problem = normalizeProblemType(problemType);
+        List<MaritimeMetric> waypoints;
+        if (columnarMetricStore.isEnabled()) {
+            VesselSeries series = columnarMetricStore.get(vesselCode);
+            waypoints = series != null ? problemWaypoints(series, problemFlag(problem), null, null) : List.of();
+        } else {
+            waypoints = maritimeMetricRepository.findProblemWaypointsByVesselCode(vesselCode, problem);
+        }
 
         List<List<MaritimeMetric>> groupedProblems = new ArrayList<>();
         List<MaritimeMetric> currentGroup = new ArrayList<>();
-
-        for (int i = 0; i < waypoints.size(); i++) {
-            if (i == 0 || isConsecutive(waypoints.get(i - 1), waypoints.get(i))) {
-                currentGroup.add(waypoints.get(i));
-            } else {
-                groupedProblems.add(new ArrayList<>(currentGroup));
-                LOGGER.log(Level.INFO, "Added group with size: " + currentGroup.size());
-                currentGroup.clear();
-                currentGroup.add(waypoints.get(i));
+        LocalDateTime previous = null;
+        for (MaritimeMetric waypoint : waypoints) {
+            if (previous != null && !isConsecutive(previous, waypoint.getDatetime(), episodeMaxGap)) {
+                groupedProblems.add(currentGroup);
+                currentGroup = new ArrayList<>();
             }
+            currentGroup.add(waypoint);
+            previous = waypoint.getDatetime();
         }
-
         if (!currentGroup.isEmpty()) {
             groupedProblems.add(currentGroup);
-            LOGGER.log(Level.INFO, "Added last group with size: " + currentGroup.size());
         }
 
         // Sort groups by size in descending order
         groupedProblems.sort((group1, group2) -> Integer.compare(group2.size(), group1.size()));
-        LOGGER.log(Level.INFO, "Sorted groups by size in descending order for vessel: " + vesselCode);
+        LOGGER.log(Level.INFO, "Found " + groupedProblems.size() + " groups for vessel: " + vesselCode);
 
         return groupedProblems;
     }
 
-// Helper method to get waypoints by problem type
+    /**
+     * Detects the episodes of consecutive problematic waypoints of a vessel and returns one page of their summaries.
+     * The ids and datetimes of the waypoints are streamed in datetime order and folded into episode summaries in a
+     * single pass, so no entities are loaded unless the members are requested for the returned page.
+     *
+     * @param vesselCode     the code of the vessel
+     * @param problemType    the type of problem (e.g., "missing", "belowzero", "outlier")
+     * @param maxGapSeconds  the largest gap between consecutive waypoints of an episode, or null for the configured gap
+     * @param sortBy         "size" to list the largest episodes first, or "start" to list them chronologically
+     * @param page           the zero-based page number
+     * @param size           the maximum number of episodes per page
+     * @param includeMembers true to include the waypoints of each episode on the page
+     * @return the page of episode summaries
+     * @throws IllegalArgumentException if a parameter is invalid
+     */
+    public ProblemEpisodePageDTO getProblemEpisodes(String vesselCode, String problemType, Long maxGapSeconds,
+                                                    String sortBy, int page, int size, boolean includeMembers) {
+        String problem = normalizeProblemType(problemType);
+        if (page < 0 || size <= 0 || (maxGapSeconds != null && maxGapSeconds < 0)) {
+            String message = "Page must be non-negative, size positive and the maximum gap non-negative";
+            LOGGER.log(Level.WARNING, message);
+            throw new IllegalArgumentException(message);
+        }
+        Comparator<ProblemEpisodeDTO> order;
+        switch (sortBy.toLowerCase(Locale.ROOT)) {
+            case "size":
+                order = Comparator.comparingLong(ProblemEpisodeDTO::getCount).reversed()
+                        .thenComparing(ProblemEpisodeDTO::getStart);
+                break;
+            case "start":
+                order = Comparator.comparing(ProblemEpisodeDTO::getStart);
+                break;
+            default:
+                String errorMsg = "Unknown episode order: " + sortBy;
+                LOGGER.log(Level.WARNING, errorMsg);
+                throw new IllegalArgumentException(errorMsg);
+        }
+        Duration maxGap = maxGapSeconds != null ? Duration.ofSeconds(maxGapSeconds) : episodeMaxGap;
+
+        List<ProblemEpisodeDTO> episodes;
+        VesselSeries series = columnarMetricStore.isEnabled() ? columnarMetricStore.get(vesselCode) : null;
+        if (columnarMetricStore.isEnabled()) {
+            EpisodeDetector detector = new EpisodeDetector(maxGap);
+            int flag = problemFlag(problem);
+            for (int row = 0; series != null && row < series.datedRows(); row++) {
+                if (series.hasFlag(row, flag)) {
+                    detector.accept(series.id(row), series.datetime(row));
+                }
+            }
+            episodes = detector.finish();
+        } else {
+            episodes = transactionTemplate.execute(status -> {
+                EpisodeDetector detector = new EpisodeDetector(maxGap);
+                try (Stream<Object[]> timeline = maritimeMetricRepository.streamProblemTimelineByVesselCode(vesselCode, problem)) {
+                    for (Iterator<Object[]> rows = timeline.iterator(); rows.hasNext(); ) {
+                        Object[] row = rows.next();
+                        detector.accept((Long) row[0], (LocalDateTime) row[1]);
+                    }
+                }
+                return detector.finish();
+            });
+        }
+
+        episodes.sort(order);
+        int from = (int) Math.min((long) page * size, episodes.size());
+        List<ProblemEpisodeDTO> pageEpisodes = episodes.subList(from, Math.min(from + size, episodes.size()));
+        if (includeMembers) {
+            for (ProblemEpisodeDTO episode : pageEpisodes) {
+                episode.setMembers(series != null
+                        ? problemWaypoints(series, problemFlag(problem), episode.getStart(), episode.getEnd())
+                        : maritimeMetricRepository.findProblemWaypointsByVesselCodeAndDatetimeBetween(
+                        vesselCode, problem, episode.getStart(), episode.getEnd()));
+            }
+        }
+        LOGGER.log(Level.INFO, "Found " + episodes.size() + " " + problem + " episodes for vessel: " + vesselCode);
+        return new ProblemEpisodePageDTO(episodes.size(), page, size, maxGap.getSeconds(), new ArrayList<>(pageEpisodes));
+    }
 
     /**
-     * Retrieves waypoints for a specific vessel filtered by the type of problem.
+     * Resolves a problem type to the name used by the repository queries.
      *
-     * @param vesselCode  the code of the vessel
-     * @param problemType the type of problem to filter by (e.g., "missing", "belowzero", "outlier")
-     * @return a list of MaritimeMetric objects that match the specified problem type
+     * @param problemType the type of problem (e.g., "missing", "belowzero" or "below-zero", "outlier")
+     * @return "missing", "belowzero" or "outlier"
      * @throws IllegalArgumentException if an unknown problem type is provided
      */
-    private List<MaritimeMetric> getWaypointsByProblemType(String vesselCode, String problemType) {
-        LOGGER.log(Level.INFO, "Fetching waypoints for vessel: " + vesselCode + " with problem type: " + problemType);
-
-        switch (problemType.toLowerCase()) {
+    private String normalizeProblemType(String problemType) {
+        String problem = problemType.replace("-", "").toLowerCase(Locale.ROOT);
+        switch (problem) {
             case "missing":
-                return maritimeMetricRepository.findAllByVesselCodeAndIsMissingTrue(vesselCode);
             case "belowzero":
-                return maritimeMetricRepository.findAllByVesselCodeAndIsBelowZeroTrue(vesselCode);
             case "outlier":
-                return maritimeMetricRepository.findAllByVesselCodeAndIsOutlierTrue(vesselCode);
+                return problem;
             default:
                 String errorMsg = "Unknown problem type: " + problemType;
                 LOGGER.log(Level.SEVERE, errorMsg);
@@ -281,25 +1070,217 @@ public class MaritimeMetricStatisticsService {
         }
     }
 
+    /**
+     * Resolves a normalized problem type to the flag of the series rows with that problem.
+     *
+     * @param problem "missing", "belowzero" or "outlier"
+     * @return the flag
+     */
+    private static int problemFlag(String problem) {
+        switch (problem) {
+            case "missing":
+                return VesselSeries.MISSING;
+            case "belowzero":
+                return VesselSeries.BELOW_ZERO;
+            default:
+                return VesselSeries.OUTLIER;
+        }
+    }
+
+    /**
+     * Copies the rows of a series with a problem flag and a datetime, optionally within a period.
+     *
+     * @param series the series of the vessel
+     * @param flag   the problem flag
+     * @param start  the start of the period, inclusive, or null for no lower bound
+     * @param end    the end of the period, inclusive, or null for no upper bound
+     * @return detached copies of the waypoints, in datetime order
+     */
+    private static List<MaritimeMetric> problemWaypoints(VesselSeries series, int flag, LocalDateTime start, LocalDateTime end) {
+        List<MaritimeMetric> waypoints = new ArrayList<>();
+        long endSecond = end != null ? end.toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+        for (int row = start != null ? series.firstRowAtOrAfter(start.toEpochSecond(ZoneOffset.UTC)) : 0;
+             row < series.datedRows() && series.epochSecond(row) <= endSecond; row++) {
+            if (series.hasFlag(row, flag)) {
+                waypoints.add(series.toMetric(row));
+            }
+        }
+        return waypoints;
+    }
+
     /**
      * Checks if two waypoints are consecutive based on their timestamps.
      *
-     * @param prev    the previous MaritimeMetric object
-     * @param current the current MaritimeMetric object
+     * @param previous the timestamp of the previous waypoint
+     * @param current  the timestamp of the current waypoint
+     * @param maxGap   the largest gap between consecutive waypoints
      * @return true if the waypoints are consecutive, false otherwise
      */
-    private boolean isConsecutive(MaritimeMetric prev, MaritimeMetric current) {
-        if (prev.getDatetime() == null || current.getDatetime() == null) {
-            LOGGER.log(Level.WARNING, "One of the waypoints has a null timestamp, marking as non-consecutive");
-            return false;
+    private static boolean isConsecutive(LocalDateTime previous, LocalDateTime current, Duration maxGap) {
+        Duration timeDifference = Duration.between(previous, current);
+        return !timeDifference.isNegative() && timeDifference.compareTo(maxGap) <= 0;
+    }
+
+    /**
+     * Splits waypoints, given in datetime order, into episodes wherever the gap between two exceeds the maximum gap.
+     */
+    private static final class EpisodeDetector {
+
+        private final Duration maxGap;
+        private final List<ProblemEpisodeDTO> episodes = new ArrayList<>();
+        private EpisodeBuilder current;
+
+        /**
+         * Constructs a detector.
+         *
+         * @param maxGap the largest gap between consecutive waypoints of an episode
+         */
+        private EpisodeDetector(Duration maxGap) {
+            this.maxGap = maxGap;
+        }
+
+        /**
+         * Adds the next waypoint, closing the current episode if the waypoint does not follow it closely enough.
+         *
+         * @param id       the id of the waypoint
+         * @param datetime the datetime of the waypoint
+         */
+        private void accept(Long id, LocalDateTime datetime) {
+            if (current != null && !isConsecutive(current.end, datetime, maxGap)) {
+                episodes.add(current.build());
+                current = null;
+            }
+            if (current == null) {
+                current = new EpisodeBuilder(id, datetime);
+            } else {
+                current.extend(id, datetime);
+            }
+        }
+
+        /**
+         * @return the summaries of all episodes, in datetime order
+         */
+        private List<ProblemEpisodeDTO> finish() {
+            if (current != null) {
+                episodes.add(current.build());
+                current = null;
+            }
+            return episodes;
+        }
+    }
+
+    /**
+     * Accumulates the summary of an episode while its waypoints are streamed.
+     */
+    private static final class EpisodeBuilder {
+
+        private final Long firstId;
+        private final LocalDateTime start;
+        private Long lastId;
+        private LocalDateTime end;
+        private long count;
+
+        /**
+         * Starts an episode at a waypoint.
+         *
+         * @param id       the id of the waypoint
+         * @param datetime the datetime of the waypoint
+         */
+        private EpisodeBuilder(Long id, LocalDateTime datetime) {
+            this.firstId = id;
+            this.start = datetime;
+            extend(id, datetime);
+        }
+
+        /**
+         * Adds the next waypoint to the episode.
+         *
+         * @param id       the id of the waypoint
+         * @param datetime the datetime of the waypoint
+         */
+        private void extend(Long id, LocalDateTime datetime) {
+            lastId = id;
+            end = datetime;
+            count++;
         }
 
-        Duration timeDifference = Duration.between(prev.getDatetime(), current.getDatetime());
-        boolean isConsecutive = !timeDifference.isNegative() && timeDifference.compareTo(TIME_THRESHOLD) <= 0;
+        /**
+         * @return the summary of the episode
+         */
+        private ProblemEpisodeDTO build() {
+            return new ProblemEpisodeDTO(start, end, count, firstId, lastId);
+        }
+    }
+
+    /**
+     * The absolute speed differences of one vessel, collected into a growing primitive array.
+     */
+    private static final class SpeedDifferenceSamples {
 
-        LOGGER.log(Level.INFO, "Checking consecutiveness: Previous timestamp = " + prev.getDatetime() +
-                ", Current timestamp = " + current.getDatetime() + ", isConsecutive = " + isConsecutive);
+        private final String vesselCode;
+        private double[] values = new double[16];
+        private int size;
+        private double median;
 
-        return isConsecutive;
+        /**
+         * Constructs empty samples for a vessel.
+         *
+         * @param vesselCode the code of the vessel
+         */
+        private SpeedDifferenceSamples(String vesselCode) {
+            this.vesselCode = vesselCode;
+        }
+
+        /**
+         * Adds a speed difference, ignoring null and NaN.
+         *
+         * @param value the speed difference
+         */
+        private void add(Double value) {
+            if (value == null || Double.isNaN(value)) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Computes the medians of a range of vessels, splitting the range in halves until one vessel is left.
+     */
+    private static final class MedianTask extends RecursiveAction {
+
+        private final SpeedDifferenceSamples[] samples;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task for the vessels {@code samples[from..to)}.
+         *
+         * @param samples the samples of all vessels
+         * @param from    the first vessel, inclusive
+         * @param to      the last vessel, exclusive
+         */
+        private MedianTask(SpeedDifferenceSamples[] samples, int from, int to) {
+            this.samples = samples;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MedianTask(samples, from, middle), new MedianTask(samples, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                SpeedDifferenceSamples vessel = samples[i];
+                vessel.median = vessel.size == 0 ? Double.NaN : Quantiles.median(vessel.values, vessel.size);
+                vessel.values = null; // The samples are no longer needed once the median is known
+            }
+        }
     }
 }
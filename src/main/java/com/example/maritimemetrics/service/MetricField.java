@@ -0,0 +1,100 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The numeric fields of a maritime metric, with their position in the CSV file.
+ * Used by the import to parse the fields and by the validation rules to refer to them.
+ */
+enum MetricField {
+
+    LATITUDE("latitude", 2, MaritimeMetric::getLatitude, MaritimeMetric::setLatitude),
+    LONGITUDE("longitude", 3, MaritimeMetric::getLongitude, MaritimeMetric::setLongitude),
+    POWER("power", 4, MaritimeMetric::getPower, MaritimeMetric::setPower),
+    FUEL_CONSUMPTION("fuelConsumption", 5, MaritimeMetric::getFuelConsumption, MaritimeMetric::setFuelConsumption),
+    ACTUAL_SPEED_OVERGROUND("actualSpeedOverground", 6,
+            MaritimeMetric::getActualSpeedOverground, MaritimeMetric::setActualSpeedOverground),
+    PROPOSED_SPEED_OVERGROUND("proposedSpeedOverground", 7,
+            MaritimeMetric::getProposedSpeedOverground, MaritimeMetric::setProposedSpeedOverground),
+    PREDICTED_FUEL_CONSUMPTION("predictedFuelConsumption", 8,
+            MaritimeMetric::getPredictedFuelConsumption, MaritimeMetric::setPredictedFuelConsumption);
+
+    private static final MetricField[] FIELDS = values();
+
+    private final String fieldName;
+    private final int column;
+    private final Function<MaritimeMetric, Double> getter;
+    private final BiConsumer<MaritimeMetric, Double> setter;
+
+    MetricField(String fieldName, int column, Function<MaritimeMetric, Double> getter,
+                BiConsumer<MaritimeMetric, Double> setter) {
+        this.fieldName = fieldName;
+        this.column = column;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * @return the name of the field, as used in import reports
+     */
+    String fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return the index of the field in a CSV row
+     */
+    int column() {
+        return column;
+    }
+
+    /**
+     * Reads the field from a metric.
+     *
+     * @param metric the metric
+     * @return the value, or null if not set
+     */
+    Double get(MaritimeMetric metric) {
+        return getter.apply(metric);
+    }
+
+    /**
+     * Sets the field of a metric.
+     *
+     * @param metric the metric
+     * @param value  the value, or null to clear it
+     */
+    void set(MaritimeMetric metric, Double value) {
+        setter.accept(metric, value);
+    }
+
+    /**
+     * Returns all fields in CSV order without copying.
+     *
+     * @return the shared array of fields, which must not be modified
+     */
+    static MetricField[] fields() {
+        return FIELDS;
+    }
+
+    /**
+     * Resolves a field from its name in camelCase or kebab-case, ignoring case.
+     *
+     * @param name the name of the field
+     * @return the matching field
+     * @throws IllegalArgumentException if no field has the given name
+     */
+    static MetricField fromName(String name) {
+        String normalized = name.replace("-", "").replace("_", "").toLowerCase(Locale.ROOT);
+        for (MetricField field : FIELDS) {
+            if (field.fieldName.toLowerCase(Locale.ROOT).equals(normalized)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric field: " + name);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import com.example.maritimemetrics.util.QuantileSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service class keeping quantile sketches of the absolute speed difference per vessel and hour.
+ * <p>
+ * The sketches are maintained by the CSV import as chunks are committed, so percentiles over a
+ * range of whole hours are answered by merging the hourly sketches of the range instead of reading
+ * the vessel's rows. Hours with rows replaced by an upsert are rebuilt from the database. Rows
+ * without a vessel code or datetime are not sketched. The sketches live in memory, like the
+ * database itself, and are empty after a restart.
+ */
+@Service
+public class SpeedDifferenceSketchService {
+
+    private static final Logger LOGGER = Logger.getLogger(SpeedDifferenceSketchService.class.getName());
+
+    @Autowired
+    private MaritimeMetricRepository maritimeMetricRepository;
+
+    @Value("${maritime.percentiles.sketch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${maritime.percentiles.sketch.relative-accuracy:0.01}")
+    private double relativeAccuracy;
+
+    private final Map<String, NavigableMap<LocalDateTime, QuantileSketch>> sketchesByVessel = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if the sketches are maintained and used to answer percentile queries
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Drops all sketches, when the stored metrics are replaced.
+     */
+    public void clear() {
+        sketchesByVessel.clear();
+    }
+
+    /**
+     * Adds newly stored metrics to the sketches of their vessel and hour.
+     *
+     * @param metrics the metrics that were inserted
+     */
+    public void add(List<MaritimeMetric> metrics) {
+        if (!enabled) {
+            return;
+        }
+        for (MaritimeMetric metric : metrics) {
+            if (metric.getVesselCode() == null || metric.getDatetime() == null || metric.getActualSpeedOverground() == null
+                    || metric.getProposedSpeedOverground() == null) {
+                continue;
+            }
+            double difference = Math.abs(metric.getActualSpeedOverground() - metric.getProposedSpeedOverground());
+            NavigableMap<LocalDateTime, QuantileSketch> sketches = sketchesOf(metric.getVesselCode());
+            synchronized (sketches) {
+                sketches.computeIfAbsent(hourOf(metric.getDatetime()), hour -> new QuantileSketch(relativeAccuracy))
+                        .add(difference);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the sketches of the vessels and hours of metrics that replaced stored rows.
+     *
+     * @param metrics the metrics that were updated
+     */
+    public void rebuild(List<MaritimeMetric> metrics) {
+        if (!enabled || metrics.isEmpty()) {
+            return;
+        }
+        Map<String, Set<LocalDateTime>> hoursByVessel = new HashMap<>();
+        for (MaritimeMetric metric : metrics) {
+            if (metric.getVesselCode() != null && metric.getDatetime() != null) {
+                hoursByVessel.computeIfAbsent(metric.getVesselCode(), vessel -> new HashSet<>())
+                        .add(hourOf(metric.getDatetime()));
+            }
+        }
+        hoursByVessel.forEach((vesselCode, hours) -> {
+            for (LocalDateTime hour : hours) {
+                QuantileSketch sketch = new QuantileSketch(relativeAccuracy);
+                maritimeMetricRepository.findAbsoluteSpeedDifferencesByVesselCodeAndDatetimeRange(
+                        vesselCode, hour, hour.plusHours(1)).forEach(sketch::add);
+                NavigableMap<LocalDateTime, QuantileSketch> sketches = sketchesOf(vesselCode);
+                synchronized (sketches) {
+                    sketches.put(hour, sketch);
+                }
+            }
+        });
+        LOGGER.log(Level.INFO, "Rebuilt speed difference sketches for " + metrics.size() + " updated metrics");
+    }
+
+    /**
+     * Merges the sketches of every hour of a vessel within a range of whole hours.
+     *
+     * @param vesselCode the code of the vessel
+     * @param start      the start of the range, inclusive, at the start of an hour
+     * @param end        the end of the range, exclusive, at the start of an hour
+     * @return the merged sketch, empty if the vessel has no sketched values in the range
+     * @throws IllegalArgumentException if the range does not start and end on hour boundaries
+     */
+    public QuantileSketch merge(String vesselCode, LocalDateTime start, LocalDateTime end) {
+        if (!isStartOfHour(start) || !isStartOfHour(end)) {
+            throw new IllegalArgumentException("Sketches cover whole hours only: " + start + " to " + end);
+        }
+        QuantileSketch merged = new QuantileSketch(relativeAccuracy);
+        NavigableMap<LocalDateTime, QuantileSketch> sketches = sketchesByVessel.get(vesselCode);
+        if (sketches == null || !start.isBefore(end)) {
+            return merged;
+        }
+        synchronized (sketches) {
+            sketches.subMap(start, true, end, false).values().forEach(merged::merge);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the sketches of a vessel, creating the map on first use.
+     *
+     * @param vesselCode the code of the vessel
+     * @return the sketches of the vessel by hour
+     */
+    private NavigableMap<LocalDateTime, QuantileSketch> sketchesOf(String vesselCode) {
+        return sketchesByVessel.computeIfAbsent(vesselCode, vessel -> new TreeMap<>());
+    }
+
+    /**
+     * @param datetime a datetime
+     * @return true if the datetime is at the start of an hour
+     */
+    public static boolean isStartOfHour(LocalDateTime datetime) {
+        return datetime.equals(hourOf(datetime));
+    }
+
+    /**
+     * @param datetime a datetime
+     * @return the start of its hour
+     */
+    private static LocalDateTime hourOf(LocalDateTime datetime) {
+        return datetime.truncatedTo(ChronoUnit.HOURS);
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.repository.VesselSeriesLoader;
+import com.example.maritimemetrics.util.MappedVesselSeries;
+import com.example.maritimemetrics.util.MetricSeries;
+import com.example.maritimemetrics.util.VesselSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Service class keeping the dated metrics of every vessel on disk as a {@link MappedVesselSeries},
+ * an append-only set of memory-mapped column files, so range queries read only the pages of the
+ * range and leave caching to the OS page cache instead of the heap.
+ * <p>
+ * The database remains the source of truth. Rows inserted by an import in datetime order are
+ * appended to their vessel's files as chunks are committed; a vessel receiving older rows or
+ * upserted rows is marked stale, is not served until the import ends, and then has its files
+ * rewritten from the database. Since the database does not outlive the application, the files
+ * are rebuilt from it when the application starts.
+ * <p>
+ * Every directory the store creates holds a {@value #MARKER_FILE} marker file. Only directories
+ * with the marker are ever written to or deleted, so other files in the configured directory are
+ * left alone.
+ */
+@Service
+public class TimeSeriesStore {
+
+    private static final Logger LOGGER = Logger.getLogger(TimeSeriesStore.class.getName());
+    private static final String SAFE_DIRECTORY_NAME = "[A-Za-z0-9_-]+";
+    private static final String MARKER_FILE = ".maritime-timeseries";
+    private static final Comparator<MaritimeMetric> SERIES_ORDER =
+            Comparator.comparing(MaritimeMetric::getDatetime).thenComparing(MaritimeMetric::getId);
+
+    @Autowired
+    private VesselSeriesLoader vesselSeriesLoader;
+
+    @Value("${maritime.timeseries.enabled:true}")
+    private boolean enabled;
+
+    @Value("${maritime.timeseries.directory:${user.home}/maritime-timeseries}")
+    private Path directory;
+
+    private final Map<String, MappedVesselSeries> filesByVessel = new ConcurrentHashMap<>();
+    private final Set<String> staleVessels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return true if the files are maintained and range queries are served from them
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rebuilds the files of every vessel from the database once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Deletes all files and writes those of every vessel with metrics from the database.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        clear();
+        int[] vessels = new int[1];
+        vesselSeriesLoader.loadAll(series -> {
+            rewrite(series);
+            vessels[0]++;
+        });
+        LOGGER.log(Level.INFO, "Wrote the time-series files of " + vessels[0] + " vessels to " + directory + " in " +
+                (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Appends newly stored metrics to the files of their vessels. A vessel whose metrics do not all
+     * come after its stored rows is marked stale instead. Metrics without a vessel code or datetime
+     * are not stored.
+     *
+     * @param inserts the metrics that were inserted, with their ids assigned
+     */
+    public synchronized void append(List<MaritimeMetric> inserts) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, List<MaritimeMetric>> metricsByVessel = new HashMap<>();
+        for (MaritimeMetric metric : inserts) {
+            if (metric.getVesselCode() != null && metric.getDatetime() != null) {
+                metricsByVessel.computeIfAbsent(metric.getVesselCode(), code -> new ArrayList<>()).add(metric);
+            }
+        }
+        for (Map.Entry<String, List<MaritimeMetric>> entry : metricsByVessel.entrySet()) {
+            String vesselCode = entry.getKey();
+            if (staleVessels.contains(vesselCode)) {
+                continue;
+            }
+            List<MaritimeMetric> metrics = entry.getValue();
+            metrics.sort(SERIES_ORDER);
+            VesselSeries.Builder builder = new VesselSeries.Builder(vesselCode);
+            metrics.forEach(builder::add);
+            VesselSeries batch = builder.build();
+            try {
+                MappedVesselSeries files = filesByVessel.get(vesselCode);
+                if (files == null) {
+                    files = open(directoryOf(vesselCode), vesselCode);
+                    filesByVessel.put(vesselCode, files);
+                }
+                if (files.follows(batch.epochSecond(0), batch.id(0))) {
+                    files.append(batch, 0, batch.datedRows());
+                } else {
+                    staleVessels.add(vesselCode);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error appending to the time-series files of vessel " + vesselCode + ": " +
+                        e.getMessage(), e);
+                staleVessels.add(vesselCode);
+            }
+        }
+    }
+
+    /**
+     * Marks the vessels of replaced metrics stale, so their files are rewritten by {@link #rebuildStale()}.
+     *
+     * @param updates the metrics that replaced stored rows
+     */
+    public void invalidate(List<MaritimeMetric> updates) {
+        if (!enabled) {
+            return;
+        }
+        for (MaritimeMetric metric : updates) {
+            if (metric.getVesselCode() != null) {
+                staleVessels.add(metric.getVesselCode());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the files of the stale vessels from the database, deleting those of vessels that no
+     * longer have metrics.
+     */
+    public synchronized void rebuildStale() {
+        if (!enabled || staleVessels.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Set<String> vesselCodes = new HashSet<>(staleVessels);
+        Set<String> missing = new HashSet<>(vesselCodes);
+        vesselSeriesLoader.load(vesselCodes, series -> {
+            rewrite(series);
+            missing.remove(series.vesselCode());
+        });
+        for (String vesselCode : missing) {
+            delete(vesselCode);
+        }
+        staleVessels.removeAll(vesselCodes);
+        LOGGER.log(Level.INFO, "Rewrote the time-series files of " + vesselCodes.size() + " vessels in " +
+                (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Deletes the files of all vessels, when the stored metrics are replaced. Only the directories
+     * created by the store are deleted.
+     */
+    public synchronized void clear() {
+        if (!enabled) {
+            return;
+        }
+        for (String vesselCode : new ArrayList<>(filesByVessel.keySet())) {
+            delete(vesselCode);
+        }
+        staleVessels.clear();
+        try {
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> children = Files.list(directory)) {
+                    for (Path child : (Iterable<Path>) children::iterator) {
+                        deleteOwned(child);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error deleting the time-series files in " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the stored rows of a vessel as read through memory mappings.
+     *
+     * @param vesselCode the code of a vessel
+     * @return the rows of the vessel, or null if the store is disabled, has no rows of the vessel
+     * or holds stale rows of it
+     */
+    public MetricSeries get(String vesselCode) {
+        if (!enabled || staleVessels.contains(vesselCode)) {
+            return null;
+        }
+        MappedVesselSeries files = filesByVessel.get(vesselCode);
+        if (files == null) {
+            return null;
+        }
+        try {
+            return files.snapshot();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error mapping the time-series files of vessel " + vesselCode + ": " +
+                    e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the files of a vessel into a new directory that then takes the place of the old one.
+     * Snapshots mapped from the old files remain readable.
+     *
+     * @param series the rows of the vessel
+     */
+    private void rewrite(VesselSeries series) {
+        String vesselCode = series.vesselCode();
+        Path target = directoryOf(vesselCode);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            deleteOwned(temporary);
+            try (MappedVesselSeries files = open(temporary, vesselCode)) {
+                files.append(series, 0, series.datedRows());
+            }
+            delete(vesselCode);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            filesByVessel.put(vesselCode, open(target, vesselCode));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error writing the time-series files of vessel " + vesselCode + ": " +
+                    e.getMessage(), e);
+            staleVessels.add(vesselCode);
+        }
+    }
+
+    /**
+     * Closes and deletes the files of a vessel.
+     *
+     * @param vesselCode the code of the vessel
+     */
+    private void delete(String vesselCode) {
+        MappedVesselSeries files = filesByVessel.remove(vesselCode);
+        try {
+            if (files != null) {
+                files.close();
+            }
+            deleteOwned(directoryOf(vesselCode));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error deleting the time-series files of vessel " + vesselCode + ": " +
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens the files of a vessel in a directory created by the store, creating the directory and
+     * its marker file if the directory does not exist.
+     *
+     * @param vesselDirectory the directory of the vessel's files
+     * @param vesselCode      the code of the vessel
+     * @return the files of the vessel
+     * @throws IOException if the files cannot be opened or the directory exists but was not created by the store
+     */
+    private static MappedVesselSeries open(Path vesselDirectory, String vesselCode) throws IOException {
+        if (!Files.exists(vesselDirectory)) {
+            Files.createDirectories(vesselDirectory);
+            Files.createFile(vesselDirectory.resolve(MARKER_FILE));
+        } else if (!isOwned(vesselDirectory)) {
+            throw new IOException(vesselDirectory + " exists and was not created by the time-series store");
+        }
+        return new MappedVesselSeries(vesselDirectory, vesselCode);
+    }
+
+    /**
+     * @param path a file or directory
+     * @return true if the path is a directory created by the store
+     */
+    private static boolean isOwned(Path path) {
+        return Files.isRegularFile(path.resolve(MARKER_FILE));
+    }
+
+    /**
+     * Deletes a directory created by the store with everything in it. Anything else is left alone.
+     *
+     * @param path the file or directory
+     * @throws IOException if something cannot be deleted
+     */
+    private static void deleteOwned(Path path) throws IOException {
+        if (isOwned(path)) {
+            deleteRecursively(path);
+        }
+    }
+
+    /**
+     * @param vesselCode the code of a vessel
+     * @return the directory of the vessel's files
+     */
+    private Path directoryOf(String vesselCode) {
+        return directory.resolve(directoryName(vesselCode));
+    }
+
+    /**
+     * Names the directory of a vessel after its code, or after the hex digits of its UTF-8 bytes
+     * if the code contains characters that are not safe in file names.
+     * <p>
+     * Directory names use lower case only, so codes differing in case get different directories
+     * on case-insensitive file systems too: an upper-case letter is written as {@code _} followed
+     * by the letter in lower case, and {@code _} itself as {@code __}. Every code therefore has its
+     * own name, and hex names start with {@code ~}, which other names never contain.
+     *
+     * @param vesselCode the code of the vessel
+     * @return the name of the directory of the vessel's files
+     */
+    static String directoryName(String vesselCode) {
+        if (vesselCode.matches(SAFE_DIRECTORY_NAME)) {
+            StringBuilder name = new StringBuilder(vesselCode.length() + 8);
+            for (int i = 0; i < vesselCode.length(); i++) {
+                char c = vesselCode.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    name.append('_').append((char) (c - 'A' + 'a'));
+                } else if (c == '_') {
+                    name.append("__");
+                } else {
+                    name.append(c);
+                }
+            }
+            return name.toString();
+        }
+        StringBuilder name = new StringBuilder("~");
+        for (byte b : vesselCode.getBytes(StandardCharsets.UTF_8)) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Deletes a directory with everything in it, if it exists.
+     *
+     * @param path the directory
+     * @throws IOException if something cannot be deleted
+     */
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
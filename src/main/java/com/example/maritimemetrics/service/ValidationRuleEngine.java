@@ -0,0 +1,207 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.config.ValidationProperties;
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.ValidationTally;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service class applying the configured validation rules to parsed metrics.
+ * <p>
+ * The rules in {@link ValidationProperties} are compiled once at startup into flat arrays, one
+ * rule set for the defaults and one per vessel with overrides. Validating a metric is then a
+ * single pass over the arrays of its vessel's rule set: range checks, deviation checks and
+ * below-zero checks, without allocating or re-parsing anything per row.
+ */
+@Service
+public class ValidationRuleEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ValidationRuleEngine.class.getName());
+
+    private static final String RULE_OUT_OF_RANGE = "out-of-range";
+    private static final String RULE_OUTLIER = "outlier";
+    private static final String RULE_BELOW_ZERO = "below-zero";
+
+    @Autowired
+    private ValidationProperties validationProperties;
+
+    private RuleSet defaultRules;
+    private Map<String, RuleSet> vesselRules;
+
+    /**
+     * Compiles the configured rules.
+     *
+     * @throws IllegalStateException if a rule refers to an unknown field or lacks a deviation reference
+     */
+    @PostConstruct
+    void compile() {
+        try {
+            EnumMap<MetricField, ValidationProperties.Range> ranges = resolveRanges(validationProperties.getRanges(),
+                    new EnumMap<>(MetricField.class));
+            EnumMap<MetricField, ValidationProperties.Deviation> deviations =
+                    resolveDeviations(validationProperties.getDeviations(), new EnumMap<>(MetricField.class));
+            List<MetricField> nonNegative = validationProperties.getNonNegative().stream()
+                    .map(MetricField::fromName)
+                    .distinct()
+                    .toList();
+            defaultRules = new RuleSet(ranges, deviations, nonNegative);
+
+            Map<String, RuleSet> compiled = new HashMap<>();
+            validationProperties.getVessels().forEach((vesselCode, overrides) -> compiled.put(vesselCode, new RuleSet(
+                    resolveRanges(overrides.getRanges(), new EnumMap<>(ranges)),
+                    resolveDeviations(overrides.getDeviations(), new EnumMap<>(deviations)),
+                    nonNegative)));
+            vesselRules = compiled;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid maritime.validation configuration: " + e.getMessage(), e);
+        }
+        LOGGER.log(Level.INFO, "Validation rules compiled with " + vesselRules.size() + " vessel overrides");
+    }
+
+    /**
+     * Validates a metric whose fields have been parsed, setting its outlier and below-zero flags.
+     * Values outside their allowed range are cleared. Each violated rule is recorded in {@code issues}.
+     *
+     * @param metric the metric to validate
+     * @param issues collects the validation issues of the row
+     */
+    public void evaluate(MaritimeMetric metric, ValidationTally issues) {
+        RuleSet rules = vesselRules.isEmpty() ? defaultRules : vesselRules.getOrDefault(metric.getVesselCode(), defaultRules);
+        rules.evaluate(metric, issues);
+    }
+
+    /**
+     * Adds configured ranges to the resolved ranges, replacing those of the same field.
+     *
+     * @param configured the configured ranges by field name
+     * @param resolved   the ranges resolved so far
+     * @return {@code resolved}
+     */
+    private static EnumMap<MetricField, ValidationProperties.Range> resolveRanges(
+            Map<String, ValidationProperties.Range> configured, EnumMap<MetricField, ValidationProperties.Range> resolved) {
+        configured.forEach((name, range) -> resolved.put(MetricField.fromName(name), range));
+        return resolved;
+    }
+
+    /**
+     * Adds configured deviation rules to the resolved rules, replacing those of the same field.
+     * A rule without a reference keeps the reference of the rule it replaces.
+     *
+     * @param configured the configured deviation rules by field name
+     * @param resolved   the rules resolved so far
+     * @return {@code resolved}
+     */
+    private static EnumMap<MetricField, ValidationProperties.Deviation> resolveDeviations(
+            Map<String, ValidationProperties.Deviation> configured,
+            EnumMap<MetricField, ValidationProperties.Deviation> resolved) {
+        configured.forEach((name, deviation) -> {
+            MetricField field = MetricField.fromName(name);
+            String reference = deviation.getReference();
+            if (reference == null) {
+                ValidationProperties.Deviation replaced = resolved.get(field);
+                if (replaced == null) {
+                    throw new IllegalArgumentException("No reference field for the deviation rule of " + name);
+                }
+                reference = replaced.getReference();
+            }
+            resolved.put(field, new ValidationProperties.Deviation(reference, deviation.getThreshold()));
+        });
+        return resolved;
+    }
+
+    /**
+     * A compiled set of rules, stored as parallel arrays so that evaluation only reads primitives.
+     */
+    private static final class RuleSet {
+
+        private final MetricField[] rangeFields;
+        private final double[] rangeMin;
+        private final double[] rangeMax;
+        private final MetricField[] deviationFields;
+        private final MetricField[] deviationReferences;
+        private final double[] deviationThresholds;
+        private final MetricField[] nonNegativeFields;
+
+        /**
+         * Compiles a rule set.
+         *
+         * @param ranges      the allowed ranges per field
+         * @param deviations  the deviation rules per field
+         * @param nonNegative the fields that must not be below zero
+         */
+        private RuleSet(EnumMap<MetricField, ValidationProperties.Range> ranges,
+                        EnumMap<MetricField, ValidationProperties.Deviation> deviations, List<MetricField> nonNegative) {
+            rangeFields = ranges.keySet().toArray(new MetricField[0]);
+            rangeMin = new double[rangeFields.length];
+            rangeMax = new double[rangeFields.length];
+            for (int i = 0; i < rangeFields.length; i++) {
+                ValidationProperties.Range range = ranges.get(rangeFields[i]);
+                rangeMin[i] = range.getMin() != null ? range.getMin() : Double.NEGATIVE_INFINITY;
+                rangeMax[i] = range.getMax() != null ? range.getMax() : Double.POSITIVE_INFINITY;
+            }
+
+            deviationFields = deviations.keySet().toArray(new MetricField[0]);
+            deviationReferences = new MetricField[deviationFields.length];
+            deviationThresholds = new double[deviationFields.length];
+            for (int i = 0; i < deviationFields.length; i++) {
+                ValidationProperties.Deviation deviation = deviations.get(deviationFields[i]);
+                deviationReferences[i] = MetricField.fromName(deviation.getReference());
+                deviationThresholds[i] = deviation.getThreshold();
+            }
+
+            nonNegativeFields = nonNegative.toArray(new MetricField[0]);
+        }
+
+        /**
+         * Evaluates every rule of the set against a metric.
+         *
+         * @param metric the metric to validate
+         * @param issues collects the validation issues of the row
+         */
+        private void evaluate(MaritimeMetric metric, ValidationTally issues) {
+            boolean outlier = false;
+            for (int i = 0; i < rangeFields.length; i++) {
+                Double value = rangeFields[i].get(metric);
+                // Written so that NaN falls outside every range
+                if (value != null && !(value >= rangeMin[i] && value <= rangeMax[i])) {
+                    issues.record(rangeFields[i].fieldName(), RULE_OUT_OF_RANGE);
+                    rangeFields[i].set(metric, null);
+                    outlier = true;
+                }
+            }
+
+            for (int i = 0; i < deviationFields.length; i++) {
+                Double value = deviationFields[i].get(metric);
+                Double reference = deviationReferences[i].get(metric);
+                if (value != null && reference != null
+                        && Math.abs((reference - value) / reference) > deviationThresholds[i]) {
+                    issues.record(deviationFields[i].fieldName(), RULE_OUTLIER);
+                    outlier = true;
+                }
+            }
+
+            boolean belowZero = false;
+            for (MetricField field : nonNegativeFields) {
+                Double value = field.get(metric);
+                if (value != null && value < 0) {
+                    issues.record(field.fieldName(), RULE_BELOW_ZERO);
+                    belowZero = true;
+                }
+            }
+
+            if (outlier) {
+                metric.setIsOutlier(true);
+            }
+            metric.setIsBelowZero(belowZero);
+        }
+    }
+}
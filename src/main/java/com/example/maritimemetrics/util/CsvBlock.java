@@ -0,0 +1,14 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * A block of consecutive CSV records sharing one character buffer.
+ * Record {@code i} occupies {@code chars[starts[i], ends[i])}, without its line terminator.
+ *
+ * @param chars             the characters of all records in the block
+ * @param starts            the start index of each record
+ * @param ends              the end index of each record
+ * @param recordCount       the number of records in the block
+ * @param firstRecordNumber the 1-based position of the first record in the input
+ */
+public record CsvBlock(char[] chars, int[] starts, int[] ends, int recordCount, long firstRecordNumber) {
+}
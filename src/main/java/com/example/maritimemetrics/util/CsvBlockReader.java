@@ -0,0 +1,145 @@
+package com.example.maritimemetrics.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads CSV input as blocks of whole records.
+ * Records end at a line feed (optionally preceded by a carriage return) that is not inside a
+ * quoted field, so quoted fields may span lines. Each block gets its own character buffer and
+ * can be handed to another thread for tokenizing.
+ */
+public final class CsvBlockReader {
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final int recordsPerBlock;
+    private final char[] input = new char[INPUT_BUFFER_SIZE];
+    private int inputPosition;
+    private int inputLimit;
+    private boolean endOfInput;
+    private long nextRecordNumber = 1;
+    private int blockCapacity = INPUT_BUFFER_SIZE;
+
+    /**
+     * Creates a block reader.
+     *
+     * @param reader          the CSV input
+     * @param recordsPerBlock the maximum number of records per block
+     */
+    public CsvBlockReader(Reader reader, int recordsPerBlock) {
+        if (recordsPerBlock <= 0) {
+            throw new IllegalArgumentException("recordsPerBlock must be positive but was " + recordsPerBlock);
+        }
+        this.reader = reader;
+        this.recordsPerBlock = recordsPerBlock;
+    }
+
+    /**
+     * Reads the next block of records.
+     *
+     * @return the next block, or null at the end of the input
+     * @throws IOException if reading the input fails
+     */
+    public CsvBlock nextBlock() throws IOException {
+        return readBlock(recordsPerBlock);
+    }
+
+    /**
+     * Skips one record, typically the header.
+     *
+     * @return true if a record was skipped, false at the end of the input
+     * @throws IOException if reading the input fails
+     */
+    public boolean skipRecord() throws IOException {
+        return readBlock(1) != null;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records into a new block.
+     *
+     * @param maxRecords the maximum number of records to read
+     * @return the block, or null if no record is left
+     * @throws IOException if reading the input fails
+     */
+    private CsvBlock readBlock(int maxRecords) throws IOException {
+        char[] chars = new char[blockCapacity];
+        int[] starts = new int[maxRecords];
+        int[] ends = new int[maxRecords];
+        int recordCount = 0;
+        int length = 0;
+        int recordStart = 0;
+        boolean inQuotes = false;
+
+        while (recordCount < maxRecords) {
+            if (inputPosition == inputLimit && !fill()) {
+                if (length > recordStart) {
+                    starts[recordCount] = recordStart;
+                    ends[recordCount] = stripCarriageReturn(chars, recordStart, length);
+                    recordCount++;
+                }
+                break;
+            }
+            char c = input[inputPosition++];
+            if (c == '\n' && !inQuotes) {
+                starts[recordCount] = recordStart;
+                ends[recordCount] = stripCarriageReturn(chars, recordStart, length);
+                recordCount++;
+                recordStart = length;
+                continue;
+            }
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            }
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        if (recordCount == 0) {
+            return null;
+        }
+        blockCapacity = Math.max(blockCapacity, length);
+        CsvBlock block = new CsvBlock(chars, starts, ends, recordCount, nextRecordNumber);
+        nextRecordNumber += recordCount;
+        return block;
+    }
+
+    /**
+     * Refills the input buffer.
+     *
+     * @return false if the input is exhausted
+     * @throws IOException if reading the input fails
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int read;
+        do {
+            read = reader.read(input, 0, input.length);
+        } while (read == 0);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        inputPosition = 0;
+        inputLimit = read;
+        return true;
+    }
+
+    /**
+     * Excludes a trailing carriage return from a record.
+     *
+     * @param chars the block buffer
+     * @param start the start of the record
+     * @param end   the end of the record including a possible carriage return
+     * @return the end of the record without the carriage return
+     */
+    private static int stripCarriageReturn(char[] chars, int start, int end) {
+        return end > start && chars[end - 1] == '\r' ? end - 1 : end;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.maritimemetrics.util;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Splits one CSV record into fields without allocating a String per field.
+ * Fields are exposed as slices of the record's character buffer.
+ * <p>
+ * Quoting follows RFC 4180: a field enclosed in double quotes may contain commas, line breaks
+ * and doubled quotes ({@code ""}). Doubled quotes are unescaped in place, so the buffer is
+ * modified by {@link #tokenize(char[], int, int)}. Whitespace around a field, and inside the
+ * quotes of a quoted field, is trimmed the same way the import has always trimmed values.
+ * <p>
+ * Numeric and timestamp fields are parsed straight from the slices with {@link FastNumberParser}
+ * and {@link FastDateTimeParser}. A tokenizer is meant to be reused record after record by a
+ * single thread.
+ */
+public final class CsvTokenizer {
+
+    private static final int INITIAL_FIELD_CAPACITY = 16;
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private final FastNumberParser numberParser = new FastNumberParser();
+    private char[] buffer;
+    private int[] starts = new int[INITIAL_FIELD_CAPACITY];
+    private int[] ends = new int[INITIAL_FIELD_CAPACITY];
+    private int fieldCount;
+
+    /**
+     * Tokenizes the record held in {@code chars[from, to)}.
+     * The range must not include the line terminator.
+     *
+     * @param chars the buffer holding the record
+     * @param from  the index of the first character of the record
+     * @param to    the index after the last character of the record
+     * @return the number of fields in the record
+     */
+    public int tokenize(char[] chars, int from, int to) {
+        buffer = chars;
+        fieldCount = 0;
+        int position = from;
+        while (true) {
+            int delimiter = readField(position, to);
+            if (delimiter >= to) {
+                return fieldCount;
+            }
+            position = delimiter + 1;
+        }
+    }
+
+    /**
+     * Returns the number of fields found by the last call to {@link #tokenize(char[], int, int)}.
+     *
+     * @return the field count
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the buffer the field slices refer to.
+     *
+     * @return the record buffer
+     */
+    public char[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the index in {@link #buffer()} of the first character of a field.
+     *
+     * @param field the field index
+     * @return the start of the field slice
+     */
+    public int start(int field) {
+        return starts[field];
+    }
+
+    /**
+     * Returns the index in {@link #buffer()} after the last character of a field.
+     *
+     * @param field the field index
+     * @return the end of the field slice
+     */
+    public int end(int field) {
+        return ends[field];
+    }
+
+    /**
+     * Checks whether a field is empty after trimming.
+     *
+     * @param field the field index
+     * @return true if the field has no characters
+     */
+    public boolean isEmpty(int field) {
+        return starts[field] == ends[field];
+    }
+
+    /**
+     * Checks whether a field is empty or holds the literal {@code NULL} in any case.
+     *
+     * @param field the field index
+     * @return true if the field carries no value
+     */
+    public boolean isNullOrEmpty(int field) {
+        return isEmpty(field) || equalsIgnoreCase(field, "NULL");
+    }
+
+    /**
+     * Compares a field with a string, ignoring case.
+     *
+     * @param field the field index
+     * @param value the string to compare with
+     * @return true if the field holds the same characters as {@code value}, ignoring case
+     */
+    public boolean equalsIgnoreCase(int field, String value) {
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = buffer[start + i];
+            char b = value.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies a field into a new String.
+     *
+     * @param field the field index
+     * @return the field value
+     */
+    public String getString(int field) {
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    /**
+     * Parses a field as a decimal number without throwing on malformed input.
+     * On success the value is available from {@link #doubleValue()}.
+     *
+     * @param field the field index
+     * @return {@link FastNumberParser#PARSED}, {@link FastNumberParser#EMPTY} or {@link FastNumberParser#MALFORMED}
+     */
+    public int parseDouble(int field) {
+        return numberParser.parse(buffer, starts[field], ends[field]);
+    }
+
+    /**
+     * Returns the value of the last successful {@link #parseDouble(int)}.
+     *
+     * @return the parsed number
+     */
+    public double doubleValue() {
+        return numberParser.value();
+    }
+
+    /**
+     * Parses a field as a {@code yyyy-MM-dd HH:mm:ss} timestamp.
+     *
+     * @param field the field index
+     * @return the timestamp, or null if the field is not a valid timestamp
+     */
+    public LocalDateTime parseDateTime(int field) {
+        return FastDateTimeParser.parse(buffer, starts[field], ends[field]);
+    }
+
+    /**
+     * Reads one field starting at {@code position} and records its trimmed slice.
+     *
+     * @param position the index where the field starts
+     * @param to       the end of the record
+     * @return the index of the delimiter ending the field, or {@code to} for the last field
+     */
+    private int readField(int position, int to) {
+        int start = position;
+        while (start < to && buffer[start] <= ' ') {
+            start++;
+        }
+        if (start < to && buffer[start] == QUOTE) {
+            int read = start + 1;
+            int write = read;
+            while (read < to) {
+                char c = buffer[read++];
+                if (c == QUOTE) {
+                    if (read < to && buffer[read] == QUOTE) {
+                        read++;
+                    } else {
+                        break;
+                    }
+                }
+                buffer[write++] = c;
+            }
+            addField(start + 1, write);
+            // Anything between the closing quote and the delimiter is ignored
+            while (read < to && buffer[read] != DELIMITER) {
+                read++;
+            }
+            return read;
+        }
+
+        int read = start;
+        while (read < to && buffer[read] != DELIMITER) {
+            read++;
+        }
+        addField(start, read);
+        return read;
+    }
+
+    /**
+     * Records the slice of a field, trimming surrounding whitespace.
+     *
+     * @param start the start of the raw field
+     * @param end   the end of the raw field
+     */
+    private void addField(int start, int end) {
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.maritimemetrics.util;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Parses timestamps in the fixed {@code yyyy-MM-dd HH:mm:ss} layout of the vessel exports.
+ * Reads the digits at their fixed positions instead of going through a {@code DateTimeFormatter},
+ * and reports malformed input by returning null rather than throwing.
+ * <p>
+ * Resolves values the same way as {@code DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")}
+ * in its default smart mode: a day past the end of the month is moved back to the last day of
+ * the month, and {@code 24:00:00} is read as midnight of the following day.
+ */
+public final class FastDateTimeParser {
+
+    private static final int LENGTH = 19;
+
+    private FastDateTimeParser() {
+    }
+
+    /**
+     * Parses the timestamp held in {@code chars[start, end)}.
+     *
+     * @param chars the buffer holding the timestamp
+     * @param start the index of the first character
+     * @param end   the index after the last character
+     * @return the timestamp, or null if the slice is not a valid timestamp
+     */
+    public static LocalDateTime parse(char[] chars, int start, int end) {
+        if (end - start != LENGTH
+                || chars[start + 4] != '-' || chars[start + 7] != '-' || chars[start + 10] != ' '
+                || chars[start + 13] != ':' || chars[start + 16] != ':') {
+            return null;
+        }
+        int year = digits(chars, start, 4);
+        int month = digits(chars, start + 5, 2);
+        int day = digits(chars, start + 8, 2);
+        int hour = digits(chars, start + 11, 2);
+        int minute = digits(chars, start + 14, 2);
+        int second = digits(chars, start + 17, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        boolean endOfDay = hour == 24 && minute == 0 && second == 0;
+        if (hour < 0 || (hour > 23 && !endOfDay)) {
+            return null;
+        }
+        int dayOfMonth = Math.min(day, YearMonth.of(year, month).lengthOfMonth());
+        if (endOfDay) {
+            return LocalDateTime.of(year, month, dayOfMonth, 0, 0, 0).plusDays(1);
+        }
+        return LocalDateTime.of(year, month, dayOfMonth, hour, minute, second);
+    }
+
+    /**
+     * Reads a fixed number of decimal digits.
+     *
+     * @param chars the buffer
+     * @param start the index of the first digit
+     * @param count the number of digits
+     * @return the value of the digits, or -1 if any character is not a digit
+     */
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
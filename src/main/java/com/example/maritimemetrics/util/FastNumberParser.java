@@ -0,0 +1,197 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * Parses decimal numbers from character slices without throwing on malformed input.
+ * Failure is reported through the return code of {@link #parse(char[], int, int)}, and the
+ * parsed value is read with {@link #value()}.
+ * <p>
+ * Accepts the decimal syntax of {@link Double#parseDouble(String)}: an optional sign, digits
+ * with an optional fraction, an optional exponent and an optional {@code f}/{@code d} suffix,
+ * as well as {@code NaN} and {@code Infinity}. Hexadecimal literals are reported as malformed.
+ * Values with at most 2<sup>53</sup> as significand and a decimal exponent within &plusmn;22 are
+ * computed directly, which is exact; anything else is handed to {@link Double#parseDouble(String)}
+ * once the syntax is known to be valid, so results always match it.
+ * <p>
+ * A parser holds the last parsed value and is meant to be reused by a single thread.
+ */
+public final class FastNumberParser {
+
+    /**
+     * Return code for a successfully parsed value.
+     */
+    public static final int PARSED = 0;
+
+    /**
+     * Return code for an empty slice.
+     */
+    public static final int EMPTY = 1;
+
+    /**
+     * Return code for a slice that is not a decimal number.
+     */
+    public static final int MALFORMED = 2;
+
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    private static final int MAX_SIGNIFICAND_DIGITS = 18;
+    private static final int MAX_EXPONENT = 100_000;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private double value;
+
+    /**
+     * Parses the number held in {@code chars[start, end)}.
+     *
+     * @param chars the buffer holding the number
+     * @param start the index of the first character
+     * @param end   the index after the last character
+     * @return {@link #PARSED}, {@link #EMPTY} or {@link #MALFORMED}
+     */
+    public int parse(char[] chars, int start, int end) {
+        if (start >= end) {
+            return EMPTY;
+        }
+        int i = start;
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i < end && (chars[i] == 'N' || chars[i] == 'I')) {
+            return parseSpecial(chars, i, end, negative);
+        }
+
+        long significand = 0;
+        int significandDigits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        boolean anyDigit = false;
+
+        while (i < end && isDigit(chars[i])) {
+            int digit = chars[i++] - '0';
+            anyDigit = true;
+            if (significandDigits < MAX_SIGNIFICAND_DIGITS) {
+                significand = significand * 10 + digit;
+                if (significand != 0) {
+                    significandDigits++;
+                }
+            } else {
+                exponent++;
+                truncated |= digit != 0;
+            }
+        }
+        if (i < end && chars[i] == '.') {
+            i++;
+            while (i < end && isDigit(chars[i])) {
+                int digit = chars[i++] - '0';
+                anyDigit = true;
+                if (significandDigits < MAX_SIGNIFICAND_DIGITS) {
+                    significand = significand * 10 + digit;
+                    exponent--;
+                    if (significand != 0) {
+                        significandDigits++;
+                    }
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+        }
+        if (!anyDigit) {
+            return MALFORMED;
+        }
+
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            if (i == end || !isDigit(chars[i])) {
+                return MALFORMED;
+            }
+            int exponentValue = 0;
+            while (i < end && isDigit(chars[i])) {
+                exponentValue = Math.min(exponentValue * 10 + (chars[i++] - '0'), MAX_EXPONENT);
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+        if (i < end && isTypeSuffix(chars[i])) {
+            i++;
+        }
+        if (i != end) {
+            return MALFORMED;
+        }
+
+        if (!truncated && significand <= MAX_EXACT_SIGNIFICAND && exponent >= -22 && exponent <= 22) {
+            double result = significand;
+            result = exponent < 0 ? result / POWERS_OF_TEN[-exponent] : result * POWERS_OF_TEN[exponent];
+            value = negative ? -result : result;
+        } else {
+            value = Double.parseDouble(new String(chars, start, end - start));
+        }
+        return PARSED;
+    }
+
+    /**
+     * Returns the value of the last successful {@link #parse(char[], int, int)}.
+     *
+     * @return the parsed value
+     */
+    public double value() {
+        return value;
+    }
+
+    /**
+     * Parses {@code NaN} or {@code Infinity} after an optional sign.
+     *
+     * @param chars    the buffer
+     * @param start    the index after the sign
+     * @param end      the end of the slice
+     * @param negative whether a minus sign preceded the value
+     * @return {@link #PARSED} or {@link #MALFORMED}
+     */
+    private int parseSpecial(char[] chars, int start, int end, boolean negative) {
+        if (matches(chars, start, end, "NaN")) {
+            value = Double.NaN;
+            return PARSED;
+        }
+        if (matches(chars, start, end, "Infinity")) {
+            value = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            return PARSED;
+        }
+        return MALFORMED;
+    }
+
+    /**
+     * Checks whether a slice equals a word.
+     *
+     * @param chars the buffer
+     * @param start the start of the slice
+     * @param end   the end of the slice
+     * @param word  the word to match
+     * @return true if the slice holds the word
+     */
+    private static boolean matches(char[] chars, int start, int end, String word) {
+        int length = end - start;
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTypeSuffix(char c) {
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+    }
+}
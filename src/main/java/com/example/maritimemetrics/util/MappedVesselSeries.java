@@ -0,0 +1,365 @@
+package com.example.maritimemetrics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The dated metrics of one vessel stored as a set of append-only column files in one directory,
+ * read through memory mappings.
+ * <p>
+ * Each column is a file of fixed-width big-endian values, one per row in datetime order:
+ * {@code time.bin} (epoch seconds), {@code id.bin}, {@code flags.bin} (one byte of flags),
+ * {@code nulls.bin} (a short with one bit per {@link VesselSeries.Column}) and one file of
+ * doubles per column. {@code time.idx} is a sparse index holding the datetime of every
+ * {@value #INDEX_INTERVAL}th row, so a range lookup binary-searches the small index and then
+ * a single block of the time file instead of touching pages all over it.
+ * <p>
+ * Reads go through {@link MappedByteBuffer}s with absolute gets, without copying: the data stays
+ * in the OS page cache rather than on the heap. An append writes the time file last, so the row
+ * count is the length of the time file and a torn append is discarded when the set is reopened.
+ * A vessel holds at most 2<sup>28</sup> - 1 rows, so that each file of longs or doubles stays below the
+ * {@link Integer#MAX_VALUE} bytes a single mapping can cover.
+ * <p>
+ * Appends are serialized; snapshots are immutable and may be read by any number of threads.
+ */
+public final class MappedVesselSeries implements Closeable {
+
+    /**
+     * The number of rows per entry of the sparse time index.
+     */
+    public static final int INDEX_INTERVAL = 1024;
+
+    private static final int MAX_ROWS = Integer.MAX_VALUE / Long.BYTES;
+    private static final VesselSeries.Column[] COLUMNS = VesselSeries.Column.columns();
+
+    private final String vesselCode;
+    private final FileChannel time;
+    private final FileChannel ids;
+    private final FileChannel flags;
+    private final FileChannel nulls;
+    private final FileChannel index;
+    private final FileChannel[] columns = new FileChannel[COLUMNS.length];
+
+    private int rows;
+    private long lastEpochSecond = Long.MIN_VALUE;
+    private long lastId = Long.MIN_VALUE;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Opens the column files of a vessel, creating them if they do not exist.
+     *
+     * @param directory  the directory of the vessel's files
+     * @param vesselCode the code of the vessel
+     * @throws IOException if the files cannot be opened
+     */
+    public MappedVesselSeries(Path directory, String vesselCode) throws IOException {
+        this.vesselCode = vesselCode;
+        Files.createDirectories(directory);
+        time = open(directory.resolve("time.bin"));
+        ids = open(directory.resolve("id.bin"));
+        flags = open(directory.resolve("flags.bin"));
+        nulls = open(directory.resolve("nulls.bin"));
+        index = open(directory.resolve("time.idx"));
+        for (VesselSeries.Column column : COLUMNS) {
+            columns[column.ordinal()] = open(directory.resolve(column.name().toLowerCase() + ".bin"));
+        }
+
+        rows = (int) (time.size() / Long.BYTES);
+        ids.truncate((long) rows * Long.BYTES);
+        flags.truncate(rows);
+        nulls.truncate((long) rows * Short.BYTES);
+        index.truncate((long) indexEntries(rows) * Long.BYTES);
+        for (FileChannel column : columns) {
+            column.truncate((long) rows * Double.BYTES);
+        }
+        if (rows > 0) {
+            lastEpochSecond = readLong(time, rows - 1);
+            lastId = readLong(ids, rows - 1);
+        }
+    }
+
+    /**
+     * @return the code of the vessel
+     */
+    public String vesselCode() {
+        return vesselCode;
+    }
+
+    /**
+     * @return the number of rows stored
+     */
+    public synchronized int rows() {
+        return rows;
+    }
+
+    /**
+     * Tells whether a row would be appended in order, after every stored row.
+     *
+     * @param epochSecond the datetime of the row in epoch seconds
+     * @param id          the id of the row
+     * @return true if the row comes after the last stored row
+     */
+    public synchronized boolean follows(long epochSecond, long id) {
+        return epochSecond > lastEpochSecond || (epochSecond == lastEpochSecond && id > lastId);
+    }
+
+    /**
+     * Appends dated rows of a series.
+     *
+     * @param batch the series holding the rows
+     * @param from  the first row to append, inclusive
+     * @param to    the last row to append, exclusive, at most {@code batch.datedRows()}
+     * @throws IOException              if the files cannot be written
+     * @throws IllegalArgumentException if the rows do not follow the stored rows or would exceed the row limit
+     */
+    public synchronized void append(VesselSeries batch, int from, int to) throws IOException {
+        int count = to - from;
+        if (count <= 0) {
+            return;
+        }
+        if (to > batch.datedRows() || !follows(batch.epochSecond(from), batch.id(from))) {
+            throw new IllegalArgumentException("Rows of vessel " + vesselCode + " do not follow the stored rows");
+        }
+        if ((long) rows + count > MAX_ROWS) {
+            throw new IllegalArgumentException("Vessel " + vesselCode + " would exceed " + MAX_ROWS + " rows");
+        }
+        ByteBuffer timeBuffer = ByteBuffer.allocate(count * Long.BYTES);
+        ByteBuffer idBuffer = ByteBuffer.allocate(count * Long.BYTES);
+        ByteBuffer flagBuffer = ByteBuffer.allocate(count);
+        ByteBuffer nullBuffer = ByteBuffer.allocate(count * Short.BYTES);
+        ByteBuffer indexBuffer = ByteBuffer.allocate((count / INDEX_INTERVAL + 1) * Long.BYTES);
+        ByteBuffer[] columnBuffers = new ByteBuffer[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columnBuffers[i] = ByteBuffer.allocate(count * Double.BYTES);
+        }
+        // The rows of a series are already in order, so only the first one is checked against the stored rows
+        for (int row = from; row < to; row++) {
+            if ((rows + row - from) % INDEX_INTERVAL == 0) {
+                indexBuffer.putLong(batch.epochSecond(row));
+            }
+            timeBuffer.putLong(batch.epochSecond(row));
+            idBuffer.putLong(batch.id(row));
+            flagBuffer.put((byte) batch.flags(row));
+            int nullMask = 0;
+            for (VesselSeries.Column column : COLUMNS) {
+                if (batch.isNull(column, row)) {
+                    nullMask |= 1 << column.ordinal();
+                }
+                columnBuffers[column.ordinal()].putDouble(batch.value(column, row));
+            }
+            nullBuffer.putShort((short) nullMask);
+        }
+
+        for (int i = 0; i < COLUMNS.length; i++) {
+            write(columns[i], columnBuffers[i]);
+        }
+        write(ids, idBuffer);
+        write(flags, flagBuffer);
+        write(nulls, nullBuffer);
+        write(index, indexBuffer);
+        // The time file is written last: its length is the row count
+        write(time, timeBuffer);
+
+        rows += count;
+        lastEpochSecond = batch.epochSecond(to - 1);
+        lastId = batch.id(to - 1);
+        snapshot = null;
+    }
+
+    /**
+     * Returns a read-only view of the rows stored so far, mapping the files again after an append.
+     *
+     * @return the view
+     * @throws IOException if the files cannot be mapped
+     */
+    public MetricSeries snapshot() throws IOException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = new Snapshot(this);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Closes the files. Snapshots taken before remain readable.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        time.close();
+        ids.close();
+        flags.close();
+        nulls.close();
+        index.close();
+        for (FileChannel column : columns) {
+            column.close();
+        }
+    }
+
+    /**
+     * @param path a file
+     * @return a channel reading and writing the file, which is created if missing
+     * @throws IOException if the file cannot be opened
+     */
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes a filled buffer at the end of a file.
+     *
+     * @param channel the file
+     * @param buffer  the buffer, written from its start to its position
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * @param channel a file of longs
+     * @param row     a row
+     * @return the long of the row
+     * @throws IOException if the file cannot be read
+     */
+    private static long readLong(FileChannel channel, int row) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        long position = (long) row * Long.BYTES;
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // read until the long is complete
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * @param rows a number of rows
+     * @return the number of sparse index entries of that many rows
+     */
+    private static int indexEntries(int rows) {
+        return (rows + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+    }
+
+    /**
+     * The rows of a vessel stored at the time the snapshot was taken, read through memory mappings.
+     */
+    private static final class Snapshot implements MetricSeries {
+
+        private final String vesselCode;
+        private final int rows;
+        private final int indexEntries;
+        private final MappedByteBuffer time;
+        private final MappedByteBuffer ids;
+        private final MappedByteBuffer flags;
+        private final MappedByteBuffer nulls;
+        private final MappedByteBuffer index;
+        private final MappedByteBuffer[] columns = new MappedByteBuffer[COLUMNS.length];
+
+        /**
+         * Maps the stored rows of a file set.
+         *
+         * @param files the file set, locked by the caller
+         * @throws IOException if a file cannot be mapped
+         */
+        private Snapshot(MappedVesselSeries files) throws IOException {
+            this.vesselCode = files.vesselCode;
+            this.rows = files.rows;
+            this.indexEntries = indexEntries(rows);
+            this.time = map(files.time, (long) rows * Long.BYTES);
+            this.ids = map(files.ids, (long) rows * Long.BYTES);
+            this.flags = map(files.flags, rows);
+            this.nulls = map(files.nulls, (long) rows * Short.BYTES);
+            this.index = map(files.index, (long) indexEntries * Long.BYTES);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                columns[i] = map(files.columns[i], (long) rows * Double.BYTES);
+            }
+        }
+
+        /**
+         * @param channel a file
+         * @param size    the number of bytes to map
+         * @return a read-only mapping of the start of the file
+         * @throws IOException if the file cannot be mapped
+         */
+        private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        @Override
+        public String vesselCode() {
+            return vesselCode;
+        }
+
+        @Override
+        public int datedRows() {
+            return rows;
+        }
+
+        @Override
+        public long id(int row) {
+            return ids.getLong(row << 3);
+        }
+
+        @Override
+        public long epochSecond(int row) {
+            return time.getLong(row << 3);
+        }
+
+        @Override
+        public boolean isNull(VesselSeries.Column column, int row) {
+            return (nulls.getShort(row << 1) & (1 << column.ordinal())) != 0;
+        }
+
+        @Override
+        public double value(VesselSeries.Column column, int row) {
+            return columns[column.ordinal()].getDouble(row << 3);
+        }
+
+        @Override
+        public boolean hasFlag(int row, int flag) {
+            return (flags.get(row) & flag) != 0;
+        }
+
+        @Override
+        public int firstRowAtOrAfter(long epochSecond) {
+            // Index entries before 'low' start before the datetime, so the row is in the block before entry 'low'
+            int low = 0;
+            int high = indexEntries;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (index.getLong(middle << 3) < epochSecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int from = low == 0 ? 0 : (low - 1) * INDEX_INTERVAL;
+            int to = (int) Math.min(rows, (long) low * INDEX_INTERVAL);
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (epochSecond(middle) < epochSecond) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * Read access to the metrics of one vessel in datetime order, by row number.
+ * <p>
+ * Rows {@code [0, datedRows())} have a datetime and are ordered by datetime, then id. Columns are
+ * the {@link VesselSeries.Column}s and flags the {@link VesselSeries} flag constants.
+ */
+public interface MetricSeries {
+
+    /**
+     * @return the code of the vessel
+     */
+    String vesselCode();
+
+    /**
+     * @return the number of rows with a datetime
+     */
+    int datedRows();
+
+    /**
+     * @param row a row
+     * @return the id of the row
+     */
+    long id(int row);
+
+    /**
+     * @param row a row with a datetime
+     * @return the datetime of the row in epoch seconds
+     */
+    long epochSecond(int row);
+
+    /**
+     * @param column a column
+     * @param row    a row
+     * @return true if the row has no value in the column
+     */
+    boolean isNull(VesselSeries.Column column, int row);
+
+    /**
+     * @param column a column
+     * @param row    a row
+     * @return the value of the row in the column, 0 if it is null
+     */
+    double value(VesselSeries.Column column, int row);
+
+    /**
+     * @param row  a row
+     * @param flag one of the flag constants
+     * @return true if the row has the flag
+     */
+    boolean hasFlag(int row, int flag);
+
+    /**
+     * Finds the first row at or after a datetime.
+     *
+     * @param epochSecond the datetime in epoch seconds
+     * @return the first row with a datetime at or after it, or {@link #datedRows()} if there is none
+     */
+    int firstRowAtOrAfter(long epochSecond);
+}
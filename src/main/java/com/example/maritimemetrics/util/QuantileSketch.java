@@ -0,0 +1,179 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * A mergeable sketch answering quantile queries over non-negative values with a bounded relative error.
+ * <p>
+ * Values are counted in logarithmic buckets: bucket {@code i} holds the values in
+ * {@code (gamma^(i-1), gamma^i]} with {@code gamma = (1 + a) / (1 - a)} for a relative accuracy
+ * {@code a}, and a quantile is answered with the bucket's midpoint, which is within {@code a} of
+ * every value in the bucket. Values below {@link #MIN_INDEXABLE_VALUE} are counted as zero.
+ * The buckets cover the observed range only, so a sketch of values spanning six orders of
+ * magnitude at 1% accuracy needs about 700 counters however many values it has seen.
+ * <p>
+ * Sketches with the same accuracy merge exactly: the merged sketch is the sketch of the
+ * union of the values. A sketch is not thread-safe.
+ */
+public final class QuantileSketch {
+
+    /**
+     * Values below this are counted as zero.
+     */
+    public static final double MIN_INDEXABLE_VALUE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private long count;
+    private long zeroCount;
+    private long[] counts = new long[0];
+    private int offset;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param relativeAccuracy the largest relative error of a quantile, between 0 and 1 exclusive
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    /**
+     * @return the largest relative error of a quantile
+     */
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * @return the number of values added
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Adds a value. NaN is ignored.
+     *
+     * @param value the value, not negative
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        count++;
+        if (value < MIN_INDEXABLE_VALUE) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        ensureCapacity(index, index);
+        counts[index - offset]++;
+    }
+
+    /**
+     * Adds the values of another sketch to this one.
+     *
+     * @param other a sketch with the same relative accuracy
+     * @throws IllegalArgumentException if the accuracies differ
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches of different accuracy");
+        }
+        count += other.count;
+        zeroCount += other.zeroCount;
+        int first = firstNonEmpty(other.counts);
+        if (first < 0) {
+            return;
+        }
+        int last = lastNonEmpty(other.counts);
+        ensureCapacity(other.offset + first, other.offset + last);
+        for (int i = first; i <= last; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+    }
+
+    /**
+     * Estimates a quantile with the nearest-rank method, within the relative accuracy of the
+     * exact {@link Quantiles#quantile(double[], int, double)} of the added values.
+     *
+     * @param q the quantile, between 0 and 1
+     * @return the estimated quantile, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Quantiles.nearestRank(q, count);
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+            }
+        }
+        throw new IllegalStateException("Bucket counts do not add up to " + count);
+    }
+
+    /**
+     * Grows the buckets to cover the given indexes.
+     *
+     * @param minIndex the lowest bucket index to cover
+     * @param maxIndex the highest bucket index to cover
+     */
+    private void ensureCapacity(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            counts = new long[maxIndex - minIndex + 1];
+            offset = minIndex;
+            return;
+        }
+        int low = Math.min(minIndex, offset);
+        int high = Math.max(maxIndex, offset + counts.length - 1);
+        if (low == offset && high == offset + counts.length - 1) {
+            return;
+        }
+        long[] grown = new long[high - low + 1];
+        System.arraycopy(counts, 0, grown, offset - low, counts.length);
+        counts = grown;
+        offset = low;
+    }
+
+    /**
+     * @param counts bucket counts
+     * @return the index of the first non-zero count, or -1 if all are zero
+     */
+    private static int firstNonEmpty(long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param counts bucket counts
+     * @return the index of the last non-zero count, or -1 if all are zero
+     */
+    private static int lastNonEmpty(long[] counts) {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * Exact order statistics over primitive arrays, found by selection instead of sorting.
+ * <p>
+ * {@link #select(double[], int, int)} partially reorders the array in place so that the
+ * element of the requested rank ends up at its sorted position, in linear expected time and
+ * without allocating. Values must not be NaN.
+ */
+public final class Quantiles {
+
+    /**
+     * Ranges at most this long are finished with an insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private Quantiles() {
+    }
+
+    /**
+     * Computes the median of the first {@code size} values, the mean of the two middle values
+     * for an even count. The values are reordered.
+     *
+     * @param values the values
+     * @param size   the number of values to use
+     * @return the median, or NaN if {@code size} is zero
+     */
+    public static double median(double[] values, int size) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        double upper = select(values, size, size / 2);
+        if (size % 2 == 1) {
+            return upper;
+        }
+        // Everything left of the upper middle is no larger; the lower middle is the largest of them
+        double lower = values[0];
+        for (int i = 1; i < size / 2; i++) {
+            lower = Math.max(lower, values[i]);
+        }
+        return (lower + upper) / 2.0;
+    }
+
+    /**
+     * Computes a quantile of the first {@code size} values with the nearest-rank method:
+     * the smallest value such that at least a fraction {@code q} of the values is no larger.
+     * The values are reordered.
+     *
+     * @param values the values
+     * @param size   the number of values to use
+     * @param q      the quantile, between 0 and 1
+     * @return the quantile, or NaN if {@code size} is zero
+     */
+    public static double quantile(double[] values, int size, double q) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        return select(values, size, nearestRank(q, size));
+    }
+
+    /**
+     * Returns the zero-based nearest rank of a quantile.
+     *
+     * @param q     the quantile, between 0 and 1
+     * @param count the number of values
+     * @return the rank, between 0 and {@code count - 1}
+     */
+    public static long nearestRank(double q, long count) {
+        long rank = (long) Math.ceil(q * count) - 1;
+        return Math.max(0, Math.min(count - 1, rank));
+    }
+
+    /**
+     * Finds the value of rank {@code k} among the first {@code size} values, as if they were sorted.
+     * On return the value is at index {@code k}, no value before it is larger and no value after it
+     * is smaller.
+     *
+     * @param values the values, reordered in place
+     * @param size   the number of values to use
+     * @param k      the zero-based rank
+     * @return the value of rank {@code k}
+     */
+    public static double select(double[] values, int size, long k) {
+        if (k < 0 || k >= size) {
+            throw new IllegalArgumentException("Rank " + k + " is outside 0.." + (size - 1));
+        }
+        int target = (int) k;
+        int left = 0;
+        int right = size - 1;
+        while (right - left > INSERTION_SORT_THRESHOLD) {
+            // Median of three as pivot, which avoids quadratic behaviour on sorted input
+            int middle = (left + right) >>> 1;
+            if (values[middle] < values[left]) {
+                swap(values, middle, left);
+            }
+            if (values[right] < values[left]) {
+                swap(values, right, left);
+            }
+            if (values[right] < values[middle]) {
+                swap(values, right, middle);
+            }
+            double pivot = values[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Now values[left..j] <= pivot <= values[i..right], and values between j and i equal the pivot
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                return values[target];
+            }
+        }
+
+        for (int i = left + 1; i <= right; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= left && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+        return values[target];
+    }
+
+    /**
+     * Swaps two values of an array.
+     *
+     * @param values the array
+     * @param i      the index of the first value
+     * @param j      the index of the second value
+     */
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.maritimemetrics.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of computed results, evicting the least recently used entries once the total
+ * weight of the cached results exceeds a maximum.
+ * <p>
+ * Every entry is tagged with the generation of the data it was computed from. A lookup with a
+ * newer generation finds the entry stale, drops it and computes the result again, so results are
+ * invalidated exactly when their data changes, without scanning the cache. Results are computed
+ * outside the lock, so concurrent misses on the same key may both compute it.
+ * <p>
+ * The weight of a result approximates the number of objects it holds: one per element of a
+ * collection, counted recursively, one per map entry and one for anything else. Results heavier
+ * than the maximum are returned without being cached. Cached results are shared between callers,
+ * who must not modify them.
+ */
+public class ResultCache {
+
+    /**
+     * Counters of the cache since it was created.
+     *
+     * @param entries       the number of cached results
+     * @param weight        the total weight of the cached results
+     * @param maxWeight     the largest total weight kept
+     * @param hits          the lookups answered from the cache
+     * @param misses        the lookups that computed the result
+     * @param evictions     the entries removed to stay within the maximum weight
+     * @param invalidations the entries dropped because their data had changed
+     */
+    public record Stats(int entries, long weight, long maxWeight, long hits, long misses, long evictions,
+                        long invalidations) {
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param value      the result
+     * @param generation the generation of the data it was computed from
+     * @param weight     the weight of the result
+     */
+    private record Entry(Object value, long generation, long weight) {
+    }
+
+    private final long maxWeight;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxWeight the largest total weight of the cached results
+     */
+    public ResultCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cached result of a key, or computes and caches it if it is missing or was computed
+     * from an older generation of the data.
+     *
+     * @param key        the key of the result, e.g. the operation and its parameters; must implement equals and hashCode
+     * @param generation the current generation of the data the result depends on
+     * @param loader     computes the result; exceptions are propagated and nothing is cached
+     * @param <T>        the type of the result
+     * @return the result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, long generation, Supplier<T> loader) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.generation() == generation) {
+                    hits++;
+                    return (T) entry.value();
+                }
+                if (entry.generation() < generation) {
+                    entries.remove(key);
+                    weight -= entry.weight();
+                    invalidations++;
+                }
+            }
+            misses++;
+        }
+
+        T value = loader.get();
+        long valueWeight = weightOf(value);
+        synchronized (this) {
+            Entry previous = entries.get(key);
+            // A result of newer data may have been cached while this one was computed
+            if (valueWeight <= maxWeight && (previous == null || previous.generation() < generation)) {
+                entries.put(key, new Entry(value, generation, valueWeight));
+                weight += valueWeight - (previous != null ? previous.weight() : 0);
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the counters of the cache
+     */
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), weight, maxWeight, hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * Removes the least recently used entries until the total weight is within the maximum.
+     */
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Estimates the weight of a result.
+     *
+     * @param value the result
+     * @return the number of elements of a collection, counted recursively, or of entries of a map, at least 1
+     */
+    static long weightOf(Object value) {
+        if (value instanceof Collection<?> collection) {
+            long total = 0;
+            for (Object element : collection) {
+                total += weightOf(element);
+            }
+            return Math.max(total, 1);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Math.max(map.size(), 1);
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.maritimemetrics.util;
+
+/**
+ * Selects the ids with the k highest scores from a stream of (id, score) pairs with a bounded min-heap.
+ * <p>
+ * The heap never holds more than k entries, so selecting from n pairs takes {@code O(n log k)} time
+ * and {@code O(k)} memory however long the stream is. Ids and scores are kept in primitive arrays
+ * to avoid boxing every offered pair. Equal scores rank the lower id first, so the selection does
+ * not depend on the order of the stream. NaN scores are ignored. Not thread-safe.
+ */
+public final class TopK {
+
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    /**
+     * Constructs an empty selection.
+     *
+     * @param k the number of ids to keep, positive
+     */
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.ids = new long[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * @return the number of ids currently kept, at most k
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers an id with its score, keeping it if it ranks among the k highest seen so far.
+     *
+     * @param id    the id
+     * @param score the score
+     */
+    public void offer(long id, double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (ranksBelow(0, id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the kept ids from the highest score to the lowest. The selection is emptied.
+     *
+     * @return the ids, best first
+     */
+    public long[] drainDescending() {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /**
+     * @param slot  a heap slot
+     * @param id    an id
+     * @param score its score
+     * @return true if the entry in the slot ranks below the given pair
+     */
+    private boolean ranksBelow(int slot, long id, double score) {
+        return scores[slot] < score || (scores[slot] == score && ids[slot] > id);
+    }
+
+    /**
+     * Moves the entry in a slot up until its parent ranks below it.
+     *
+     * @param slot the slot
+     */
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!ranksBelow(slot, ids[parent], scores[parent])) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    /**
+     * Moves the entry in a slot down until no child ranks below it.
+     *
+     * @param slot the slot
+     */
+    private void siftDown(int slot) {
+        while (true) {
+            int lowest = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && ranksBelow(left, ids[lowest], scores[lowest])) {
+                lowest = left;
+            }
+            if (right < size && ranksBelow(right, ids[lowest], scores[lowest])) {
+                lowest = right;
+            }
+            if (lowest == slot) {
+                return;
+            }
+            swap(slot, lowest);
+            slot = lowest;
+        }
+    }
+
+    /**
+     * Swaps the entries of two slots.
+     *
+     * @param a a slot
+     * @param b another slot
+     */
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.maritimemetrics.util;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * A set of days per vessel, walked as runs of consecutive days so that each run can be
+ * recomputed with a single range query. Not thread-safe.
+ */
+public final class VesselDays {
+
+    private final Map<String, NavigableSet<LocalDate>> daysByVessel = new HashMap<>();
+
+    /**
+     * Collects the days of metrics.
+     *
+     * @param metrics the metrics; those without a vessel code or datetime are ignored
+     * @return the days of the metrics per vessel
+     */
+    public static VesselDays of(Collection<MaritimeMetric> metrics) {
+        VesselDays days = new VesselDays();
+        for (MaritimeMetric metric : metrics) {
+            if (metric.getVesselCode() != null && metric.getDatetime() != null) {
+                days.add(metric.getVesselCode(), metric.getDatetime().toLocalDate());
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Adds a day of a vessel.
+     *
+     * @param vesselCode the code of the vessel
+     * @param day        the day
+     */
+    public void add(String vesselCode, LocalDate day) {
+        daysByVessel.computeIfAbsent(vesselCode, vessel -> new TreeSet<>()).add(day);
+    }
+
+    /**
+     * @param vesselCode the code of the vessel
+     * @param day        the day
+     * @return whether the day of the vessel is in the set
+     */
+    public boolean contains(String vesselCode, LocalDate day) {
+        NavigableSet<LocalDate> days = daysByVessel.get(vesselCode);
+        return days != null && days.contains(day);
+    }
+
+    /**
+     * @return whether the set holds no day
+     */
+    public boolean isEmpty() {
+        return daysByVessel.isEmpty();
+    }
+
+    /**
+     * Passes every run of consecutive days of every vessel to a consumer, in day order per vessel.
+     *
+     * @param consumer receives the vessel code, the first day of the run and the day after its last day
+     */
+    public void forEachRun(RunConsumer consumer) {
+        daysByVessel.forEach((vesselCode, days) -> {
+            LocalDate runStart = null;
+            LocalDate runEnd = null;
+            for (LocalDate day : days) {
+                if (runEnd != null && !day.equals(runEnd)) {
+                    consumer.accept(vesselCode, runStart, runEnd);
+                    runStart = null;
+                }
+                if (runStart == null) {
+                    runStart = day;
+                }
+                runEnd = day.plusDays(1);
+            }
+            consumer.accept(vesselCode, runStart, runEnd);
+        });
+    }
+
+    /**
+     * Receives a run of consecutive days of a vessel.
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+
+        /**
+         * @param vesselCode the code of the vessel
+         * @param from       the first day of the run
+         * @param to         the day after the last day of the run
+         */
+        void accept(String vesselCode, LocalDate from, LocalDate to);
+    }
+}
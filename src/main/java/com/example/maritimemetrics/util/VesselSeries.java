@@ -0,0 +1,381 @@
+package com.example.maritimemetrics.util;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The metrics of one vessel held as primitive column arrays, in datetime order.
+ * <p>
+ * Every row has an id, a datetime stored as epoch seconds (UTC, sub-second precision dropped),
+ * one double per {@link Column} and a bitmask of problem flags. Missing datetimes and values are
+ * recorded in null bitmaps, one bit per row, instead of boxing every value. Rows without a
+ * datetime come after all rows with one; rows with equal datetimes are ordered by id.
+ * <p>
+ * A series is immutable once built and may be read by any number of threads.
+ */
+public final class VesselSeries implements MetricSeries {
+
+    /**
+     * Flag of rows with at least one problem.
+     */
+    public static final int INVALID = 1;
+    /**
+     * Flag of rows with a value below zero.
+     */
+    public static final int BELOW_ZERO = 2;
+    /**
+     * Flag of rows with a missing value.
+     */
+    public static final int MISSING = 4;
+    /**
+     * Flag of rows with an outlier value.
+     */
+    public static final int OUTLIER = 8;
+
+    private static final int FLAG_COUNT = 4;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_BYTES = 64;
+
+    /**
+     * The numeric columns of a series.
+     */
+    public enum Column {
+        LATITUDE(MaritimeMetric::getLatitude, MaritimeMetric::setLatitude),
+        LONGITUDE(MaritimeMetric::getLongitude, MaritimeMetric::setLongitude),
+        POWER(MaritimeMetric::getPower, MaritimeMetric::setPower),
+        FUEL_CONSUMPTION(MaritimeMetric::getFuelConsumption, MaritimeMetric::setFuelConsumption),
+        ACTUAL_SPEED_OVERGROUND(MaritimeMetric::getActualSpeedOverground, MaritimeMetric::setActualSpeedOverground),
+        PROPOSED_SPEED_OVERGROUND(MaritimeMetric::getProposedSpeedOverground, MaritimeMetric::setProposedSpeedOverground),
+        PREDICTED_FUEL_CONSUMPTION(MaritimeMetric::getPredictedFuelConsumption, MaritimeMetric::setPredictedFuelConsumption),
+        SPEED_DIFFERENCE(MaritimeMetric::getSpeedDifference, MaritimeMetric::setSpeedDifference),
+        SPEED_DEVIATION(MaritimeMetric::getSpeedDeviation, MaritimeMetric::setSpeedDeviation),
+        FUEL_DEVIATION(MaritimeMetric::getFuelDeviation, MaritimeMetric::setFuelDeviation);
+
+        private static final Column[] COLUMNS = values();
+
+        private final Function<MaritimeMetric, Double> getter;
+        private final BiConsumer<MaritimeMetric, Double> setter;
+
+        Column(Function<MaritimeMetric, Double> getter, BiConsumer<MaritimeMetric, Double> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        /**
+         * Returns all columns without copying.
+         *
+         * @return the shared array of columns, which must not be modified
+         */
+        public static Column[] columns() {
+            return COLUMNS;
+        }
+    }
+
+    private final String vesselCode;
+    private final int size;
+    private final int datedRows;
+    private final long[] ids;
+    private final long[] epochSeconds;
+    private final double[][] values;
+    private final long[][] nulls;
+    private final byte[] flags;
+    private final long[] flagCounts = new long[FLAG_COUNT];
+
+    /**
+     * Constructs a series from the arrays of a builder, trimmed to their size.
+     *
+     * @param builder the builder
+     */
+    private VesselSeries(Builder builder) {
+        this.vesselCode = builder.vesselCode;
+        this.size = builder.size;
+        this.datedRows = builder.datedRows;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.epochSeconds = Arrays.copyOf(builder.epochSeconds, datedRows);
+        this.values = new double[builder.values.length][];
+        this.nulls = new long[builder.nulls.length][];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = Arrays.copyOf(builder.values[column], size);
+            nulls[column] = Arrays.copyOf(builder.nulls[column], words(size));
+        }
+        this.flags = Arrays.copyOf(builder.flags, size);
+        for (int row = 0; row < size; row++) {
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                flagCounts[flag] += (flags[row] >>> flag) & 1;
+            }
+        }
+    }
+
+    /**
+     * @return the code of the vessel
+     */
+    public String vesselCode() {
+        return vesselCode;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of rows with a datetime, which are the first rows of the series
+     */
+    public int datedRows() {
+        return datedRows;
+    }
+
+    /**
+     * @param row a row
+     * @return the id of the row
+     */
+    public long id(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row a row with a datetime, below {@link #datedRows()}
+     * @return the datetime of the row in epoch seconds
+     */
+    public long epochSecond(int row) {
+        return epochSeconds[row];
+    }
+
+    /**
+     * @param row a row
+     * @return the datetime of the row, or null if it has none
+     */
+    public LocalDateTime datetime(int row) {
+        return row < datedRows ? LocalDateTime.ofEpochSecond(epochSeconds[row], 0, ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * @param column a column
+     * @param row    a row
+     * @return true if the row has no value in the column
+     */
+    public boolean isNull(Column column, int row) {
+        return (nulls[column.ordinal()][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param column a column
+     * @param row    a row
+     * @return the value of the row in the column, 0 if it is null
+     */
+    public double value(Column column, int row) {
+        return values[column.ordinal()][row];
+    }
+
+    /**
+     * @param row  a row
+     * @param flag one of the flag constants
+     * @return true if the row has the flag
+     */
+    public boolean hasFlag(int row, int flag) {
+        return (flags[row] & flag) != 0;
+    }
+
+    /**
+     * @param row a row
+     * @return the flags of the row, a combination of the flag constants
+     */
+    int flags(int row) {
+        return flags[row];
+    }
+
+    /**
+     * @param flag one of the flag constants
+     * @return the number of rows with the flag
+     */
+    public long count(int flag) {
+        return flagCounts[Integer.numberOfTrailingZeros(flag)];
+    }
+
+    /**
+     * Finds the first row at or after a datetime with a binary search.
+     *
+     * @param epochSecond the datetime in epoch seconds
+     * @return the first row with a datetime at or after it, or {@link #datedRows()} if there is none
+     */
+    public int firstRowAtOrAfter(long epochSecond) {
+        int low = 0;
+        int high = datedRows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[middle] < epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates a detached metric with the values of a row, without involving the persistence context.
+     *
+     * @param row a row
+     * @return the metric
+     */
+    public MaritimeMetric toMetric(int row) {
+        MaritimeMetric metric = new MaritimeMetric();
+        metric.setId(ids[row]);
+        metric.setVesselCode(vesselCode);
+        metric.setDatetime(datetime(row));
+        for (Column column : Column.COLUMNS) {
+            column.setter.accept(metric, isNull(column, row) ? null : values[column.ordinal()][row]);
+        }
+        metric.setIsInvalid(hasFlag(row, INVALID));
+        metric.setIsBelowZero(hasFlag(row, BELOW_ZERO));
+        metric.setIsMissing(hasFlag(row, MISSING));
+        metric.setIsOutlier(hasFlag(row, OUTLIER));
+        return metric;
+    }
+
+    /**
+     * Estimates the heap used by the series from the lengths of its arrays.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = OBJECT_BYTES + 2L * vesselCode.length() + 5L * ARRAY_HEADER_BYTES;
+        bytes += 8L * ids.length + 8L * epochSeconds.length + flags.length + 8L * flagCounts.length;
+        for (int column = 0; column < values.length; column++) {
+            bytes += 2L * ARRAY_HEADER_BYTES + 8L * values[column].length + 8L * nulls[column].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param rows a number of rows
+     * @return the number of 64-bit words of a bitmap with a bit per row
+     */
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * Collects the rows of a series in growing arrays. Rows must be added in series order:
+     * by datetime, then id, with rows without a datetime last.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final String vesselCode;
+        private int size;
+        private int datedRows;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] epochSeconds = new long[INITIAL_CAPACITY];
+        private final double[][] values = new double[Column.COLUMNS.length][INITIAL_CAPACITY];
+        private final long[][] nulls = new long[Column.COLUMNS.length][words(INITIAL_CAPACITY)];
+        private byte[] flags = new byte[INITIAL_CAPACITY];
+
+        /**
+         * Constructs an empty builder.
+         *
+         * @param vesselCode the code of the vessel
+         */
+        public Builder(String vesselCode) {
+            this.vesselCode = vesselCode;
+        }
+
+        /**
+         * @return the code of the vessel
+         */
+        public String vesselCode() {
+            return vesselCode;
+        }
+
+        /**
+         * Adds a row with all values null. The values are then set with {@link #set(Column, double)}.
+         *
+         * @param id       the id of the row
+         * @param datetime the datetime of the row, or null
+         * @param flags    the flags of the row, a combination of the flag constants
+         * @throws IllegalArgumentException if the row is out of series order
+         */
+        public void add(long id, LocalDateTime datetime, int flags) {
+            if (datetime != null) {
+                long epochSecond = datetime.toEpochSecond(ZoneOffset.UTC);
+                if (datedRows < size || (datedRows > 0 && epochSeconds[datedRows - 1] > epochSecond)) {
+                    throw new IllegalArgumentException("Rows of vessel " + vesselCode + " are not in datetime order");
+                }
+                ensureCapacity();
+                epochSeconds[datedRows++] = epochSecond;
+            } else {
+                ensureCapacity();
+            }
+            ids[size] = id;
+            this.flags[size] = (byte) flags;
+            for (long[] bitmap : nulls) {
+                bitmap[size >>> 6] |= 1L << size;
+            }
+            size++;
+        }
+
+        /**
+         * Adds a row with the datetime, values and flags of a metric.
+         *
+         * @param metric the metric, which must have an id
+         * @throws IllegalArgumentException if the row is out of series order
+         */
+        public void add(MaritimeMetric metric) {
+            int flags = (Boolean.TRUE.equals(metric.getIsInvalid()) ? INVALID : 0)
+                    | (Boolean.TRUE.equals(metric.getIsBelowZero()) ? BELOW_ZERO : 0)
+                    | (Boolean.TRUE.equals(metric.getIsMissing()) ? MISSING : 0)
+                    | (Boolean.TRUE.equals(metric.getIsOutlier()) ? OUTLIER : 0);
+            add(metric.getId(), metric.getDatetime(), flags);
+            for (Column column : Column.COLUMNS) {
+                Double value = column.getter.apply(metric);
+                if (value != null) {
+                    set(column, value);
+                }
+            }
+        }
+
+        /**
+         * Sets a value of the last added row.
+         *
+         * @param column the column
+         * @param value  the value
+         */
+        public void set(Column column, double value) {
+            int row = size - 1;
+            values[column.ordinal()][row] = value;
+            nulls[column.ordinal()][row >>> 6] &= ~(1L << row);
+        }
+
+        /**
+         * @return the series of the added rows
+         */
+        public VesselSeries build() {
+            return new VesselSeries(this);
+        }
+
+        /**
+         * Doubles the arrays when they are full.
+         */
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            for (int column = 0; column < values.length; column++) {
+                values[column] = Arrays.copyOf(values[column], capacity);
+                nulls[column] = Arrays.copyOf(nulls[column], words(capacity));
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.maritimemetrics.benchmark;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.repository.MaritimeMetricBulkWriter;
+import com.example.maritimemetrics.repository.MaritimeMetricRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark comparing the JDBC bulk writer with saving entities through JPA.
+ * The baseline is the entity path the import took before ids were drawn from a pooled sequence:
+ * {@link IdentityMaritimeMetric} keeps the IDENTITY id mapping, so Hibernate inserts its rows one
+ * statement at a time. {@code saveAll} of {@link MaritimeMetric}, whose inserts Hibernate now
+ * batches, is measured as well. All paths write the same generated metrics in chunks of the
+ * import's default size, one transaction per chunk; the reported figure is rows per second for the
+ * best of several measured rounds, with the table emptied before each round.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 3;
+
+    @Autowired
+    private MaritimeMetricRepository maritimeMetricRepository;
+
+    @Autowired
+    private MaritimeMetricBulkWriter maritimeMetricBulkWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Compares rows per second of the IDENTITY entity path, {@code saveAll} and the bulk writer.
+     */
+    @Test
+    public void compareSaveAllWithBulkWriter() {
+        double identityRowsPerSecond = measure("saveAll (IDENTITY ids)", "IdentityMaritimeMetric",
+                IdentityMaritimeMetric::of, chunk -> {
+                    chunk.forEach(entityManager::persist);
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+        double saveAllRowsPerSecond = measure("saveAll (pooled sequence)", "MaritimeMetric", metric -> metric, chunk -> {
+            maritimeMetricRepository.saveAll(chunk);
+            maritimeMetricRepository.flush();
+            entityManager.clear();
+        });
+        double bulkRowsPerSecond = measure("MaritimeMetricBulkWriter", "MaritimeMetric", metric -> metric,
+                maritimeMetricBulkWriter::insert);
+        System.out.printf("Bulk insert speedup over IDENTITY entities: %.2fx%n", bulkRowsPerSecond / identityRowsPerSecond);
+        System.out.printf("Bulk insert speedup over saveAll: %.2fx%n", bulkRowsPerSecond / saveAllRowsPerSecond);
+        deleteAll("IdentityMaritimeMetric");
+        deleteAll("MaritimeMetric");
+    }
+
+    /**
+     * Runs a write path for the warm-up and measured rounds and prints its best throughput.
+     *
+     * @param name       the name of the path
+     * @param entityName the entity the path writes
+     * @param convert    turns a generated metric into the entity written
+     * @param write      writes one chunk inside a transaction
+     * @param <T>        the type of the entity
+     * @return the best rows per second
+     */
+    private <T> double measure(String name, String entityName, Function<MaritimeMetric, T> convert,
+                               Consumer<List<T>> write) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            writeAll(entityName, convert, write);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            best = Math.min(best, writeAll(entityName, convert, write));
+        }
+        double rowsPerSecond = ROWS / (best / 1e9);
+        System.out.printf("%-26s %,12.0f rows/s%n", name, rowsPerSecond);
+        return rowsPerSecond;
+    }
+
+    /**
+     * Empties the table and writes the generated metrics chunk by chunk.
+     *
+     * @param entityName the entity the path writes
+     * @param convert    turns a generated metric into the entity written
+     * @param write      writes one chunk inside a transaction
+     * @param <T>        the type of the entity
+     * @return the time spent writing, in nanoseconds
+     */
+    private <T> long writeAll(String entityName, Function<MaritimeMetric, T> convert, Consumer<List<T>> write) {
+        deleteAll(entityName);
+        List<List<T>> chunks = new ArrayList<>();
+        for (List<MaritimeMetric> chunk : generateChunks()) {
+            chunks.add(chunk.stream().map(convert).toList());
+        }
+        long start = System.nanoTime();
+        for (List<T> chunk : chunks) {
+            transactionTemplate.executeWithoutResult(status -> write.accept(chunk));
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(ROWS, entityManager.createQuery("SELECT COUNT(e) FROM " + entityName + " e", Long.class)
+                .getSingleResult().longValue());
+        return elapsed;
+    }
+
+    /**
+     * Deletes all rows of an entity.
+     *
+     * @param entityName the name of the entity
+     */
+    private void deleteAll(String entityName) {
+        transactionTemplate.executeWithoutResult(status ->
+                entityManager.createQuery("DELETE FROM " + entityName).executeUpdate());
+    }
+
+    /**
+     * Generates metrics shaped like the vessel exports, split into import-sized chunks.
+     *
+     * @return the chunks of new metrics
+     */
+    private static List<List<MaritimeMetric>> generateChunks() {
+        List<List<MaritimeMetric>> chunks = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2023, 6, 1, 0, 0);
+        List<MaritimeMetric> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < ROWS; i++) {
+            MaritimeMetric metric = new MaritimeMetric();
+            metric.setVesselCode(String.valueOf(3001 + i % 7));
+            metric.setDatetime(start.plusMinutes(i));
+            metric.setLatitude(10.0 + (i % 1000) / 1000.0);
+            metric.setLongitude(-14.0 - (i % 1000) / 1000.0);
+            metric.setPower(i % 5000 + 0.25);
+            metric.setFuelConsumption(i % 300 + 0.5);
+            metric.setActualSpeedOverground(10.0 + i % 10);
+            metric.setProposedSpeedOverground(10.5 + i % 10);
+            metric.setPredictedFuelConsumption(i % 300 + 0.75);
+            metric.setSpeedDifference(-0.5);
+            chunk.add(metric);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.maritimemetrics.benchmark;
+
+import com.example.maritimemetrics.util.CsvBlock;
+import com.example.maritimemetrics.util.CsvBlockReader;
+import com.example.maritimemetrics.util.CsvTokenizer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Microbenchmark comparing the CSV tokenizer with the previous split-and-regex row handling.
+ * Both paths read the same generated file and touch every field of every row; the reported
+ * figure is rows per second for the best of several measured rounds.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class CsvTokenizerBenchmark {
+
+    private static final int ROWS = 500_000;
+    private static final int ROWS_PER_BLOCK = 1000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    /**
+     * A benchmarked path returning a checksum of the characters it has seen.
+     */
+    @FunctionalInterface
+    private interface BenchmarkPath {
+        long run() throws IOException;
+    }
+
+    /**
+     * Compares rows per second of the legacy path and the tokenizer path.
+     *
+     * @throws Exception if reading the generated data fails
+     */
+    @Test
+    public void compareSplitAndRegexWithTokenizer() throws Exception {
+        String csv = generateCsv();
+
+        long legacyChecksum = legacyPath(csv);
+        long tokenizerChecksum = tokenizerPath(csv);
+        assertEquals(legacyChecksum, tokenizerChecksum);
+
+        double legacyRowsPerSecond = measure("split + removeQuotes", () -> legacyPath(csv));
+        double tokenizerRowsPerSecond = measure("CsvTokenizer", () -> tokenizerPath(csv));
+        System.out.printf("CsvTokenizer speedup: %.2fx%n", tokenizerRowsPerSecond / legacyRowsPerSecond);
+    }
+
+    /**
+     * Runs a path for the warm-up and measured rounds and prints its best throughput.
+     *
+     * @param name the name of the path
+     * @param path the path to run
+     * @return the best rows per second
+     * @throws IOException if the path fails
+     */
+    private static double measure(String name, BenchmarkPath path) throws IOException {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += path.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += path.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double rowsPerSecond = ROWS / (best / 1e9);
+        System.out.printf("%-22s %,14.0f rows/s (checksum %d)%n", name, rowsPerSecond, sink);
+        return rowsPerSecond;
+    }
+
+    /**
+     * The row handling used before the tokenizer: split on commas, then strip quotes with a regex and trim.
+     *
+     * @param csv the CSV content
+     * @return the number of field characters seen
+     * @throws IOException if reading fails
+     */
+    private static long legacyPath(String csv) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new StringReader(csv))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                for (int i = 0; i < 9; i++) {
+                    checksum += fields[i].replaceAll("^\"|\"$", "").trim().length();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * The tokenizer path used by the import: blocks of records tokenized into field slices.
+     *
+     * @param csv the CSV content
+     * @return the number of field characters seen
+     * @throws IOException if reading fails
+     */
+    private static long tokenizerPath(String csv) throws IOException {
+        long checksum = 0;
+        CsvBlockReader reader = new CsvBlockReader(new StringReader(csv), ROWS_PER_BLOCK);
+        CsvTokenizer fields = new CsvTokenizer();
+        reader.skipRecord();
+        CsvBlock block;
+        while ((block = reader.nextBlock()) != null) {
+            for (int r = 0; r < block.recordCount(); r++) {
+                fields.tokenize(block.chars(), block.starts()[r], block.ends()[r]);
+                for (int i = 0; i < 9; i++) {
+                    checksum += fields.end(i) - fields.start(i);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Generates a CSV file shaped like the vessel exports, with a NULL row every hundred rows.
+     *
+     * @return the CSV content
+     */
+    private static String generateCsv() {
+        StringBuilder csv = new StringBuilder(ROWS * 128);
+        csv.append("\"vessel_code\",\"datetime\",\"latitude\",\"longitude\",\"power\",\"fuel_consumption\",")
+                .append("\"actual_speed_overground\",\"proposed_speed_overground\",\"predicted_fuel_consumption\"\n");
+        for (int i = 0; i < ROWS; i++) {
+            int minute = i % 60;
+            int hour = (i / 60) % 24;
+            if (i % 100 == 99) {
+                csv.append("\"3001\",\"2023-06-01 ").append(hour < 10 ? "0" : "").append(hour).append(':')
+                        .append(minute < 10 ? "0" : "").append(minute).append(":00\",NULL,NULL,NULL,NULL,NULL,NULL,\"0\"\n");
+                continue;
+            }
+            csv.append('"').append(3001 + i % 7).append("\",\"2023-06-01 ")
+                    .append(hour < 10 ? "0" : "").append(hour).append(':')
+                    .append(minute < 10 ? "0" : "").append(minute).append(":00\",")
+                    .append("\"10.2894").append(i % 10000).append("\",")
+                    .append("\"-14.78").append(i % 100000).append("\",")
+                    .append("\"").append(i % 5000).append(".25\",")
+                    .append("\"").append(i % 300).append(".5\",")
+                    .append("\"0.0").append(i % 1000).append("\",")
+                    .append("\"0.1\",")
+                    .append("\"").append(i % 290).append(".75\"\n");
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.maritimemetrics.benchmark;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A copy of {@link MaritimeMetric} with the IDENTITY id mapping it had before ids were drawn from
+ * a pooled sequence, stored in its own table with the same indexes. Hibernate cannot batch the
+ * inserts of IDENTITY entities, so saving these measures the entity path the import used to take.
+ * Only used by {@link BulkInsertBenchmark}.
+ */
+@Entity
+@Table(name = "identity_maritime_metrics", indexes = {
+        @Index(name = "idx_identity_maritime_metrics_vessel_datetime", columnList = "vessel_code, datetime"),
+        @Index(name = "idx_identity_maritime_metrics_vessel_id", columnList = "vessel_code, id"),
+        @Index(name = "idx_identity_maritime_metrics_vessel_speed_deviation", columnList = "vessel_code, speed_deviation"),
+        @Index(name = "idx_identity_maritime_metrics_vessel_fuel_deviation", columnList = "vessel_code, fuel_deviation")
+})
+@Data
+public class IdentityMaritimeMetric {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String vesselCode;
+    private LocalDateTime datetime;
+    private Double latitude;
+    private Double longitude;
+    private Double power;
+    private Double fuelConsumption;
+    private Double actualSpeedOverground;
+    private Double proposedSpeedOverground;
+    private Double predictedFuelConsumption;
+    private Double speedDifference;
+    private Double speedDeviation;
+    private Double fuelDeviation;
+    private Boolean isInvalid = false;
+    private Boolean isBelowZero = false;
+    private Boolean isMissing = false;
+    private Boolean isOutlier = false;
+
+    /**
+     * Copies the values of a metric, without its id.
+     *
+     * @param metric the metric to copy
+     * @return a new entity with the values of the metric
+     */
+    public static IdentityMaritimeMetric of(MaritimeMetric metric) {
+        IdentityMaritimeMetric copy = new IdentityMaritimeMetric();
+        copy.setVesselCode(metric.getVesselCode());
+        copy.setDatetime(metric.getDatetime());
+        copy.setLatitude(metric.getLatitude());
+        copy.setLongitude(metric.getLongitude());
+        copy.setPower(metric.getPower());
+        copy.setFuelConsumption(metric.getFuelConsumption());
+        copy.setActualSpeedOverground(metric.getActualSpeedOverground());
+        copy.setProposedSpeedOverground(metric.getProposedSpeedOverground());
+        copy.setPredictedFuelConsumption(metric.getPredictedFuelConsumption());
+        copy.setSpeedDifference(metric.getSpeedDifference());
+        copy.setSpeedDeviation(metric.getSpeedDeviation());
+        copy.setFuelDeviation(metric.getFuelDeviation());
+        copy.setIsInvalid(metric.getIsInvalid());
+        copy.setIsBelowZero(metric.getIsBelowZero());
+        copy.setIsMissing(metric.getIsMissing());
+        copy.setIsOutlier(metric.getIsOutlier());
+        return copy;
+    }
+}
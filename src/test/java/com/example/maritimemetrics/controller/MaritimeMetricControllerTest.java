@@ -1,22 +1,46 @@
 package com.example.maritimemetrics.controller;
 
 import com.example.maritimemetrics.MaritimeMetricsApplication;
+import com.example.maritimemetrics.service.DatasetGenerations;
 import com.example.maritimemetrics.service.MaritimeMetricCsvService;
+import com.example.maritimemetrics.util.ColumnarEncoder;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -34,6 +58,9 @@ public class MaritimeMetricControllerTest {
     @Autowired
     private MaritimeMetricCsvService maritimeMetricCsvService;
 
+    @Autowired
+    private DatasetGenerations datasetGenerations;
+
     /**
      * Load data from CSV before all tests.
      *
@@ -71,7 +98,131 @@ public class MaritimeMetricControllerTest {
     public void testGetAllData() throws Exception {
         mockMvc.perform(get("/api/metrics/all"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(13)));  // Adjust based on the number of entries in your CSV
+                .andExpect(jsonPath("$.metrics", hasSize(13)));  // Adjust based on the number of entries in your CSV
+    }
+
+    /**
+     * Test for following the next-page cursors through all metrics, and for rejecting bad page requests.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testPaginateAllData() throws Exception {
+        Set<Object> ids = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/metrics/all").param("size", "5");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size", is(5)))
+                    .andReturn().getResponse().getContentAsString();
+            List<Object> pageIds = JsonPath.read(body, "$.metrics[*].id");
+            ids.addAll(pageIds);
+            cursor = JsonPath.read(body, "$.nextCursor");
+            pages++;
+        } while (cursor != null);
+        assertEquals(3, pages);  // 5 + 5 + 3 metrics
+        assertEquals(13, ids.size());
+
+        mockMvc.perform(get("/api/metrics/3001/invalid").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.metrics", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor", notNullValue()));
+
+        mockMvc.perform(get("/api/metrics/all").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/metrics/all").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test for streaming all metrics and a vessel list as newline-delimited JSON.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testStreamAllData() throws Exception {
+        String[] lines = streamLines("/api/metrics/all");
+        assertEquals(13, lines.length);
+        Set<Object> ids = new HashSet<>();
+        for (String line : lines) {
+            ids.add(JsonPath.read(line, "$.id"));
+        }
+        assertEquals(13, ids.size());
+
+        lines = streamLines("/api/metrics/3001/valid");
+        assertEquals(8, lines.length);
+        for (String line : lines) {
+            assertEquals("3001", JsonPath.read(line, "$.vesselCode"));
+        }
+
+        assertEquals(8, streamLines("/api/metrics/3001/speed-difference").length);
+    }
+
+    /**
+     * Requests a list endpoint as newline-delimited JSON and waits for the streamed response.
+     *
+     * @param url the url of the endpoint
+     * @return the lines of the response
+     * @throws Exception if the request fails
+     */
+    private String[] streamLines(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+    }
+
+    /**
+     * Test for answering conditional requests from the dataset generations: unchanged answers are 304 Not
+     * Modified, If-Modified-Since is ignored, and a change to one vessel invalidates the fleet and that vessel
+     * but not the other vessels.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testConditionalGet() throws Exception {
+        String fleetEtag = mockMvc.perform(get("/api/metrics/vessel-codes"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String etag3001 = mockMvc.perform(get("/api/metrics/3001/speed-difference"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String etag19310 = mockMvc.perform(get("/api/metrics/19310/invalid"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String columnarEtag3001 = mockMvc.perform(get("/api/metrics/3001/speed-difference")
+                        .accept(ColumnarEncoder.MEDIA_TYPE_VALUE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag3001, columnarEtag3001);  // Each representation has its own ETag
+
+        mockMvc.perform(get("/api/metrics/vessel-codes").header(HttpHeaders.IF_NONE_MATCH, fleetEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/metrics/3001/speed-difference").header(HttpHeaders.IF_NONE_MATCH, etag3001))
+                .andExpect(status().isNotModified());
+        // Only the ETag validates: If-Modified-Since alone is always answered in full
+        mockMvc.perform(get("/api/metrics/vessel-codes").header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk());
+
+        datasetGenerations.bump(List.of("19310"));
+
+        mockMvc.perform(get("/api/metrics/vessel-codes").header(HttpHeaders.IF_NONE_MATCH, fleetEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/metrics/19310/invalid").header(HttpHeaders.IF_NONE_MATCH, etag19310))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/metrics/3001/speed-difference").header(HttpHeaders.IF_NONE_MATCH, etag3001))
+                .andExpect(status().isNotModified());
     }
 
     /**
@@ -97,7 +248,7 @@ public class MaritimeMetricControllerTest {
     public void testGetAllValidDataByVesselCode() throws Exception {
         mockMvc.perform(get("/api/metrics/3001/valid"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].vesselCode", is("3001")));  // Valid data should be loaded from CSV
+                .andExpect(jsonPath("$.metrics[0].vesselCode", is("3001")));  // Valid data should be loaded from CSV
     }
 
     /**
@@ -109,7 +260,7 @@ public class MaritimeMetricControllerTest {
     public void testGetAllInvalidDataByVesselCode() throws Exception {
         mockMvc.perform(get("/api/metrics/19310/invalid"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(3))); // Adjust based on your test data
+                .andExpect(jsonPath("$.metrics", hasSize(3))); // Adjust based on your test data
     }
 
     /**
@@ -121,7 +272,7 @@ public class MaritimeMetricControllerTest {
     public void testGetAllMissingDataByVesselCode() throws Exception {
         mockMvc.perform(get("/api/metrics/19310/missing"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1))); // Adjust based on your test data
+                .andExpect(jsonPath("$.metrics", hasSize(1))); // Adjust based on your test data
     }
 
     /**
@@ -133,7 +284,7 @@ public class MaritimeMetricControllerTest {
     public void testGetAllBelowZeroDataByVesselCode() throws Exception {
         mockMvc.perform(get("/api/metrics/3001/below-zero"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1))); // Adjust based on your test data
+                .andExpect(jsonPath("$.metrics", hasSize(1))); // Adjust based on your test data
     }
 
     /**
@@ -145,7 +296,7 @@ public class MaritimeMetricControllerTest {
     public void testGetAllOutlierDataByVesselCode() throws Exception {
         mockMvc.perform(get("/api/metrics/3001/outlier"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2))); // Adjust based on your test data
+                .andExpect(jsonPath("$.metrics", hasSize(2))); // Adjust based on your test data
     }
 
     /**
@@ -162,6 +313,75 @@ public class MaritimeMetricControllerTest {
                 .andExpect(jsonPath("$[0].speedDifference", is(-1.0E-5)));  // Example expected value calculated from your logic
     }
 
+    /**
+     * Test for fetching the speed difference percentiles of a vessel within a time period, estimated from
+     * the sketches for whole hours and computed exactly otherwise.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetSpeedDifferencePercentiles() throws Exception {
+        mockMvc.perform(get("/api/metrics/19310/speed-difference/percentiles")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.p50", closeTo(0.7472, 0.0075)))  // Within the 1% sketch accuracy
+                .andExpect(jsonPath("$.p99", closeTo(4.8, 0.048)));
+
+        // A period within an hour is computed exactly, without the row at 00:00 of the same hour
+        mockMvc.perform(get("/api/metrics/19310/speed-difference/percentiles")
+                        .param("startDate", "2023-06-01T00:05:00")
+                        .param("endDate", "2023-06-01T00:30:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exact", is(true)))
+                .andExpect(jsonPath("$.count", is(1)))
+                .andExpect(jsonPath("$.p50", closeTo(4.8, 1e-9)));
+
+        mockMvc.perform(get("/api/metrics/19310/speed-difference/percentiles")
+                        .param("startDate", "2023-07-01T00:00:00")
+                        .param("endDate", "2023-07-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(0)))
+                .andExpect(jsonPath("$.p50", nullValue()));
+    }
+
+    /**
+     * Test for aggregating speed differences into a latitude/longitude grid, from the cells kept at
+     * import and from the stored rows.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetSpeedDifferenceHeatmap() throws Exception {
+        mockMvc.perform(get("/api/metrics/speed-difference/heatmap"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))  // Only the valid rows of vessel 3001 have speed differences
+                .andExpect(jsonPath("$[0].minLatitude", is(10.2)))
+                .andExpect(jsonPath("$[0].maxLatitude", is(10.3)))
+                .andExpect(jsonPath("$[0].minLongitude", is(-14.8)))
+                .andExpect(jsonPath("$[0].count", is(8)))
+                .andExpect(jsonPath("$[0].mean", closeTo(-9.5E-6, 1e-12)))
+                .andExpect(jsonPath("$[0].max", closeTo(-6.0E-6, 1e-12)));
+
+        mockMvc.perform(get("/api/metrics/speed-difference/heatmap")
+                        .param("vesselCode", "3001")
+                        .param("precision", "3")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T00:03:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].minLatitude", is(10.289)))
+                .andExpect(jsonPath("$[0].count", is(2)));
+
+        mockMvc.perform(get("/api/metrics/speed-difference/heatmap").param("vesselCode", "19310"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(get("/api/metrics/speed-difference/heatmap").param("precision", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Test for fetching problem frequencies for a specific vessel code.
      *
@@ -173,7 +393,81 @@ public class MaritimeMetricControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.BelowZero", is(1)))
                 .andExpect(jsonPath("$.Missing", is(1)))  // Adjust based on actual data
-                .andExpect(jsonPath("$.Outlier", is(2)));  // Adjust based on actual data
+                .andExpect(jsonPath("$.Outlier", is(2)))  // Adjust based on actual data
+                .andExpect(jsonPath("$.Invalid", is(3)))
+                .andExpect(jsonPath("$.Total", is(3)));
+    }
+
+    /**
+     * Test for fetching the fleet problem frequencies ranked by a counter.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetFleetProblemFrequencies() throws Exception {
+        mockMvc.perform(get("/api/metrics/fleet/problems/frequencies").param("sortBy", "total"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].vesselCode", is("3001")))
+                .andExpect(jsonPath("$[0].total", is(10)))
+                .andExpect(jsonPath("$[1].vesselCode", is("19310")))
+                .andExpect(jsonPath("$[1].invalid", is(3)))
+                .andExpect(jsonPath("$[1].outlier", is(2)));
+
+        mockMvc.perform(get("/api/metrics/fleet/problems/frequencies")
+                        .param("sortBy", "below-zero").param("order", "asc").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].vesselCode", is("19310")));
+
+        mockMvc.perform(get("/api/metrics/fleet/problems/frequencies").param("sortBy", "draft"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test that fetching problem frequencies for a vessel without data returns not found.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetProblemFrequenciesUnknownVessel() throws Exception {
+        mockMvc.perform(get("/api/metrics/9999/problems/frequencies"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Test for fetching paged episode summaries with the configured and a custom gap.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetProblemEpisodes() throws Exception {
+        mockMvc.perform(get("/api/metrics/19310/problems/episodes")
+                        .param("problemType", "outlier")
+                        .param("sortBy", "start")
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalEpisodes", is(2)))
+                .andExpect(jsonPath("$.maxGapSeconds", is(300)))
+                .andExpect(jsonPath("$.episodes", hasSize(1)))
+                .andExpect(jsonPath("$.episodes[0].start", is("2023-06-01T00:08:00")))
+                .andExpect(jsonPath("$.episodes[0].count", is(1)))
+                .andExpect(jsonPath("$.episodes[0].members").doesNotExist());
+
+        mockMvc.perform(get("/api/metrics/19310/problems/episodes")
+                        .param("problemType", "outlier")
+                        .param("maxGapSeconds", "600")
+                        .param("includeMembers", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalEpisodes", is(1)))
+                .andExpect(jsonPath("$.episodes[0].start", is("2023-06-01T00:00:00")))
+                .andExpect(jsonPath("$.episodes[0].end", is("2023-06-01T00:08:00")))
+                .andExpect(jsonPath("$.episodes[0].count", is(2)))
+                .andExpect(jsonPath("$.episodes[0].members", hasSize(2)));
+
+        mockMvc.perform(get("/api/metrics/19310/problems/episodes").param("problemType", "draft"))
+                .andExpect(status().isBadRequest());
     }
 
     /**
@@ -195,6 +489,185 @@ public class MaritimeMetricControllerTest {
                 .andExpect(jsonPath("$[0].speedDifference", is(-1.0E-5)));  // Example expected value
     }
 
+    /**
+     * Test for fetching speed differences and summary metrics in the binary columnar encoding,
+     * checked against the JSON responses.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetColumnarData() throws Exception {
+        MockHttpServletRequestBuilder[] requests = {
+                get("/api/metrics/3001/speed-difference"),
+                get("/api/metrics/3001/summary-metrics")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T01:00:00")
+        };
+        String[][] columns = {
+                {"latitude", "longitude", "speedDifference"},
+                {"power", "fuelConsumption", "actualSpeedOverground", "proposedSpeedOverground",
+                        "predictedFuelConsumption", "speedDifference"}
+        };
+        for (int i = 0; i < requests.length; i++) {
+            String json = mockMvc.perform(requests[i])
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            byte[] body = mockMvc.perform(requests[i].accept(ColumnarEncoder.MEDIA_TYPE_VALUE))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(ColumnarEncoder.MEDIA_TYPE_VALUE))
+                    .andReturn().getResponse().getContentAsByteArray();
+            for (int column = 0; column < columns[i].length; column++) {
+                List<Double> expected = JsonPath.read(json, "$[*]." + columns[i][column]);
+                Double[] values = decodeColumn(body, column);
+                assertEquals(8, values.length);
+                assertEquals(expected, Arrays.asList(values));
+            }
+        }
+    }
+
+    /**
+     * Decodes one column of the binary columnar encoding, following the layout documented on {@link ColumnarEncoder}.
+     *
+     * @param body   the encoded columns
+     * @param column the index of the column
+     * @return the values of the column, null where a row has none
+     */
+    private static Double[] decodeColumn(byte[] body, int column) {
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        int columnCount = buffer.getShort(6);
+        int rows = buffer.getInt(8);
+        buffer.position(12);
+        for (int i = 0; i < columnCount; i++) {
+            buffer.position(buffer.position() + Short.BYTES + buffer.getShort());
+        }
+        int bitmapSize = ((rows + 7) / 8 + 7) & ~7;
+        int position = ((buffer.position() + 7) & ~7) + column * (bitmapSize + rows * Double.BYTES);
+        Double[] values = new Double[rows];
+        for (int row = 0; row < rows; row++) {
+            boolean isNull = (body[position + row / 8] & 1 << (row % 8)) != 0;
+            values[row] = isNull ? null : buffer.getDouble(position + bitmapSize + row * Double.BYTES);
+        }
+        return values;
+    }
+
+    /**
+     * Test for downsampling the metrics of a vessel to hour, minute and custom buckets.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetBucketedMetricsForVesselInPeriod() throws Exception {
+        mockMvc.perform(get("/api/metrics/3001/summary-metrics")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T00:59:00")
+                        .param("bucket", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].bucketStart", is("2023-06-01T00:00:00")))
+                .andExpect(jsonPath("$[0].bucketEnd", is("2023-06-01T01:00:00")))
+                .andExpect(jsonPath("$[0].metrics.actualSpeedOverground.count", is(8)))
+                .andExpect(jsonPath("$[0].metrics.actualSpeedOverground.min", is(0.059994)))
+                .andExpect(jsonPath("$[0].metrics.actualSpeedOverground.max", is(0.49999)))
+                .andExpect(jsonPath("$[0].metrics.power.avg", is(0.0)));
+
+        mockMvc.perform(get("/api/metrics/3001/summary-metrics")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T00:03:00")
+                        .param("bucket", "minute"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].bucketStart", is("2023-06-01T00:01:00")))
+                .andExpect(jsonPath("$[0].metrics.proposedSpeedOverground.max", is(0.1)));
+
+        mockMvc.perform(get("/api/metrics/3001/summary-metrics")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T00:59:00")
+                        .param("bucket", "custom")
+                        .param("bucketSeconds", "1800"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].metrics.actualSpeedOverground.count", is(7)))
+                .andExpect(jsonPath("$[1].bucketStart", is("2023-06-01T00:30:00")));
+
+        mockMvc.perform(get("/api/metrics/3001/summary-metrics")
+                        .param("startDate", "2023-06-01T00:00:00")
+                        .param("endDate", "2023-06-01T00:59:00")
+                        .param("bucket", "week"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test for fetching the worst speed and fuel outliers of a vessel and of the fleet.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetTopOutliers() throws Exception {
+        mockMvc.perform(get("/api/metrics/outliers/speed/top").param("k", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].vesselCode", is("19310")))
+                .andExpect(jsonPath("$[0].datetime", is("2023-06-01T00:08:00")))
+                .andExpect(jsonPath("$[0].speedDeviation", closeTo(1.714285, 1e-6)))
+                .andExpect(jsonPath("$[1].vesselCode", is("3001")))
+                .andExpect(jsonPath("$[1].speedDeviation", is(1.4)))
+                .andExpect(jsonPath("$[2].vesselCode", is("19310")))
+                .andExpect(jsonPath("$[2].speedDeviation", is(1.0)));
+
+        mockMvc.perform(get("/api/metrics/outliers/speed/top").param("vesselCode", "3001").param("k", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].datetime", is("2023-06-01T00:45:00")));
+
+        mockMvc.perform(get("/api/metrics/outliers/fuel/top").param("vesselCode", "19310"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].fuelDeviation", is(1.2)));
+
+        mockMvc.perform(get("/api/metrics/outliers/fuel/top").param("k", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test for reporting the size and heap use of the columnar analytics store after the import.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetColumnStoreStats() throws Exception {
+        mockMvc.perform(get("/api/metrics/analytics/store"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled", is(true)))
+                .andExpect(jsonPath("$.vessels", is(2)))
+                .andExpect(jsonPath("$.rows", is(13)))
+                .andExpect(jsonPath("$.heapBytesPerRow", greaterThan(0.0)));
+    }
+
+    /**
+     * Test for answering a repeated statistics request from the result cache.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetResultCacheStats() throws Exception {
+        String before = mockMvc.perform(get("/api/metrics/analytics/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled", is(true)))
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/metrics/3001/problems/frequencies"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/metrics/3001/problems/frequencies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Total", is(10)));
+        String after = mockMvc.perform(get("/api/metrics/analytics/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries", greaterThan(0)))
+                .andReturn().getResponse().getContentAsString();
+
+        long hits = ((Number) JsonPath.read(after, "$.hits")).longValue() - ((Number) JsonPath.read(before, "$.hits")).longValue();
+        assertTrue(hits >= 1);
+    }
+
     /**
      * Test for comparing the compliance of two vessels based on their median speed differences.
      *
@@ -208,4 +681,29 @@ public class MaritimeMetricControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result", is("3001"))); // Expected result based on your test data
     }
+
+    /**
+     * Test for ranking vessels by median speed difference.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGetComplianceRanking() throws Exception {
+        mockMvc.perform(get("/api/metrics/compliance-ranking"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].vesselCode", is("3001")))
+                .andExpect(jsonPath("$[0].sampleCount", is(10)))
+                .andExpect(jsonPath("$[1].vesselCode", is("19310")))
+                .andExpect(jsonPath("$[1].sampleCount", is(2)))
+                .andExpect(jsonPath("$[1].medianSpeedDifference", closeTo(2.7736, 0.0001)));
+
+        mockMvc.perform(get("/api/metrics/compliance-ranking").param("vesselCodes", "9999", "19310"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].vesselCode", is("19310")))
+                .andExpect(jsonPath("$[1].vesselCode", is("9999")))
+                .andExpect(jsonPath("$[1].sampleCount", is(0)))
+                .andExpect(jsonPath("$[1].medianSpeedDifference", nullValue()));
+    }
 }
@@ -1,19 +1,37 @@
 package com.example.maritimemetrics.controller;
 
+import com.example.maritimemetrics.model.ImportMode;
+import com.example.maritimemetrics.model.ImportProgress;
 import com.example.maritimemetrics.service.MaritimeMetricCsvService;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -26,6 +44,9 @@ public class MaritimeMetricCsvControllerTest {
     @Autowired
     private MaritimeMetricCsvController maritimeMetricCsvController;
 
+    @Autowired
+    private MaritimeMetricController maritimeMetricController;
+
     private static MockMvc mockMvc;
 
     @Autowired
@@ -33,17 +54,18 @@ public class MaritimeMetricCsvControllerTest {
 
     /**
      * Set up the MockMvc instance before each test.
-     * This method initializes the MockMvc object for testing the controller.
+     * This method initializes the MockMvc object for testing the controller, together with the
+     * metrics controller that reads the imported rows back.
      */
     @BeforeEach
     public void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(maritimeMetricCsvController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(maritimeMetricCsvController, maritimeMetricController).build();
     }
 
     /**
      * Test the import of a CSV file.
-     * This test verifies that a valid CSV file can be imported successfully
-     * and the response status is OK (200).
+     * This test verifies that a valid CSV file can be imported successfully, that the response
+     * status is OK (200) and that the import report accounts for every row.
      *
      * @throws Exception if an error occurs during the request
      */
@@ -60,6 +82,206 @@ public class MaritimeMetricCsvControllerTest {
 
         // Perform the multipart request to upload the file
         mockMvc.perform(multipart("/api/csv/import").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("REPLACE"))
+                .andExpect(jsonPath("$.rowsProcessed").value(13))
+                .andExpect(jsonPath("$.rowsSkipped").value(0))
+                .andExpect(jsonPath("$.outlierRows").value(4))
+                .andExpect(jsonPath("$.issues[?(@.field == 'proposedSpeedOverground' && @.rule == 'outlier')].count",
+                        hasItem(4)));
+    }
+
+    /**
+     * Test an upsert import of the same CSV file.
+     * Re-importing rows with the same vessel code and datetime overwrites them in place, so the
+     * stored rows keep their ids and every row is reported as updated.
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportCsvInUpsertMode() throws Exception {
+        importTestCsv("replace").andExpect(status().isOk());
+        List<Object> ids = getStoredIds();
+        assertEquals(13, ids.size());
+
+        importTestCsv("upsert")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("UPSERT"))
+                .andExpect(jsonPath("$.rowsProcessed").value(13))
+                .andExpect(jsonPath("$.updatedRows").value(13))
+                .andExpect(jsonPath("$.duplicateRows").value(0))
+                .andExpect(jsonPath("$.outlierRows").value(4));
+
+        assertEquals(ids, getStoredIds());
+    }
+
+    /**
+     * Test an append import of the same CSV file.
+     * Every row is already stored, so none is written, all are reported as duplicates and the
+     * stored rows are unchanged.
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportCsvInAppendMode() throws Exception {
+        importTestCsv("replace").andExpect(status().isOk());
+        List<Object> ids = getStoredIds();
+        assertEquals(13, ids.size());
+
+        importTestCsv("append")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("APPEND"))
+                .andExpect(jsonPath("$.rowsProcessed").value(0))
+                .andExpect(jsonPath("$.updatedRows").value(0))
+                .andExpect(jsonPath("$.duplicateRows").value(13))
+                .andExpect(jsonPath("$.rowsSkipped").value(0))
+                .andExpect(jsonPath("$.outlierRows").value(0));
+
+        assertEquals(ids, getStoredIds());
+    }
+
+    /**
+     * Test that an unknown import mode is rejected with a BAD_REQUEST (400) status.
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportCsvWithUnknownMode() throws Exception {
+        byte[] csvData = Files.readAllBytes(Paths.get("src/test/resources/data/vessel_data_test.csv"));
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "vessel_data_test.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                csvData
+        );
+
+        mockMvc.perform(multipart("/api/csv/import").file(file).param("mode", "merge"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test the import of a gzip-compressed CSV file sent as the raw request body.
+     * This test verifies that the body is decompressed and imported and the response status is OK (200).
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportGzipCsvStream() throws Exception {
+        byte[] csvData = Files.readAllBytes(Paths.get("src/test/resources/data/vessel_data_test.csv"));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(csvData);
+        }
+
+        mockMvc.perform(post("/api/csv/import/stream")
+                        .param("mode", "upsert")
+                        .contentType("application/gzip")
+                        .content(compressed.toByteArray()))
                 .andExpect(status().isOk());
     }
+
+    /**
+     * Test that imports sent while another import is running are refused with a CONFLICT (409)
+     * status and a Retry-After header instead of waiting for it.
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportCsvWhileImportRunning() throws Exception {
+        // An import reading from a pipe holds the import lock until the pipe is closed
+        PipedOutputStream pipe = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(pipe);
+        Thread running = new Thread(() ->
+                maritimeMetricCsvService.importDataFromCsv(input, ImportMode.APPEND, new ImportProgress(-1)));
+        running.start();
+        try {
+            while (!maritimeMetricCsvService.isImportRunning()) {
+                Thread.sleep(10);
+            }
+            byte[] csvData = Files.readAllBytes(Paths.get("src/test/resources/data/vessel_data_test.csv"));
+
+            mockMvc.perform(post("/api/csv/import/stream")
+                            .param("mode", "append")
+                            .contentType(MediaType.TEXT_PLAIN)
+                            .content(csvData))
+                    .andExpect(status().isConflict())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+            importTestCsv("append")
+                    .andExpect(status().isConflict())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+        } finally {
+            pipe.write("vessel_code,datetime\n".getBytes(StandardCharsets.UTF_8));
+            pipe.close();
+            running.join();
+        }
+    }
+
+    /**
+     * Test an import submitted as a background job.
+     * This test verifies that the job is accepted (202) and that polling its status
+     * eventually reports it as completed with all rows processed.
+     *
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    public void testImportCsvAsJob() throws Exception {
+        byte[] csvData = Files.readAllBytes(Paths.get("src/test/resources/data/vessel_data_test.csv"));
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "vessel_data_test.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                csvData
+        );
+
+        MvcResult result = mockMvc.perform(multipart("/api/csv/jobs").file(file).param("mode", "upsert"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn();
+        String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        String jobStatus = null;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String job = mockMvc.perform(get("/api/csv/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            jobStatus = JsonPath.read(job, "$.status");
+            if (!"QUEUED".equals(jobStatus) && !"RUNNING".equals(jobStatus)) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals("COMPLETED", jobStatus);
+
+        mockMvc.perform(get("/api/csv/jobs/" + jobId))
+                .andExpect(jsonPath("$.rowsProcessed").value(13));
+    }
+
+    /**
+     * Imports the test CSV file through the import endpoint.
+     *
+     * @param mode the import mode
+     * @return the result of the request
+     * @throws Exception if an error occurs during the request
+     */
+    private ResultActions importTestCsv(String mode) throws Exception {
+        byte[] csvData = Files.readAllBytes(Paths.get("src/test/resources/data/vessel_data_test.csv"));
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "vessel_data_test.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                csvData
+        );
+        return mockMvc.perform(multipart("/api/csv/import").file(file).param("mode", mode));
+    }
+
+    /**
+     * @return the ids of all stored metrics, in id order
+     * @throws Exception if an error occurs during the request
+     */
+    private List<Object> getStoredIds() throws Exception {
+        String body = mockMvc.perform(get("/api/metrics/all"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.metrics[*].id");
+    }
 }
@@ -0,0 +1,199 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.util.CsvBlockReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for the CsvImportPipeline.
+ * This class runs the pipeline over generated CSV records with a stub parser and validator and
+ * checks the order of the written blocks and how failures and cancellation end it.
+ */
+public class CsvImportPipelineTest {
+
+    /**
+     * Parses every record into a metric named after its first field.
+     */
+    private static final CsvImportPipeline.RowParser PARSER = (fields, lineNumber, issues) -> metric(fields.getString(0));
+
+    /**
+     * Stores the line number of every metric as its id.
+     */
+    private static final CsvImportPipeline.BlockValidator VALIDATOR = (metrics, lineNumbers, issues) -> {
+        for (int i = 0; i < metrics.size(); i++) {
+            metrics.get(i).setId(lineNumbers[i]);
+        }
+    };
+
+    /**
+     * Creates a reader over a header and generated records {@code r0,0}, {@code r1,1}, ...
+     *
+     * @param records         the number of records
+     * @param recordsPerBlock the number of records per block
+     * @return the reader, positioned after the header
+     * @throws IOException if the header cannot be read
+     */
+    private static CsvBlockReader reader(int records, int recordsPerBlock) throws IOException {
+        StringBuilder csv = new StringBuilder("vessel_code,value\n");
+        for (int i = 0; i < records; i++) {
+            csv.append('r').append(i).append(',').append(i).append('\n');
+        }
+        CsvBlockReader reader = new CsvBlockReader(new StringReader(csv.toString()), recordsPerBlock);
+        reader.skipRecord();
+        return reader;
+    }
+
+    /**
+     * Runs the pipeline on four workers with a queue depth of two.
+     *
+     * @param reader the source of records
+     * @param parser the record parser
+     * @param writer receives the parsed blocks
+     * @return the number of metrics handed to the writer
+     * @throws Exception the failure of the pipeline
+     */
+    private static long run(CsvBlockReader reader, CsvImportPipeline.RowParser parser,
+                            Consumer<CsvImportPipeline.ParsedBlock> writer) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            return new CsvImportPipeline(workers, 2).run(reader, parser, VALIDATOR, writer);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @param vesselCode the vessel code
+     * @return a metric with the vessel code
+     */
+    private static MaritimeMetric metric(String vesselCode) {
+        MaritimeMetric metric = new MaritimeMetric();
+        metric.setVesselCode(vesselCode);
+        return metric;
+    }
+
+    /**
+     * Test that blocks parsed out of order by the workers are written in file order, with their
+     * skipped records counted and the line numbers of their metrics.
+     *
+     * @throws Exception if the pipeline fails
+     */
+    @Test
+    @Timeout(10)
+    public void testWritesBlocksInFileOrder() throws Exception {
+        // Every 10th record is skipped, and early records of every third block are slow to parse
+        CsvImportPipeline.RowParser parser = (fields, lineNumber, issues) -> {
+            int record = (int) lineNumber - 2;
+            if (record % 30 < 3) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return record % 10 == 9 ? null : PARSER.parse(fields, lineNumber, issues);
+        };
+        List<MaritimeMetric> written = new ArrayList<>();
+        int[] records = new int[1];
+
+        long count = run(reader(1000, 7), parser, block -> {
+            written.addAll(block.metrics());
+            records[0] += block.recordCount();
+        });
+
+        assertEquals(900, count);
+        assertEquals(900, written.size());
+        assertEquals(1000, records[0]);
+        int index = 0;
+        for (int record = 0; record < 1000; record++) {
+            if (record % 10 != 9) {
+                MaritimeMetric metric = written.get(index++);
+                assertEquals("r" + record, metric.getVesselCode());
+                assertEquals(record + 2, metric.getId().longValue());  // The header is line 1
+            }
+        }
+    }
+
+    /**
+     * Test that an exception thrown by a worker ends the pipeline and is rethrown, and that no
+     * block from the failed one on is written.
+     */
+    @Test
+    @Timeout(10)
+    public void testWorkerFailurePropagates() {
+        List<String> firstCodes = new ArrayList<>();
+        CsvImportPipeline.RowParser parser = (fields, lineNumber, issues) -> {
+            if (lineNumber == 502) {
+                throw new IllegalStateException("parse failure");
+            }
+            return PARSER.parse(fields, lineNumber, issues);
+        };
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                run(reader(10_000, 10), parser, block -> firstCodes.add(block.metrics().get(0).getVesselCode())));
+
+        assertEquals("parse failure", e.getMessage());
+        assertEquals(50, firstCodes.size());
+        assertEquals("r490", firstCodes.get(49));
+    }
+
+    /**
+     * Test that an exception thrown by the writer ends the pipeline and is rethrown without
+     * passing further blocks to the writer.
+     *
+     * @throws IOException if the reader cannot be created
+     */
+    @Test
+    @Timeout(10)
+    public void testWriterFailurePropagates() throws IOException {
+        AtomicInteger writes = new AtomicInteger();
+        CsvBlockReader reader = reader(10_000, 10);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> run(reader, PARSER, block -> {
+            if (writes.incrementAndGet() == 3) {
+                throw new IllegalStateException("write failure");
+            }
+        }));
+
+        assertEquals("write failure", e.getMessage());
+        assertEquals(3, writes.get());
+        assertNotNull(reader.nextBlock());  // The reader stopped before the end of the input
+    }
+
+    /**
+     * Test that a cancellation raised by the writer stops the pipeline before the next block is
+     * written and before the rest of the input is read.
+     *
+     * @throws IOException if the reader cannot be created
+     */
+    @Test
+    @Timeout(10)
+    public void testCancellationStopsPipeline() throws IOException {
+        AtomicInteger writes = new AtomicInteger();
+        CsvBlockReader reader = reader(10_000, 10);
+
+        assertThrows(CancellationException.class, () -> run(reader, PARSER, block -> {
+            if (writes.incrementAndGet() > 2) {
+                throw new CancellationException("CSV import cancelled");
+            }
+        }));
+
+        assertEquals(3, writes.get());
+        assertNotNull(reader.nextBlock());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.maritimemetrics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the TimeSeriesStore.
+ * This class checks the names of the vessel directories.
+ */
+public class TimeSeriesStoreTest {
+
+    /**
+     * Test that vessel codes differing only in case or in escaped characters get directory names
+     * that differ even on a case-insensitive file system.
+     */
+    @Test
+    public void testDirectoryNamesDoNotCollide() {
+        List<String> vesselCodes = List.of("abc", "ABC", "Abc", "aBc", "a_bc", "_abc", "a__bc", "_a_b_c", "a bc", "A BC", "3001");
+        Set<String> names = new HashSet<>();
+        for (String vesselCode : vesselCodes) {
+            String name = TimeSeriesStore.directoryName(vesselCode);
+            assertEquals(name.toLowerCase(Locale.ROOT), name);
+            assertTrue(names.add(name), "Duplicate directory name " + name + " for " + vesselCode);
+        }
+
+        assertEquals("3001", TimeSeriesStore.directoryName("3001"));
+        assertEquals("_a_b_c", TimeSeriesStore.directoryName("ABC"));
+        assertEquals("a__bc", TimeSeriesStore.directoryName("a_bc"));
+        assertEquals("~61206263", TimeSeriesStore.directoryName("a bc"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.maritimemetrics.service;
+
+import com.example.maritimemetrics.config.ValidationProperties;
+import com.example.maritimemetrics.model.MaritimeMetric;
+import com.example.maritimemetrics.model.ValidationIssueCount;
+import com.example.maritimemetrics.model.ValidationTally;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the ValidationRuleEngine.
+ * This class checks the default rules and that per-vessel overrides only apply to their vessel.
+ */
+public class ValidationRuleEngineTest {
+
+    /**
+     * Creates an engine compiled from the given rules.
+     *
+     * @param properties the validation rules
+     * @return the compiled engine
+     */
+    private static ValidationRuleEngine engine(ValidationProperties properties) {
+        ValidationRuleEngine engine = new ValidationRuleEngine();
+        ReflectionTestUtils.setField(engine, "validationProperties", properties);
+        engine.compile();
+        return engine;
+    }
+
+    /**
+     * Creates a metric with the given vessel, latitude and speeds.
+     *
+     * @param vesselCode    the vessel code
+     * @param latitude      the latitude
+     * @param actualSpeed   the actual speed overground
+     * @param proposedSpeed the proposed speed overground
+     * @return the metric
+     */
+    private static MaritimeMetric metric(String vesselCode, double latitude, double actualSpeed, double proposedSpeed) {
+        MaritimeMetric metric = new MaritimeMetric();
+        metric.setVesselCode(vesselCode);
+        metric.setLatitude(latitude);
+        metric.setActualSpeedOverground(actualSpeed);
+        metric.setProposedSpeedOverground(proposedSpeed);
+        return metric;
+    }
+
+    /**
+     * Test that the default rules flag out-of-range, deviating and negative values.
+     */
+    @Test
+    public void testDefaultRules() {
+        ValidationRuleEngine engine = engine(new ValidationProperties());
+        ValidationTally issues = new ValidationTally();
+
+        MaritimeMetric metric = metric("3001", 95.0, -1.0, 2.5);
+        issues.startRow(2);
+        engine.evaluate(metric, issues);
+
+        assertTrue(metric.getIsOutlier());
+        assertTrue(metric.getIsBelowZero());
+        assertNull(metric.getLatitude());
+        assertEquals(List.of(
+                new ValidationIssueCount("latitude", "out-of-range", 1, List.of(2L)),
+                new ValidationIssueCount("proposedSpeedOverground", "outlier", 1, List.of(2L)),
+                new ValidationIssueCount("actualSpeedOverground", "below-zero", 1, List.of(2L))
+        ), issues.getIssues());
+
+        MaritimeMetric valid = metric("3001", 10.0, 0.09999, 0.1);
+        engine.evaluate(valid, new ValidationTally());
+        assertFalse(Boolean.TRUE.equals(valid.getIsOutlier()));
+        assertFalse(valid.getIsBelowZero());
+    }
+
+    /**
+     * Test that a vessel override replaces only the threshold of its own vessel.
+     */
+    @Test
+    public void testVesselOverride() {
+        ValidationProperties properties = new ValidationProperties();
+        ValidationProperties.VesselRules overrides = new ValidationProperties.VesselRules();
+        ValidationProperties.Deviation deviation = new ValidationProperties.Deviation();
+        deviation.setThreshold(2.0);
+        overrides.getDeviations().put("proposed-speed-overground", deviation);
+        properties.getVessels().put("19310", overrides);
+        ValidationRuleEngine engine = engine(properties);
+
+        MaritimeMetric overridden = metric("19310", 49.0, 1.0, 2.5);
+        engine.evaluate(overridden, new ValidationTally());
+        assertFalse(Boolean.TRUE.equals(overridden.getIsOutlier()));
+
+        MaritimeMetric other = metric("3001", 10.0, 1.0, 2.5);
+        engine.evaluate(other, new ValidationTally());
+        assertTrue(other.getIsOutlier());
+    }
+
+    /**
+     * Test that rules referring to unknown fields are rejected at startup.
+     */
+    @Test
+    public void testUnknownField() {
+        ValidationProperties properties = new ValidationProperties();
+        properties.getNonNegative().add("draft");
+
+        assertThrows(IllegalStateException.class, () -> engine(properties));
+    }
+}
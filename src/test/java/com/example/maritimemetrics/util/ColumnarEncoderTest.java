@@ -0,0 +1,80 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for ColumnarEncoder.
+ * This class decodes encoded rows by the documented layout and checks the header, the alignment
+ * of the columns, the null bitmaps and the values.
+ */
+public class ColumnarEncoderTest {
+
+    private static final List<ColumnarEncoder.Column<Double[]>> COLUMNS = List.of(
+            new ColumnarEncoder.Column<>("a", row -> row[0]),
+            new ColumnarEncoder.Column<>("longer name", row -> row[1]));
+
+    /**
+     * Test that every value and null of 11 rows is read back from its column.
+     */
+    @Test
+    public void testEncode() {
+        List<Double[]> rows = new ArrayList<>();
+        for (int row = 0; row < 11; row++) {
+            rows.add(new Double[]{row % 3 == 0 ? null : row * 1.5, row == 10 ? null : (double) -row});
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(ColumnarEncoder.encode(rows, COLUMNS)).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[4];
+        buffer.get(magic);
+        assertEquals("MMCF", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(ColumnarEncoder.VERSION, buffer.getShort());
+        assertEquals(2, buffer.getShort());
+        assertEquals(11, buffer.getInt());
+        List<String> names = new ArrayList<>();
+        for (int column = 0; column < 2; column++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("a", "longer name"), names);
+
+        int position = (buffer.position() + 7) & ~7;
+        for (int column = 0; column < 2; column++) {
+            assertEquals(0, position % 8);
+            int bitmap = position;
+            position += 8;  // 11 bits padded to 8 bytes
+            for (int row = 0; row < 11; row++) {
+                Double expected = rows.get(row)[column];
+                boolean isNull = (buffer.get(bitmap + row / 8) & 1 << (row % 8)) != 0;
+                double value = buffer.getDouble(position + row * 8);
+                assertEquals(expected == null, isNull);
+                if (expected == null) {
+                    assertTrue(Double.isNaN(value));
+                } else {
+                    assertEquals(expected.doubleValue(), value);
+                }
+            }
+            position += 11 * 8;
+        }
+        assertEquals(buffer.capacity(), position);
+    }
+
+    /**
+     * Test that no rows encode to the header and empty bitmaps.
+     */
+    @Test
+    public void testEncodeEmpty() {
+        ByteBuffer buffer = ByteBuffer.wrap(ColumnarEncoder.encode(List.of(), COLUMNS)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0, buffer.getInt(8));
+        assertEquals(0, buffer.capacity() % 8);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the CsvTokenizer and CsvBlockReader.
+ * This class checks field splitting, quoting and record boundaries.
+ */
+public class CsvTokenizerTest {
+
+    /**
+     * Tokenizes a single record given as a string.
+     *
+     * @param record the record to tokenize
+     * @return the tokenizer holding the fields of the record
+     */
+    private static CsvTokenizer tokenize(String record) {
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        tokenizer.tokenize(record.toCharArray(), 0, record.length());
+        return tokenizer;
+    }
+
+    /**
+     * Test that quoted and unquoted fields are unquoted and trimmed.
+     */
+    @Test
+    public void testQuotedAndUnquotedFields() {
+        CsvTokenizer fields = tokenize("\"3001\", \" 2023-06-01 00:00:00 \",NULL,12.5");
+
+        assertEquals(4, fields.fieldCount());
+        assertEquals("3001", fields.getString(0));
+        assertEquals("2023-06-01 00:00:00", fields.getString(1));
+        assertTrue(fields.isNullOrEmpty(2));
+        assertEquals("12.5", fields.getString(3));
+    }
+
+    /**
+     * Test that commas and doubled quotes inside quoted fields are kept.
+     */
+    @Test
+    public void testDelimiterAndEscapedQuoteInsideQuotes() {
+        CsvTokenizer fields = tokenize("\"a,b\",\"say \"\"hi\"\"\",c");
+
+        assertEquals(3, fields.fieldCount());
+        assertEquals("a,b", fields.getString(0));
+        assertEquals("say \"hi\"", fields.getString(1));
+        assertEquals("c", fields.getString(2));
+    }
+
+    /**
+     * Test that empty fields, including a trailing one, are reported.
+     */
+    @Test
+    public void testEmptyFields() {
+        CsvTokenizer fields = tokenize(",\"\",");
+
+        assertEquals(3, fields.fieldCount());
+        assertTrue(fields.isEmpty(0));
+        assertTrue(fields.isEmpty(1));
+        assertTrue(fields.isEmpty(2));
+        assertFalse(fields.equalsIgnoreCase(0, "NULL"));
+    }
+
+    /**
+     * Test that records end at line breaks outside quotes only, with CRLF handled.
+     *
+     * @throws Exception if reading fails
+     */
+    @Test
+    public void testBlockReaderRecordBoundaries() throws Exception {
+        CsvBlockReader reader = new CsvBlockReader(new StringReader("h1,h2\r\n\"multi\nline\",1\r\nx,2"), 10);
+
+        assertTrue(reader.skipRecord());
+        CsvBlock block = reader.nextBlock();
+        assertEquals(2, block.recordCount());
+        assertEquals(2, block.firstRecordNumber());
+
+        CsvTokenizer fields = new CsvTokenizer();
+        fields.tokenize(block.chars(), block.starts()[0], block.ends()[0]);
+        assertEquals("multi\nline", fields.getString(0));
+        assertEquals("1", fields.getString(1));
+
+        fields.tokenize(block.chars(), block.starts()[1], block.ends()[1]);
+        assertEquals("x", fields.getString(0));
+        assertEquals("2", fields.getString(1));
+
+        assertNull(reader.nextBlock());
+    }
+}
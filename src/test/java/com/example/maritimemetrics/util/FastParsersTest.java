@@ -0,0 +1,78 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for the FastNumberParser and FastDateTimeParser.
+ * This class checks that both parsers agree with the JDK parsers they replace.
+ */
+public class FastParsersTest {
+
+    /**
+     * Parses a string with a FastNumberParser.
+     *
+     * @param parser the parser to use
+     * @param value  the string to parse
+     * @return the return code of the parser
+     */
+    private static int parse(FastNumberParser parser, String value) {
+        return parser.parse(value.toCharArray(), 0, value.length());
+    }
+
+    /**
+     * Test that decimal values parse to the same doubles as Double.parseDouble.
+     */
+    @Test
+    public void testNumbersMatchDoubleParseDouble() {
+        FastNumberParser parser = new FastNumberParser();
+        String[] values = {"10.2894496917725", "-14.788875579834", "0.747206647694111", "0", "-0.0",
+                ".5", "7.", "1e-3", "2.5E+4", "12345678901234567890.123", "4.9e-324", "1d", "NaN", "-Infinity"};
+
+        for (String value : values) {
+            assertEquals(FastNumberParser.PARSED, parse(parser, value));
+            assertEquals(Double.parseDouble(value), parser.value());
+        }
+    }
+
+    /**
+     * Test that malformed and empty values are reported through the return code.
+     */
+    @Test
+    public void testMalformedNumbers() {
+        FastNumberParser parser = new FastNumberParser();
+
+        assertEquals(FastNumberParser.EMPTY, parse(parser, ""));
+        for (String value : new String[]{"abc", "1.2.3", "-", ".", "1e", "1e+", "12a", "Inf", "0x1p3"}) {
+            assertEquals(FastNumberParser.MALFORMED, parse(parser, value));
+        }
+    }
+
+    /**
+     * Test timestamp parsing, including the smart resolution of day-of-month and midnight.
+     */
+    @Test
+    public void testDateTimes() {
+        assertEquals(LocalDateTime.of(2023, 6, 1, 0, 7, 0), parseDateTime("2023-06-01 00:07:00"));
+        assertEquals(LocalDateTime.of(2023, 2, 28, 10, 0, 0), parseDateTime("2023-02-30 10:00:00"));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0, 0), parseDateTime("2023-12-31 24:00:00"));
+        assertNull(parseDateTime("2023-06-01T00:07:00"));
+        assertNull(parseDateTime("2023-13-01 00:00:00"));
+        assertNull(parseDateTime("2023-06-01 23:60:00"));
+        assertNull(parseDateTime("2023-06-01"));
+    }
+
+    /**
+     * Parses a timestamp string with the FastDateTimeParser.
+     *
+     * @param value the string to parse
+     * @return the parsed timestamp, or null if malformed
+     */
+    private static LocalDateTime parseDateTime(String value) {
+        return FastDateTimeParser.parse(value.toCharArray(), 0, value.length());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for MappedVesselSeries.
+ * This class checks appended rows against the series they were written from, across several
+ * appends, sparse index blocks and reopening the files.
+ */
+public class MappedVesselSeriesTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Builds a series of rows two seconds apart with every third value missing and every fifth row invalid.
+     *
+     * @param firstRow the number of the first row
+     * @param rows     the number of rows
+     * @return the series
+     */
+    private static VesselSeries series(int firstRow, int rows) {
+        VesselSeries.Builder builder = new VesselSeries.Builder("3001");
+        for (int row = firstRow; row < firstRow + rows; row++) {
+            builder.add(row + 1, START.plusSeconds(2L * row), row % 5 == 0 ? VesselSeries.INVALID : 0);
+            if (row % 3 != 0) {
+                builder.set(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row / 10.0);
+            }
+            builder.set(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Test that the rows of several appends are read back with their ids, datetimes, values and flags.
+     */
+    @Test
+    public void testAppendAndRead() throws IOException {
+        try (MappedVesselSeries files = new MappedVesselSeries(directory, "3001")) {
+            files.append(series(0, 1500), 0, 1500);
+            files.append(series(1500, 1000), 0, 1000);
+            MetricSeries read = files.snapshot();
+
+            assertEquals(2500, read.datedRows());
+            for (int row = 0; row < 2500; row++) {
+                assertEquals(row + 1, read.id(row));
+                assertEquals(START.plusSeconds(2L * row).toEpochSecond(ZoneOffset.UTC), read.epochSecond(row));
+                assertEquals(row % 3 == 0, read.isNull(VesselSeries.Column.ACTUAL_SPEED_OVERGROUND, row));
+                assertEquals(row, read.value(VesselSeries.Column.PROPOSED_SPEED_OVERGROUND, row));
+                assertTrue(read.isNull(VesselSeries.Column.POWER, row));
+                assertEquals(row % 5 == 0, read.hasFlag(row, VesselSeries.INVALID));
+            }
+        }
+    }
+
+    /**
+     * Test that range lookups through the sparse index find the first row at or after a datetime.
+     */
+    @Test
+    public void testFirstRowAtOrAfter() throws IOException {
+        try (MappedVesselSeries files = new MappedVesselSeries(directory, "3001")) {
+            VesselSeries written = series(0, 3000);
+            files.append(written, 0, 3000);
+            MetricSeries read = files.snapshot();
+
+            long first = written.epochSecond(0);
+            for (long second = first - 3; second <= first + 6003; second++) {
+                assertEquals(written.firstRowAtOrAfter(second), read.firstRowAtOrAfter(second));
+            }
+        }
+    }
+
+    /**
+     * Test that reopened files keep their rows and only accept rows after the last one.
+     */
+    @Test
+    public void testReopen() throws IOException {
+        try (MappedVesselSeries files = new MappedVesselSeries(directory, "3001")) {
+            files.append(series(0, 10), 0, 10);
+        }
+        try (MappedVesselSeries files = new MappedVesselSeries(directory, "3001")) {
+            assertEquals(10, files.rows());
+            assertFalse(files.follows(series(9, 1).epochSecond(0), 10));
+            assertThrows(IllegalArgumentException.class, () -> files.append(series(5, 5), 0, 5));
+
+            files.append(series(10, 5), 0, 5);
+            MetricSeries read = files.snapshot();
+            assertEquals(15, read.datedRows());
+            assertEquals(15, read.id(14));
+        }
+    }
+}
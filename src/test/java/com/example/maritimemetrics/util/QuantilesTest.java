@@ -0,0 +1,84 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for Quantiles and QuantileSketch.
+ * This class checks selection against sorting, and the sketch against exact quantiles.
+ */
+public class QuantilesTest {
+
+    private static final double[] QUANTILES = {0.0, 0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 1.0};
+
+    /**
+     * Generates values with many duplicates and a long tail.
+     *
+     * @param random the random source
+     * @param size   the number of values
+     * @return the values
+     */
+    private static double[] generate(Random random, int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(4) == 0 ? 0.0 : Math.round(Math.exp(random.nextGaussian() * 2) * 1000) / 1000.0;
+        }
+        return values;
+    }
+
+    /**
+     * Test that selection finds the same order statistics and medians as sorting.
+     */
+    @Test
+    public void testSelectMatchesSort() {
+        Random random = new Random(42);
+        for (int size = 1; size <= 200; size++) {
+            double[] values = generate(random, size);
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            double expectedMedian = size % 2 == 1 ? sorted[size / 2] : (sorted[size / 2 - 1] + sorted[size / 2]) / 2.0;
+            assertEquals(expectedMedian, Quantiles.median(values.clone(), size));
+
+            for (double q : QUANTILES) {
+                assertEquals(sorted[(int) Quantiles.nearestRank(q, size)], Quantiles.quantile(values.clone(), size, q));
+            }
+            int k = random.nextInt(size);
+            assertEquals(sorted[k], Quantiles.select(values, size, k));
+        }
+    }
+
+    /**
+     * Test that sketch quantiles are within the relative accuracy of the exact quantiles, also after merging.
+     */
+    @Test
+    public void testSketchAccuracyAndMerge() {
+        Random random = new Random(7);
+        double[] values = generate(random, 10_000);
+        QuantileSketch whole = new QuantileSketch(0.01);
+        QuantileSketch merged = new QuantileSketch(0.01);
+        QuantileSketch part = new QuantileSketch(0.01);
+        for (int i = 0; i < values.length; i++) {
+            whole.add(values[i]);
+            part.add(values[i]);
+            if (i % 1000 == 999) {
+                merged.merge(part);
+                part = new QuantileSketch(0.01);
+            }
+        }
+
+        assertEquals(values.length, merged.count());
+        for (double q : QUANTILES) {
+            double exact = Quantiles.quantile(values.clone(), values.length, q);
+            double estimate = merged.quantile(q);
+            assertEquals(whole.quantile(q), estimate);
+            assertTrue(Math.abs(estimate - exact) <= 0.01 * exact + 1e-12, "q=" + q + ": " + estimate + " vs " + exact);
+        }
+        assertTrue(Double.isNaN(new QuantileSketch(0.01).quantile(0.5)));
+    }
+}
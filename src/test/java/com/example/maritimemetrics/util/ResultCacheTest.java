@@ -0,0 +1,73 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for ResultCache.
+ * This class checks hits and misses, invalidation by generation, least recently used eviction
+ * by weight, and that failed or oversized results are not cached.
+ */
+public class ResultCacheTest {
+
+    /**
+     * Test that a result is computed once per generation of its data.
+     */
+    @Test
+    public void testHitsAndInvalidation() {
+        ResultCache cache = new ResultCache(100);
+        int[] loads = new int[1];
+
+        assertEquals("a1", cache.get("a", 1, () -> "a" + ++loads[0]));
+        assertEquals("a1", cache.get("a", 1, () -> "a" + ++loads[0]));
+        assertEquals("a2", cache.get("a", 2, () -> "a" + ++loads[0]));
+        assertEquals("a2", cache.get("a", 2, () -> "a" + ++loads[0]));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(2, loads[0]);
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.invalidations());
+        assertEquals(1, stats.entries());
+    }
+
+    /**
+     * Test that the least recently used results are evicted once the total weight exceeds the maximum.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(10);
+        cache.get("a", 1, () -> List.of(1, 2, 3, 4));
+        cache.get("b", 1, () -> List.of(List.of(1, 2), List.of(3, 4)));
+        cache.get("a", 1, () -> List.of());  // "a" is now the most recently used
+        cache.get("c", 1, () -> List.of(1, 2, 3));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.entries());
+        assertEquals(7, stats.weight());
+        assertEquals(List.of(1, 2, 3, 4), cache.get("a", 1, List::of));
+        assertEquals(List.of(), cache.get("b", 1, List::of));
+    }
+
+    /**
+     * Test that results heavier than the maximum and failed computations are not cached.
+     */
+    @Test
+    public void testDoesNotCacheOversizedOrFailedResults() {
+        ResultCache cache = new ResultCache(2);
+        cache.get("big", 1, () -> List.of(1, 2, 3));
+        assertThrows(IllegalStateException.class, () -> cache.get("fails", 1, () -> {
+            throw new IllegalStateException();
+        }));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(0, stats.entries());
+        assertEquals(0, stats.weight());
+        assertEquals(2, stats.misses());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.maritimemetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for TopK.
+ * This class checks the bounded heap selection against a full sort.
+ */
+public class TopKTest {
+
+    /**
+     * Test that the selected ids match the first k of a sort by score descending and id ascending.
+     */
+    @Test
+    public void testSelectionMatchesSort() {
+        Random random = new Random(11);
+        for (int n = 0; n <= 300; n += 7) {
+            double[] scores = new double[n];
+            for (int i = 0; i < n; i++) {
+                // few distinct scores, so ties are common
+                scores[i] = random.nextInt(20) / 4.0;
+            }
+            for (int k = 1; k <= 25; k += 6) {
+                TopK topK = new TopK(k);
+                for (int i = 0; i < n; i++) {
+                    topK.offer(i, scores[i]);
+                }
+                long[] expected = IntStream.range(0, n).boxed()
+                        .sorted(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparing(i -> i))
+                        .limit(k)
+                        .mapToLong(Integer::longValue)
+                        .toArray();
+                assertEquals(expected.length, topK.size());
+                assertArrayEquals(expected, topK.drainDescending());
+                assertEquals(0, topK.size());
+            }
+        }
+    }
+
+    /**
+     * Test that NaN scores are never selected.
+     */
+    @Test
+    public void testNaNIgnored() {
+        TopK topK = new TopK(2);
+        topK.offer(1, Double.NaN);
+        topK.offer(2, 0.5);
+        topK.offer(3, Double.NaN);
+        assertArrayEquals(new long[]{2}, topK.drainDescending());
+    }
+}
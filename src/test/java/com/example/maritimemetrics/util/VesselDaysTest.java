@@ -0,0 +1,74 @@
+package com.example.maritimemetrics.util;
+
+import com.example.maritimemetrics.model.MaritimeMetric;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for VesselDays.
+ * This class checks which days of which vessels are collected and how they are grouped into runs.
+ */
+public class VesselDaysTest {
+
+    /**
+     * @param vesselCode the vessel code
+     * @param datetime   the datetime
+     * @return a metric of the vessel at the datetime
+     */
+    private static MaritimeMetric metric(String vesselCode, LocalDateTime datetime) {
+        MaritimeMetric metric = new MaritimeMetric();
+        metric.setVesselCode(vesselCode);
+        metric.setDatetime(datetime);
+        return metric;
+    }
+
+    /**
+     * Test that consecutive days of a vessel form one run, that gaps start a new run and that
+     * metrics without a vessel code or datetime are ignored.
+     */
+    @Test
+    public void testGroupsConsecutiveDaysIntoRuns() {
+        LocalDateTime day = LocalDateTime.of(2023, 6, 1, 10, 30);
+        VesselDays days = VesselDays.of(List.of(
+                metric("v1", day.plusDays(1)),
+                metric("v1", day),
+                metric("v1", day.plusHours(5)),
+                metric("v1", day.plusDays(4)),
+                metric("v2", day.plusDays(2)),
+                metric(null, day.plusDays(10)),
+                metric("v3", null)));
+
+        List<String> runs = new ArrayList<>();
+        days.forEachRun((vesselCode, from, to) -> runs.add(vesselCode + " " + from + " " + to));
+        runs.sort(null);
+
+        assertEquals(List.of(
+                "v1 2023-06-01 2023-06-03",
+                "v1 2023-06-05 2023-06-06",
+                "v2 2023-06-03 2023-06-04"), runs);
+        assertTrue(days.contains("v1", LocalDate.of(2023, 6, 2)));
+        assertFalse(days.contains("v1", LocalDate.of(2023, 6, 3)));
+        assertFalse(days.contains("v3", LocalDate.of(2023, 6, 1)));
+    }
+
+    /**
+     * Test that an empty set has no runs.
+     */
+    @Test
+    public void testEmpty() {
+        VesselDays days = VesselDays.of(List.of());
+
+        assertTrue(days.isEmpty());
+        days.forEachRun((vesselCode, from, to) -> {
+            throw new AssertionError("unexpected run");
+        });
+    }
+}